@@ -0,0 +1,124 @@
+package com.tim_rayner.restaurant.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.tim_rayner.restaurant.entities.DiningReview;
+import com.tim_rayner.restaurant.entities.Restaurant;
+import com.tim_rayner.restaurant.entities.ReviewStatus;
+
+import tools.jackson.core.type.TypeReference;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+import tools.jackson.dataformat.cbor.CBORMapper;
+import tools.jackson.dataformat.smile.SmileMapper;
+
+/**
+ * Encoding and decoding restaurant and review lists in each format the API negotiates. The encoded
+ * sizes are printed once per trial, as they do not change between iterations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BinaryFormatBenchmark {
+
+    private static final TypeReference<List<Restaurant>> RESTAURANTS = new TypeReference<>() {
+    };
+    private static final TypeReference<List<DiningReview>> REVIEWS = new TypeReference<>() {
+    };
+
+    @Param({"json", "cbor", "smile"})
+    private String format;
+
+    @Param({"100", "1000"})
+    private int size;
+
+    private ObjectMapper objectMapper;
+    private List<Restaurant> restaurants;
+    private List<DiningReview> reviews;
+    private byte[] encodedRestaurants;
+    private byte[] encodedReviews;
+
+    @Setup
+    public void setUp() {
+        objectMapper = switch (format) {
+            case "json" -> JsonMapper.builder().build();
+            case "cbor" -> CBORMapper.builder().build();
+            case "smile" -> SmileMapper.builder().build();
+            default -> throw new IllegalArgumentException(format);
+        };
+
+        restaurants = new ArrayList<>(size);
+        reviews = new ArrayList<>(size);
+        for (long id = 1; id <= size; id++) {
+            restaurants.add(restaurant(id));
+            reviews.add(review(id));
+        }
+        encodedRestaurants = objectMapper.writeValueAsBytes(restaurants);
+        encodedReviews = objectMapper.writeValueAsBytes(reviews);
+        System.out.printf("%n%s, %d rows: restaurants %d bytes, reviews %d bytes%n",
+                format, size, encodedRestaurants.length, encodedReviews.length);
+    }
+
+    private static Restaurant restaurant(long id) {
+        Restaurant restaurant = new Restaurant();
+        restaurant.setId(id);
+        restaurant.setName("Allergy-Friendly Bistro " + id);
+        restaurant.setPostCode("SW1A " + (id % 10) + "AA");
+        restaurant.setBio("A cozy bistro specializing in allergy-conscious dining.");
+        restaurant.setPeanutRating(4.5);
+        restaurant.setEggRating(4.0);
+        restaurant.setDairyRating(3.75);
+        restaurant.setOverallRating(4.08);
+        return restaurant;
+    }
+
+    private static DiningReview review(long id) {
+        DiningReview review = new DiningReview();
+        review.setId(id);
+        review.setAuthor("user" + (1000000 + id));
+        review.setRestaurantId(id % 50 + 1);
+        review.setPeanutScore(id % 5 + 1);
+        review.setEggScore((id + 2) % 5 + 1);
+        review.setDairyScore((id + 4) % 5 + 1);
+        review.setComment("Visit " + id + ": very accommodating for my peanut allergy.");
+        review.setReviewStatus(ReviewStatus.APPROVED);
+        return review;
+    }
+
+    @Benchmark
+    public byte[] encodeRestaurants() {
+        return objectMapper.writeValueAsBytes(restaurants);
+    }
+
+    @Benchmark
+    public List<Restaurant> decodeRestaurants() {
+        return objectMapper.readValue(encodedRestaurants, RESTAURANTS);
+    }
+
+    @Benchmark
+    public byte[] encodeReviews() {
+        return objectMapper.writeValueAsBytes(reviews);
+    }
+
+    @Benchmark
+    public List<DiningReview> decodeReviews() {
+        return objectMapper.readValue(encodedReviews, REVIEWS);
+    }
+}
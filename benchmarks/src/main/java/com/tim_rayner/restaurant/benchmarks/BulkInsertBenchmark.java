@@ -0,0 +1,85 @@
+package com.tim_rayner.restaurant.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.tim_rayner.restaurant.RestaurantApplication;
+import com.tim_rayner.restaurant.entities.DiningReview;
+import com.tim_rayner.restaurant.entities.ReviewStatus;
+import com.tim_rayner.restaurant.repositories.DiningReviewRepository;
+
+/**
+ * Bulk review inserts through saveAll, at JDBC batch size 1 (a statement per row) and at the
+ * configured 50. Throughput should follow the batch size rather than per-statement round trips.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BulkInsertBenchmark {
+
+    private static final int ROWS = 1000;
+
+    @Param({"1", "50"})
+    private int batchSize;
+
+    private ConfigurableApplicationContext context;
+    private DiningReviewRepository diningReviewRepository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(RestaurantApplication.class)
+                .web(WebApplicationType.NONE)
+                .logStartupInfo(false)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:bulk-insert;DB_CLOSE_DELAY=-1",
+                        "spring.main.banner-mode=off",
+                        "logging.level.root=WARN",
+                        "restaurant.reviews.write-behind.enabled=false",
+                        "spring.jpa.properties.hibernate.jdbc.batch_size=" + batchSize)
+                .run();
+        diningReviewRepository = context.getBean(DiningReviewRepository.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public Iterable<DiningReview> saveAll() {
+        List<DiningReview> reviews = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            DiningReview review = new DiningReview();
+            review.setAuthor("johndoe");
+            review.setRestaurantId(1L);
+            review.setPeanutScore((long) (i % 5 + 1));
+            review.setComment("Bulk review " + i);
+            review.setReviewStatus(ReviewStatus.PENDING);
+            reviews.add(review);
+        }
+        return diningReviewRepository.saveAll(reviews);
+    }
+}
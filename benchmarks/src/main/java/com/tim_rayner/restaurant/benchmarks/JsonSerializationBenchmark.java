@@ -0,0 +1,89 @@
+package com.tim_rayner.restaurant.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.tim_rayner.restaurant.entities.DiningReview;
+import com.tim_rayner.restaurant.entities.Restaurant;
+import com.tim_rayner.restaurant.entities.ReviewStatus;
+
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+
+/**
+ * JSON serialization of the entities the API returns: a single restaurant or review,
+ * and a 100-row search result.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonSerializationBenchmark {
+
+    private ObjectMapper objectMapper;
+    private Restaurant restaurant;
+    private DiningReview diningReview;
+    private List<Restaurant> searchResult;
+
+    @Setup
+    public void setUp() {
+        objectMapper = JsonMapper.builder().build();
+
+        restaurant = restaurant(1L);
+        searchResult = new ArrayList<>();
+        for (long id = 1; id <= 100; id++) {
+            searchResult.add(restaurant(id));
+        }
+
+        diningReview = new DiningReview();
+        diningReview.setId(1L);
+        diningReview.setAuthor("johndoe");
+        diningReview.setRestaurantId(1L);
+        diningReview.setPeanutScore(5L);
+        diningReview.setEggScore(4L);
+        diningReview.setComment("Great experience! Very accommodating for my peanut allergy.");
+        diningReview.setReviewStatus(ReviewStatus.APPROVED);
+    }
+
+    private static Restaurant restaurant(long id) {
+        Restaurant restaurant = new Restaurant();
+        restaurant.setId(id);
+        restaurant.setName("The Allergy-Friendly Bistro");
+        restaurant.setPostCode("SW1A 1AA");
+        restaurant.setBio("A cozy bistro specializing in allergy-conscious dining.");
+        restaurant.setPeanutRating(4.5);
+        restaurant.setEggRating(4.0);
+        restaurant.setDairyRating(3.75);
+        restaurant.setOverallRating(4.08);
+        return restaurant;
+    }
+
+    @Benchmark
+    public byte[] restaurant() {
+        return objectMapper.writeValueAsBytes(restaurant);
+    }
+
+    @Benchmark
+    public byte[] diningReview() {
+        return objectMapper.writeValueAsBytes(diningReview);
+    }
+
+    @Benchmark
+    public byte[] searchResult() {
+        return objectMapper.writeValueAsBytes(searchResult);
+    }
+}
@@ -0,0 +1,112 @@
+package com.tim_rayner.restaurant.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.tim_rayner.restaurant.entities.DiningReview;
+import com.tim_rayner.restaurant.entities.Restaurant;
+import com.tim_rayner.restaurant.entities.ReviewStatus;
+import com.tim_rayner.restaurant.services.RatingAggregator;
+import com.tim_rayner.restaurant.services.RatingCalculator;
+
+/**
+ * Rating math over one restaurant's approved reviews, from a handful of reviews up to a million.
+ * Measures the full recompute moderation falls back to, and the running-total path it normally takes,
+ * for both the BigDecimal reference math and the primitive aggregator. Run with {@code -prof gc} to
+ * compare allocation per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RatingBenchmark {
+
+    @Param({"10", "1000", "100000", "1000000"})
+    private int reviewCount;
+
+    private List<DiningReview> reviews;
+    private long peanutSum;
+    private long peanutCount;
+    private Restaurant restaurant;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        reviews = new ArrayList<>(reviewCount);
+        for (int i = 0; i < reviewCount; i++) {
+            DiningReview review = new DiningReview();
+            review.setId((long) i);
+            review.setAuthor("user" + (i % 1000));
+            review.setRestaurantId(1L);
+            // Roughly what reviewers fill in: most rate peanut, fewer rate egg and dairy
+            review.setPeanutScore(random.nextInt(10) < 9 ? (long) random.nextInt(1, 6) : null);
+            review.setEggScore(random.nextInt(10) < 6 ? (long) random.nextInt(1, 6) : null);
+            review.setDairyScore(random.nextInt(10) < 4 ? (long) random.nextInt(1, 6) : null);
+            review.setReviewStatus(ReviewStatus.APPROVED);
+            reviews.add(review);
+        }
+        List<Long> peanutScores = RatingCalculator.collectScores(reviews, "peanut");
+        peanutSum = RatingCalculator.sum(peanutScores);
+        peanutCount = peanutScores.size();
+        restaurant = new Restaurant();
+        RatingAggregator.of(reviews).applyTo(restaurant);
+    }
+
+    @Benchmark
+    public Double fullRecompute() {
+        Double peanut = RatingCalculator.calculateAverage(reviews, "peanut");
+        Double egg = RatingCalculator.calculateAverage(reviews, "egg");
+        Double dairy = RatingCalculator.calculateAverage(reviews, "dairy");
+        return RatingCalculator.calculateOverallAverage(peanut, egg, dairy);
+    }
+
+    @Benchmark
+    public Double aggregatorFullRecompute() {
+        return RatingAggregator.of(reviews).getOverallRating();
+    }
+
+    @Benchmark
+    public Restaurant aggregatorRunningTotalUpdate() {
+        RatingAggregator aggregator = RatingAggregator.fromRunningTotals(restaurant);
+        aggregator.remove(reviews.get(0));
+        aggregator.add(reviews.get(0));
+        aggregator.applyTo(restaurant);
+        return restaurant;
+    }
+
+    @Benchmark
+    public Double singleScoreAverage() {
+        return RatingCalculator.calculateAverage(reviews, "peanut");
+    }
+
+    @Benchmark
+    public Double runningTotalAverage() {
+        return RatingCalculator.calculateAverage(peanutSum, peanutCount);
+    }
+
+    @Benchmark
+    public Double roundToTwoDecimals() {
+        return RatingCalculator.roundToTwoDecimals((double) peanutSum / peanutCount);
+    }
+
+    @Benchmark
+    public double aggregatorRoundToTwoDecimals() {
+        return RatingAggregator.roundToTwoDecimals((double) peanutSum / peanutCount);
+    }
+}
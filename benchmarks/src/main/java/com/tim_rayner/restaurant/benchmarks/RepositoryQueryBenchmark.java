@@ -0,0 +1,128 @@
+package com.tim_rayner.restaurant.benchmarks;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Limit;
+
+import com.tim_rayner.restaurant.RestaurantApplication;
+import com.tim_rayner.restaurant.entities.Allergen;
+import com.tim_rayner.restaurant.entities.DiningReview;
+import com.tim_rayner.restaurant.entities.RestaurantSummary;
+import com.tim_rayner.restaurant.entities.ReviewStatus;
+import com.tim_rayner.restaurant.repositories.DiningReviewRepository;
+import com.tim_rayner.restaurant.repositories.RestaurantRepository;
+import com.tim_rayner.restaurant.repositories.RestaurantSummaryRepository;
+
+/**
+ * Search and moderation queries against an in-memory H2 filled by the {@code generate} profile with the
+ * given number of restaurants. The application context runs without a web server, on the same Flyway
+ * schema and indexes as production.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RepositoryQueryBenchmark {
+
+    private static final int REVIEWS_PER_RESTAURANT = 10;
+    // What a moderation queue list shows before a review is opened
+    private static final List<String> SPARSE_REVIEW_FIELDS = List.of("id", "restaurantId", "author");
+
+    @Param({"1000", "10000"})
+    private int restaurantCount;
+
+    private ConfigurableApplicationContext context;
+    private RestaurantRepository restaurantRepository;
+    private RestaurantSummaryRepository restaurantSummaryRepository;
+    private DiningReviewRepository diningReviewRepository;
+    private long restaurantId;
+    private String postCode;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(RestaurantApplication.class)
+                .web(WebApplicationType.NONE)
+                .logStartupInfo(false)
+                .profiles("generate")
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1",
+                        "spring.main.banner-mode=off",
+                        "logging.level.root=WARN",
+                        "restaurant.reviews.write-behind.enabled=false",
+                        "restaurant.generator.users=" + restaurantCount,
+                        "restaurant.generator.restaurants=" + restaurantCount,
+                        "restaurant.generator.reviews=" + (long) restaurantCount * REVIEWS_PER_RESTAURANT,
+                        "restaurant.generator.post-codes=" + Math.max(10, restaurantCount / 50))
+                .run();
+        restaurantRepository = context.getBean(RestaurantRepository.class);
+        restaurantSummaryRepository = context.getBean(RestaurantSummaryRepository.class);
+        diningReviewRepository = context.getBean(DiningReviewRepository.class);
+
+        // IDs on a fresh database run from 1 without gaps, so this is a restaurant in the middle of the data
+        restaurantId = restaurantCount / 2;
+        postCode = restaurantRepository.findById(restaurantId).orElseThrow().getPostCode();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<RestaurantSummary> searchSingleAllergen() {
+        return restaurantSummaryRepository.searchByAllergens(postCode, EnumSet.of(Allergen.PEANUT));
+    }
+
+    @Benchmark
+    public List<RestaurantSummary> searchAllAllergens() {
+        return restaurantSummaryRepository.searchByAllergens(postCode, Set.of(Allergen.values()));
+    }
+
+    @Benchmark
+    public Object findRestaurantById() {
+        return restaurantRepository.findById(restaurantId);
+    }
+
+    @Benchmark
+    public List<DiningReview> approvedReviewsForRestaurant() {
+        return diningReviewRepository.findByRestaurantIdAndReviewStatus(restaurantId, ReviewStatus.APPROVED);
+    }
+
+    @Benchmark
+    public List<DiningReview> pendingReviews() {
+        return diningReviewRepository.findByReviewStatus(ReviewStatus.PENDING);
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> pendingReviewsSparse() {
+        return diningReviewRepository.findAttributesByReviewStatus(ReviewStatus.PENDING, SPARSE_REVIEW_FIELDS);
+    }
+
+    @Benchmark
+    public List<DiningReview> pendingReviewsPage() {
+        return diningReviewRepository.findByReviewStatusAndIdGreaterThanOrderByIdAsc(
+                ReviewStatus.PENDING, 0L, Limit.of(100));
+    }
+}
@@ -0,0 +1,79 @@
+package com.tim_rayner.restaurant.benchmarks;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.tim_rayner.restaurant.entities.DiningReview;
+import com.tim_rayner.restaurant.entities.ReviewStatus;
+import com.tim_rayner.restaurant.responses.TextSearchHit;
+import com.tim_rayner.restaurant.services.TextSearchIndex;
+
+/**
+ * Full-text search over a growing number of approved review comments. A rare term's cost should
+ * stay flat as comments are added; a common term's grows with how many comments contain it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TextSearchBenchmark {
+
+    private static final String[] COMMON = {"staff", "menu", "food", "kitchen", "service", "great", "dish",
+            "ordered", "allergy", "friendly", "clean", "table", "lunch", "dinner", "options", "free"};
+    private static final String[] RARE = {"sesame", "lupin", "sulphites", "celeriac", "buckwheat", "tahini",
+            "gluten", "coeliac", "mustard", "molluscs"};
+
+    @Param({"10000", "100000", "1000000"})
+    private int commentCount;
+
+    private TextSearchIndex index;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        index = new TextSearchIndex(null, null);
+        StringBuilder comment = new StringBuilder();
+        for (int i = 0; i < commentCount; i++) {
+            comment.setLength(0);
+            int words = random.nextInt(5, 25);
+            for (int w = 0; w < words; w++) {
+                comment.append(COMMON[random.nextInt(COMMON.length)]).append(' ');
+            }
+            // Rare terms appear in a fixed number of comments, however many there are
+            if (i % (commentCount / 100) == 0) {
+                comment.append(RARE[random.nextInt(RARE.length)]);
+            }
+            DiningReview review = new DiningReview();
+            review.setId((long) i);
+            review.setRestaurantId((long) (i % 1000));
+            review.setReviewStatus(ReviewStatus.APPROVED);
+            review.setComment(comment.toString());
+            index.index(review);
+        }
+    }
+
+    @Benchmark
+    public List<TextSearchHit> rareTerm() {
+        return index.search("gluten", 20);
+    }
+
+    @Benchmark
+    public List<TextSearchHit> rareAndCommonTerms() {
+        return index.search("sesame free kitchen", 20);
+    }
+}
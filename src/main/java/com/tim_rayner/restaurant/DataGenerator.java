@@ -0,0 +1,295 @@
+package com.tim_rayner.restaurant;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.tim_rayner.restaurant.entities.DiningReview;
+import com.tim_rayner.restaurant.entities.Restaurant;
+import com.tim_rayner.restaurant.entities.ReviewStatus;
+import com.tim_rayner.restaurant.entities.User;
+import com.tim_rayner.restaurant.repositories.DiningReviewRepository;
+import com.tim_rayner.restaurant.repositories.RestaurantRepository;
+import com.tim_rayner.restaurant.repositories.UserRepository;
+import com.tim_rayner.restaurant.services.PostcodeCentroids;
+import com.tim_rayner.restaurant.services.RatingAggregator;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Fills an empty database with a large synthetic data set for load and capacity testing, in place of
+ * {@link DataLoader}'s handful of rows. Active under the {@code generate} profile and sized by the
+ * {@code restaurant.generator.*} properties; the same seed always produces the same data.
+ * <p>
+ * Users and restaurants are spread over a pool of post codes in the districts of {@link PostcodeCentroids},
+ * with some post codes far busier than others. Each restaurant has an underlying quality per allergen
+ * that its reviews' scores scatter around, and the number of reviews per restaurant has a long tail.
+ * Ratings and running totals are computed from the approved reviews as they are generated, so the
+ * data needs no recompute afterwards.
+ * Rows go in through JDBC batches, one transaction per batch.
+ */
+@Component
+@Profile("generate")
+public class DataGenerator implements CommandLineRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(DataGenerator.class);
+
+    private static final String[][] AREAS = {
+            {"SW", "London", "Greater London"},
+            {"W", "London", "Greater London"},
+            {"WC", "London", "Greater London"},
+            {"EC", "London", "Greater London"},
+            {"E", "London", "Greater London"},
+            {"N", "London", "Greater London"},
+            {"NW", "London", "Greater London"},
+            {"SE", "London", "Greater London"},
+            {"M", "Manchester", "Greater Manchester"},
+            {"B", "Birmingham", "West Midlands"},
+            {"LS", "Leeds", "West Yorkshire"},
+            {"L", "Liverpool", "Merseyside"},
+            {"S", "Sheffield", "South Yorkshire"},
+            {"BS", "Bristol", "Bristol"},
+            {"NE", "Newcastle upon Tyne", "Tyne and Wear"},
+            {"NG", "Nottingham", "Nottinghamshire"},
+            {"CF", "Cardiff", "South Glamorgan"},
+            {"EH", "Edinburgh", "Midlothian"},
+            {"G", "Glasgow", "Lanarkshire"},
+            {"BT", "Belfast", "County Antrim"},
+            {"OX", "Oxford", "Oxfordshire"}};
+    private static final String[] NAME_WORDS = {"Golden", "Olive", "Harbour", "Garden", "Copper", "Saffron",
+            "Willow", "Lantern", "Market", "Corner", "Spice", "River", "Oak", "Salt", "Ember", "Orchard"};
+    private static final String[] NAME_KINDS = {"Kitchen", "Bistro", "Cafe", "Diner", "Grill", "Brasserie",
+            "Canteen", "Tavern", "Eatery", "Noodle Bar", "Trattoria", "Bakery"};
+    private static final String[] COMMENTS = {"Staff knew exactly what was in every dish.",
+            "Separate prep area for allergy orders.", "Menu was clearly labelled.",
+            "Had to ask twice about ingredients.", "Would come back.", "Cross-contamination worries."};
+    private static final String LETTERS = "ABDEFGHJLNPQRSTUWXYZ";
+    private static final long PROGRESS_INTERVAL = 100_000;
+
+    private final UserRepository userRepository;
+    private final RestaurantRepository restaurantRepository;
+    private final DiningReviewRepository diningReviewRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final PostcodeCentroids postcodeCentroids;
+    private final EntityManager entityManager;
+    private final int userCount;
+    private final int restaurantCount;
+    private final long reviewCount;
+    private final int postCodeCount;
+    private final long seed;
+    private final int batchSize;
+
+    public DataGenerator(
+            UserRepository userRepository,
+            RestaurantRepository restaurantRepository,
+            DiningReviewRepository diningReviewRepository,
+            PlatformTransactionManager transactionManager,
+            EntityManager entityManager,
+            PostcodeCentroids postcodeCentroids,
+            @Value("${restaurant.generator.users:1000000}") int userCount,
+            @Value("${restaurant.generator.restaurants:200000}") int restaurantCount,
+            @Value("${restaurant.generator.reviews:5000000}") long reviewCount,
+            @Value("${restaurant.generator.post-codes:5000}") int postCodeCount,
+            @Value("${restaurant.generator.seed:42}") long seed,
+            @Value("${restaurant.generator.batch-size:1000}") int batchSize) {
+        this.userRepository = userRepository;
+        this.restaurantRepository = restaurantRepository;
+        this.diningReviewRepository = diningReviewRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.entityManager = entityManager;
+        this.postcodeCentroids = postcodeCentroids;
+        this.userCount = userCount;
+        this.restaurantCount = restaurantCount;
+        this.reviewCount = reviewCount;
+        this.postCodeCount = postCodeCount;
+        this.seed = seed;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void run(String... args) {
+        // Like DataLoader, only fill an empty database
+        if (userRepository.count() > 0) {
+            log.info("Database already has data; skipping generation");
+            return;
+        }
+
+        long started = System.nanoTime();
+        SplittableRandom random = new SplittableRandom(seed);
+        List<String> postCodes = generatePostCodes(random);
+        generateUsers(random, postCodes);
+        long reviews = generateRestaurantsAndReviews(random, postCodes);
+        log.info("Generated {} users, {} restaurants and {} reviews over {} post codes in {} s",
+                userCount, restaurantCount, reviews, postCodes.size(), (System.nanoTime() - started) / 1_000_000_000);
+    }
+
+    /**
+     * The username of the n-th generated user, so reviews can name an author without a lookup.
+     */
+    static String username(int n) {
+        return String.format("user%07d", n);
+    }
+
+    private List<String> generatePostCodes(SplittableRandom random) {
+        // Districts come from the centroid table, so generated restaurants can be found by proximity search
+        List<String> outcodes = postcodeCentroids.outcodes();
+        Set<String> postCodes = new LinkedHashSet<>();
+        while (postCodes.size() < postCodeCount) {
+            postCodes.add(outcodes.get(random.nextInt(outcodes.size())) + " " + random.nextInt(10)
+                    + LETTERS.charAt(random.nextInt(LETTERS.length()))
+                    + LETTERS.charAt(random.nextInt(LETTERS.length())));
+        }
+        return new ArrayList<>(postCodes);
+    }
+
+    private void generateUsers(SplittableRandom random, List<String> postCodes) {
+        List<User> batch = new ArrayList<>(batchSize);
+        for (int n = 0; n < userCount; n++) {
+            String postCode = pickPostCode(random, postCodes);
+            String[] area = area(postCode);
+
+            User user = new User();
+            user.setUsername(username(n));
+            user.setCity(area[1]);
+            user.setCounty(area[2]);
+            user.setPostCode(postCode);
+            user.setActivePeanutAllergy(random.nextDouble() < 0.10);
+            user.setActiveEggAllergy(random.nextDouble() < 0.05);
+            user.setActiveDairyAllergy(random.nextDouble() < 0.15);
+            batch.add(user);
+
+            if (batch.size() == batchSize || n == userCount - 1) {
+                List<User> users = List.copyOf(batch);
+                transactionTemplate.executeWithoutResult(status -> {
+                    // Generated users would only evict each other from the second-level cache
+                    entityManager.unwrap(Session.class).setCacheMode(CacheMode.IGNORE);
+                    userRepository.saveAll(users);
+                });
+                batch.clear();
+                logProgress("users", n + 1 - users.size(), n + 1);
+            }
+        }
+    }
+
+    private long generateRestaurantsAndReviews(SplittableRandom random, List<String> postCodes) {
+        double meanReviews = restaurantCount == 0 ? 0 : (double) reviewCount / restaurantCount;
+        List<Restaurant> restaurants = new ArrayList<>();
+        List<List<DiningReview>> reviewsByRestaurant = new ArrayList<>();
+        int rows = 0;
+        long reviewsWritten = 0;
+        int written = 0;
+
+        for (int n = 0; n < restaurantCount; n++) {
+            Restaurant restaurant = new Restaurant();
+            restaurant.setName(NAME_WORDS[random.nextInt(NAME_WORDS.length)] + " "
+                    + NAME_KINDS[random.nextInt(NAME_KINDS.length)] + " " + (n + 1));
+            restaurant.setPostCode(pickPostCode(random, postCodes));
+            restaurant.setBio("Generated restaurant " + (n + 1));
+
+            List<DiningReview> reviews = generateReviews(random, meanReviews);
+            RatingAggregator aggregator = new RatingAggregator();
+            for (DiningReview review : reviews) {
+                if (review.getReviewStatus() == ReviewStatus.APPROVED) {
+                    aggregator.add(review);
+                }
+            }
+            aggregator.applyTo(restaurant);
+
+            restaurants.add(restaurant);
+            reviewsByRestaurant.add(reviews);
+            rows += 1 + reviews.size();
+
+            if (rows >= batchSize || n == restaurantCount - 1) {
+                reviewsWritten += writeRestaurants(restaurants, reviewsByRestaurant);
+                restaurants.clear();
+                reviewsByRestaurant.clear();
+                rows = 0;
+                logProgress("restaurants", written, n + 1);
+                written = n + 1;
+            }
+        }
+        return reviewsWritten;
+    }
+
+    private List<DiningReview> generateReviews(SplittableRandom random, double meanReviews) {
+        // Exponentially distributed: most restaurants have a few reviews, a few have very many
+        int count = (int) Math.round(-meanReviews * Math.log(1 - random.nextDouble()));
+        double quality = 1.5 + random.nextDouble() * 3.3;
+        double peanutQuality = quality + random.nextGaussian() * 0.7;
+        double eggQuality = quality + random.nextGaussian() * 0.7;
+        double dairyQuality = quality + random.nextGaussian() * 0.7;
+
+        List<DiningReview> reviews = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            DiningReview review = new DiningReview();
+            review.setAuthor(username(random.nextInt(Math.max(userCount, 1))));
+            // Reviewers only score the allergens they have
+            review.setPeanutScore(random.nextDouble() < 0.6 ? score(random, peanutQuality) : null);
+            review.setEggScore(random.nextDouble() < 0.5 ? score(random, eggQuality) : null);
+            review.setDairyScore(random.nextDouble() < 0.55 ? score(random, dairyQuality) : null);
+            review.setComment(random.nextDouble() < 0.3 ? COMMENTS[random.nextInt(COMMENTS.length)] : null);
+            double status = random.nextDouble();
+            review.setReviewStatus(status < 0.75 ? ReviewStatus.APPROVED
+                    : status < 0.9 ? ReviewStatus.PENDING : ReviewStatus.REJECTED);
+            reviews.add(review);
+        }
+        return reviews;
+    }
+
+    private long writeRestaurants(List<Restaurant> restaurants, List<List<DiningReview>> reviewsByRestaurant) {
+        return transactionTemplate.execute(status -> {
+            // IDs are assigned as the restaurants are saved, before their reviews need them
+            restaurantRepository.saveAll(restaurants);
+            List<DiningReview> reviews = new ArrayList<>();
+            for (int i = 0; i < restaurants.size(); i++) {
+                Long restaurantId = restaurants.get(i).getId();
+                for (DiningReview review : reviewsByRestaurant.get(i)) {
+                    review.setRestaurantId(restaurantId);
+                    reviews.add(review);
+                }
+            }
+            diningReviewRepository.saveAll(reviews);
+            return (long) reviews.size();
+        });
+    }
+
+    private static String pickPostCode(SplittableRandom random, List<String> postCodes) {
+        // Squaring skews the choice towards the start of the list, giving busy and quiet post codes
+        double skewed = random.nextDouble();
+        return postCodes.get((int) (skewed * skewed * postCodes.size()));
+    }
+
+    private static String[] area(String postCode) {
+        String prefix = postCode.substring(0, postCode.length() - postCode.replaceFirst("^[A-Z]+", "").length());
+        for (String[] area : AREAS) {
+            if (area[0].equals(prefix)) {
+                return area;
+            }
+        }
+        return AREAS[0];
+    }
+
+    private static Long score(SplittableRandom random, double quality) {
+        long score = Math.round(quality + random.nextGaussian() * 0.9);
+        return Math.max(1, Math.min(5, score));
+    }
+
+    private static void logProgress(String what, long before, long done) {
+        if (before / PROGRESS_INTERVAL != done / PROGRESS_INTERVAL) {
+            log.info("Generated {} {}", done, what);
+        }
+    }
+}
@@ -1,6 +1,9 @@
 package com.tim_rayner.restaurant;
 
+import java.util.List;
+
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 
 import com.tim_rayner.restaurant.entities.DiningReview;
@@ -12,6 +15,7 @@ import com.tim_rayner.restaurant.repositories.RestaurantRepository;
 import com.tim_rayner.restaurant.repositories.UserRepository;
 
 @Component
+@Profile("!generate")
 public class DataLoader implements CommandLineRunner {
 
     private final UserRepository userRepository;
@@ -29,6 +33,11 @@ public class DataLoader implements CommandLineRunner {
 
     @Override
     public void run(String... args) {
+        // The schema now outlives restarts, so only seed an empty database
+        if (userRepository.count() > 0) {
+            return;
+        }
+
         // Seed Users
         User user1 = new User();
         user1.setUsername("johndoe");
@@ -38,7 +47,6 @@ public class DataLoader implements CommandLineRunner {
         user1.setActivePeanutAllergy(true);
         user1.setActiveEggAllergy(false);
         user1.setActiveDairyAllergy(false);
-        userRepository.save(user1);
 
         User user2 = new User();
         user2.setUsername("janedoe");
@@ -48,7 +56,7 @@ public class DataLoader implements CommandLineRunner {
         user2.setActivePeanutAllergy(false);
         user2.setActiveEggAllergy(true);
         user2.setActiveDairyAllergy(true);
-        userRepository.save(user2);
+        userRepository.saveAll(List.of(user1, user2));
 
         // Seed Restaurants
         Restaurant restaurant1 = new Restaurant();
@@ -59,7 +67,6 @@ public class DataLoader implements CommandLineRunner {
         restaurant1.setEggRating(4.0);
         restaurant1.setDairyRating(3.75);
         restaurant1.setOverallRating(4.08);
-        restaurant1 = restaurantRepository.save(restaurant1);
 
         Restaurant restaurant2 = new Restaurant();
         restaurant2.setName("Safe Eats Cafe");
@@ -68,7 +75,6 @@ public class DataLoader implements CommandLineRunner {
         restaurant2.setPeanutRating(5.0);
         restaurant2.setEggRating(4.25);
         restaurant2.setOverallRating(4.63);
-        restaurant2 = restaurantRepository.save(restaurant2);
 
         Restaurant restaurant3 = new Restaurant();
         restaurant3.setName("Manchester Munch");
@@ -76,7 +82,8 @@ public class DataLoader implements CommandLineRunner {
         restaurant3.setBio("Family-friendly dining in the heart of Manchester.");
         restaurant3.setDairyRating(4.0);
         restaurant3.setOverallRating(4.0);
-        restaurant3 = restaurantRepository.save(restaurant3);
+        // Ids are assigned on save, before the reviews below reference them
+        restaurantRepository.saveAll(List.of(restaurant1, restaurant2, restaurant3));
 
         // Seed Dining Reviews
         DiningReview review1 = new DiningReview();
@@ -86,7 +93,6 @@ public class DataLoader implements CommandLineRunner {
         review1.setEggScore(4L);
         review1.setComment("Great experience! Very accommodating for my peanut allergy.");
         review1.setReviewStatus(ReviewStatus.APPROVED);
-        diningReviewRepository.save(review1);
 
         DiningReview review2 = new DiningReview();
         review2.setAuthor("janedoe");
@@ -96,7 +102,6 @@ public class DataLoader implements CommandLineRunner {
         review2.setDairyScore(4L);
         review2.setComment("Lovely atmosphere and safe food options.");
         review2.setReviewStatus(ReviewStatus.APPROVED);
-        diningReviewRepository.save(review2);
 
         DiningReview review3 = new DiningReview();
         review3.setAuthor("johndoe");
@@ -104,7 +109,7 @@ public class DataLoader implements CommandLineRunner {
         review3.setPeanutScore(5L);
         review3.setComment("Best nut-free place I've ever been to!");
         review3.setReviewStatus(ReviewStatus.PENDING);
-        diningReviewRepository.save(review3);
+        diningReviewRepository.saveAll(List.of(review1, review2, review3));
 
         System.out.println("Database seeded 🌱");
     }
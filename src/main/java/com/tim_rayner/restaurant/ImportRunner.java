@@ -0,0 +1,101 @@
+package com.tim_rayner.restaurant;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import com.tim_rayner.restaurant.responses.ImportRowError;
+import com.tim_rayner.restaurant.responses.ImportSummary;
+import com.tim_rayner.restaurant.services.BulkImporter;
+import com.tim_rayner.restaurant.services.ImportFormat;
+
+/**
+ * Command-line bulk import. Started with {@code --import-restaurants=<file>} and/or
+ * {@code --import-reviews=<file>} (restaurants first), it imports the files, logs rejected rows
+ * and progress, and exits: 0 if every row was imported, 1 if any was rejected, 2 on a bad argument.
+ * The format follows the file extension: .ndjson/.jsonl or .csv.
+ * Add {@code --spring.main.web-application-type=none} to skip starting the web server.
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE)
+public class ImportRunner implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(ImportRunner.class);
+
+    private final BulkImporter bulkImporter;
+    private final ConfigurableApplicationContext context;
+
+    public ImportRunner(BulkImporter bulkImporter, ConfigurableApplicationContext context) {
+        this.bulkImporter = bulkImporter;
+        this.context = context;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        List<String> restaurantFiles = optionValues(args, "import-restaurants");
+        List<String> reviewFiles = optionValues(args, "import-reviews");
+        if (restaurantFiles.isEmpty() && reviewFiles.isEmpty()) {
+            return;
+        }
+
+        int exitCode = 0;
+        for (String file : restaurantFiles) {
+            exitCode = Math.max(exitCode, importFile(file, true));
+        }
+        for (String file : reviewFiles) {
+            exitCode = Math.max(exitCode, importFile(file, false));
+        }
+
+        int status = exitCode;
+        System.exit(SpringApplication.exit(context, () -> status));
+    }
+
+    private int importFile(String file, boolean restaurants) throws IOException {
+        Optional<ImportFormat> format = ImportFormat.fromFileName(file);
+        if (format.isEmpty()) {
+            log.error("Cannot tell the format of {}; expected .ndjson, .jsonl or .csv", file);
+            return 2;
+        }
+
+        log.info("Importing {} from {}", restaurants ? "restaurants" : "reviews", file);
+        ImportSummary summary;
+        try (InputStream in = Files.newInputStream(Path.of(file))) {
+            summary = restaurants
+                    ? bulkImporter.importRestaurants(in, format.get(), new LoggingListener(file))
+                    : bulkImporter.importReviews(in, format.get(), new LoggingListener(file));
+        }
+        return summary.getRejected() == 0 ? 0 : 1;
+    }
+
+    private static List<String> optionValues(ApplicationArguments args, String name) {
+        List<String> values = args.getOptionValues(name);
+        return values == null ? List.of() : values;
+    }
+
+    private record LoggingListener(String file) implements BulkImporter.Listener {
+
+        @Override
+        public void rejected(ImportRowError error) {
+            log.warn("{} line {}: {}", file, error.getLine(), error.getError());
+        }
+
+        @Override
+        public void progress(ImportSummary summary) {
+            log.info("{}: {} rows read, {} imported, {} rejected{}", file, summary.getRowsRead(),
+                    summary.getImported(), summary.getRejected(), summary.isComplete() ? " (done)" : "");
+        }
+    }
+}
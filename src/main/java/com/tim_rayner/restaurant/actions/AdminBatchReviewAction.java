@@ -0,0 +1,12 @@
+package com.tim_rayner.restaurant.actions;
+
+import lombok.Getter;
+import lombok.Setter;
+
+public class AdminBatchReviewAction {
+    @Getter @Setter
+    private Long id;
+
+    @Getter @Setter
+    private Boolean acceptReview;
+}
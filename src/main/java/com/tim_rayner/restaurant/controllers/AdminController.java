@@ -1,159 +1,343 @@
 package com.tim_rayner.restaurant.controllers;
 
-import java.math.BigDecimal;
-import java.math.RoundingMode;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import tools.jackson.databind.ObjectMapper;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.tim_rayner.restaurant.actions.AdminBatchReviewAction;
 import com.tim_rayner.restaurant.actions.AdminReviewAction;
 import com.tim_rayner.restaurant.entities.DiningReview;
-import com.tim_rayner.restaurant.entities.Restaurant;
 import com.tim_rayner.restaurant.entities.ReviewStatus;
+import com.tim_rayner.restaurant.events.ReviewStatusChanged;
 import com.tim_rayner.restaurant.repositories.DiningReviewRepository;
-import com.tim_rayner.restaurant.repositories.RestaurantRepository;
+import com.tim_rayner.restaurant.responses.AdminReviewResult;
+import com.tim_rayner.restaurant.responses.CacheStatistics;
+import com.tim_rayner.restaurant.responses.ReviewPage;
+import com.tim_rayner.restaurant.services.RestaurantCache;
+import com.tim_rayner.restaurant.services.RatingAggregator;
+import com.tim_rayner.restaurant.services.RatingRecomputeScheduler;
+import com.tim_rayner.restaurant.services.RestaurantRatingService;
+import com.tim_rayner.restaurant.services.TextSearchIndex;
+
+import jakarta.servlet.http.HttpServletResponse;
 
 @RestController
 @RequestMapping("/admin")
 public class AdminController {
 
+    private static final int MAX_PAGE_SIZE = 500;
+    private static final int STREAM_FETCH_SIZE = 500;
+
     private final DiningReviewRepository diningReviewRepository;
-    private final RestaurantRepository restaurantRepository;
+    private final RestaurantCache restaurantCache;
+    private final RestaurantRatingService restaurantRatingService;
+    private final RatingRecomputeScheduler ratingRecomputeScheduler;
+    private final TextSearchIndex textSearchIndex;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
 
     public AdminController(
             DiningReviewRepository diningReviewRepository,
-            RestaurantRepository restaurantRepository) {
+            RestaurantCache restaurantCache,
+            RestaurantRatingService restaurantRatingService,
+            RatingRecomputeScheduler ratingRecomputeScheduler,
+            TextSearchIndex textSearchIndex,
+            ApplicationEventPublisher eventPublisher,
+            ObjectMapper objectMapper,
+            PlatformTransactionManager transactionManager) {
         this.diningReviewRepository = diningReviewRepository;
-        this.restaurantRepository = restaurantRepository;
+        this.restaurantCache = restaurantCache;
+        this.restaurantRatingService = restaurantRatingService;
+        this.ratingRecomputeScheduler = ratingRecomputeScheduler;
+        this.textSearchIndex = textSearchIndex;
+        this.eventPublisher = eventPublisher;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
+    /**
+     * Lists the pending reviews. With fields, e.g. fields=id,restaurantId,author, each review has
+     * only those properties and only their columns are read.
+     */
     @GetMapping("/reviews/pending")
-    public ResponseEntity<List<DiningReview>> getPendingReviews() {
-        List<DiningReview> pendingReviews = diningReviewRepository.findByReviewStatus(ReviewStatus.PENDING);
-        return ResponseEntity.ok(pendingReviews);
+    public ResponseEntity<List<?>> getPendingReviews(@RequestParam(required = false) String fields) {
+        if (fields == null) {
+            List<DiningReview> pendingReviews = diningReviewRepository.findByReviewStatus(ReviewStatus.PENDING);
+            return ResponseEntity.ok(pendingReviews);
+        }
+        
+        Optional<List<String>> selected = SparseFieldsets.parse(fields, SparseFieldsets.REVIEW_FIELDS);
+        if (selected.isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(
+                diningReviewRepository.findAttributesByReviewStatus(ReviewStatus.PENDING, selected.get()));
     }
 
+    @GetMapping("/reviews/pending/page")
+    public ResponseEntity<ReviewPage> getPendingReviewPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int size) {
+        
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+        
+        long afterId = 0;
+        if (cursor != null) {
+            try {
+                afterId = Long.parseLong(cursor);
+            } catch (NumberFormatException e) {
+                return ResponseEntity.badRequest().build();
+            }
+        }
+        
+        // Fetch one extra row to find out whether another page follows
+        List<DiningReview> reviews = diningReviewRepository.findByReviewStatusAndIdGreaterThanOrderByIdAsc(
+                ReviewStatus.PENDING, afterId, Limit.of(size + 1));
+        
+        if (reviews.size() <= size) {
+            return ResponseEntity.ok(new ReviewPage(reviews, null));
+        }
+        
+        List<DiningReview> page = reviews.subList(0, size);
+        String next = String.valueOf(page.get(size - 1).getId());
+        return ResponseEntity.ok(new ReviewPage(page, next));
+    }
+
+    @GetMapping(value = "/reviews/pending/stream", produces = NdjsonWriter.MEDIA_TYPE)
+    @Transactional(readOnly = true)
+    public void streamPendingReviews(HttpServletResponse response) throws IOException {
+        response.setContentType(NdjsonWriter.MEDIA_TYPE);
+        try (Stream<DiningReview> reviews = diningReviewRepository
+                .streamByReviewStatus(ReviewStatus.PENDING, STREAM_FETCH_SIZE)) {
+            NdjsonWriter.write(reviews, objectMapper.writer(), response.getOutputStream());
+        }
+    }
+
+    /**
+     * Approves or rejects a review. The review is saved, and its restaurant's ratings updated, before
+     * the response, which is a 200. If the ratings update is still running when the wait runs out, or
+     * failed and is waiting to be retried, the response is a 202 instead: the review is saved, and the
+     * ratings catch up with it later. A 409 means someone else changed the review at the same time and
+     * nothing was saved.
+     */
     @PutMapping("/reviews/{id}")
     public ResponseEntity<DiningReview> processReview(
             @PathVariable Long id,
             @RequestBody AdminReviewAction action) {
         
-        Optional<DiningReview> reviewOptional = diningReviewRepository.findById(id);
+        Map<Long, RatingAggregator> scoreChanges = new HashMap<>();
+        // The review and its score change are saved in one transaction; the ratings follow once it has committed
+        Optional<DiningReview> reviewOptional;
+        try {
+            reviewOptional = transactionTemplate.execute(status -> {
+                Optional<DiningReview> found = diningReviewRepository.findById(id);
+                found.ifPresent(review -> {
+                    ReviewStatus previousStatus = review.getReviewStatus();
+                    moderate(review, action.getAcceptReview(), scoreChanges);
+                    diningReviewRepository.save(review);
+                    restaurantRatingService.recordChanges(scoreChanges);
+                    publishIfChanged(review, previousStatus);
+                });
+                return found;
+            });
+        } catch (OptimisticLockingFailureException e) {
+            // Someone else moderated the review at the same time; nothing was saved
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
         if (reviewOptional.isEmpty()) {
             return ResponseEntity.notFound().build();
         }
         
         DiningReview review = reviewOptional.get();
-        
-        if (Boolean.TRUE.equals(action.getAcceptReview())) {
-            review.setReviewStatus(ReviewStatus.APPROVED);
-            diningReviewRepository.save(review);
-            
-            // Recompute restaurant scores
-            recomputeRestaurantScores(review.getRestaurantId());
-        } else {
-            review.setReviewStatus(ReviewStatus.REJECTED);
-            diningReviewRepository.save(review);
+        textSearchIndex.index(review);
+        if (!scoreChanges.isEmpty()
+                && !ratingRecomputeScheduler.recomputeAndWait(scoreChanges.keySet()).isEmpty()) {
+            return ResponseEntity.accepted().body(review);
         }
         
         return ResponseEntity.ok(review);
     }
 
-    private void recomputeRestaurantScores(Long restaurantId) {
-        Optional<Restaurant> restaurantOptional = restaurantRepository.findById(restaurantId);
-        if (restaurantOptional.isEmpty()) {
-            return;
+    /**
+     * Approves or rejects a batch of reviews in one transaction, with a result per item. An item's
+     * status is 202 rather than 200 when its restaurant's ratings had not caught up with it by the
+     * time the response was sent, as for a single review. If another moderator changes one of the
+     * reviews meanwhile, the reviews are moderated one per transaction instead, and only the changed
+     * ones fail, with a 409.
+     */
+    @PutMapping("/reviews")
+    public ResponseEntity<List<AdminReviewResult>> processReviews(@RequestBody List<AdminBatchReviewAction> actions) {
+        Batch moderated = new Batch();
+        try {
+            transactionTemplate.executeWithoutResult(status -> moderate(actions, moderated));
+        } catch (OptimisticLockingFailureException e) {
+            // Someone else changed one of the reviews meanwhile and the whole batch rolled back;
+            // fall back to one review per transaction so only the conflicting ones fail
+            moderated.clear();
+            for (AdminBatchReviewAction action : actions) {
+                Batch item = new Batch();
+                try {
+                    transactionTemplate.executeWithoutResult(status -> moderate(List.of(action), item));
+                    moderated.addAll(item);
+                } catch (OptimisticLockingFailureException conflict) {
+                    moderated.results.add(new AdminReviewResult(action.getId(), HttpStatus.CONFLICT.value(), null));
+                }
+            }
         }
+        moderated.reviewsById.values().forEach(textSearchIndex::index);
         
-        Restaurant restaurant = restaurantOptional.get();
-        List<DiningReview> approvedReviews = diningReviewRepository
-                .findByRestaurantIdAndReviewStatus(restaurantId, ReviewStatus.APPROVED);
-        
-        if (approvedReviews.isEmpty()) {
-            restaurant.setPeanutRating(null);
-            restaurant.setEggRating(null);
-            restaurant.setDairyRating(null);
-            restaurant.setOverallRating(null);
-            restaurantRepository.save(restaurant);
-            return;
+        // Each affected restaurant is updated once, with the changes of all of its reviews
+        Set<Long> pendingRestaurants = ratingRecomputeScheduler.recomputeAndWait(moderated.scoreChanges.keySet());
+        List<AdminReviewResult> results = moderated.results;
+        if (!pendingRestaurants.isEmpty()) {
+            results.replaceAll(result -> moderated.ratedReviewIds.contains(result.getId())
+                    && pendingRestaurants.contains(moderated.reviewsById.get(result.getId()).getRestaurantId())
+                    ? new AdminReviewResult(result.getId(), HttpStatus.ACCEPTED.value(), result.getReviewStatus())
+                    : result);
         }
         
-        // Calculate averages for each score type
-        Double peanutAvg = calculateAverage(approvedReviews, "peanut");
-        Double eggAvg = calculateAverage(approvedReviews, "egg");
-        Double dairyAvg = calculateAverage(approvedReviews, "dairy");
-        
-        restaurant.setPeanutRating(peanutAvg);
-        restaurant.setEggRating(eggAvg);
-        restaurant.setDairyRating(dairyAvg);
-        
-        // Calculate overall rating as average of available scores
-        Double overallAvg = calculateOverallAverage(peanutAvg, eggAvg, dairyAvg);
-        restaurant.setOverallRating(overallAvg);
-        
-        restaurantRepository.save(restaurant);
+        return ResponseEntity.ok(results);
     }
 
-    private Double calculateAverage(List<DiningReview> reviews, String scoreType) {
-        List<Long> scores = reviews.stream()
-                .map(review -> {
-                    switch (scoreType) {
-                        case "peanut": return review.getPeanutScore();
-                        case "egg": return review.getEggScore();
-                        case "dairy": return review.getDairyScore();
-                        default: return null;
-                    }
-                })
-                .filter(score -> score != null)
+    @GetMapping("/cache/restaurants")
+    public ResponseEntity<CacheStatistics> getRestaurantCacheStatistics() {
+        CacheStats stats = restaurantCache.stats();
+        return ResponseEntity.ok(new CacheStatistics(
+                restaurantCache.size(),
+                stats.hitCount(),
+                stats.missCount(),
+                stats.hitRate(),
+                stats.evictionCount()));
+    }
+
+    /**
+     * Applies each action to its review and saves the reviews and their score changes, adding the
+     * outcome to the batch. Must be called inside a transaction.
+     */
+    private void moderate(List<AdminBatchReviewAction> actions, Batch batch) {
+        List<Long> ids = actions.stream()
+                .map(AdminBatchReviewAction::getId)
+                .filter(Objects::nonNull)
+                .distinct()
                 .toList();
         
-        if (scores.isEmpty()) {
-            return null;
-        }
+        diningReviewRepository.findAllById(ids).forEach(review -> batch.reviewsById.put(review.getId(), review));
+        Map<Long, ReviewStatus> previousStatuses = new HashMap<>();
+        batch.reviewsById.values().forEach(review -> previousStatuses.put(review.getId(), review.getReviewStatus()));
         
-        double average = scores.stream()
-                .mapToLong(Long::longValue)
-                .average()
-                .orElse(0.0);
+        for (AdminBatchReviewAction action : actions) {
+            if (action.getId() == null) {
+                batch.results.add(new AdminReviewResult(null, HttpStatus.BAD_REQUEST.value(), null));
+                continue;
+            }
+            
+            DiningReview review = batch.reviewsById.get(action.getId());
+            if (review == null) {
+                batch.results.add(new AdminReviewResult(action.getId(), HttpStatus.NOT_FOUND.value(), null));
+                continue;
+            }
+            
+            if (moderate(review, action.getAcceptReview(), batch.scoreChanges)) {
+                batch.ratedReviewIds.add(review.getId());
+            }
+            batch.results.add(new AdminReviewResult(review.getId(), HttpStatus.OK.value(), review.getReviewStatus()));
+        }
         
-        return roundToTwoDecimals(average);
+        // Status updates go out as JDBC batches on flush, at commit
+        diningReviewRepository.saveAll(batch.reviewsById.values());
+        restaurantRatingService.recordChanges(batch.scoreChanges);
+        batch.reviewsById.values().forEach(review -> publishIfChanged(review, previousStatuses.get(review.getId())));
     }
 
-    private Double calculateOverallAverage(Double peanut, Double egg, Double dairy) {
-        double sum = 0.0;
-        int count = 0;
-        
-        if (peanut != null) {
-            sum += peanut;
-            count++;
-        }
-        if (egg != null) {
-            sum += egg;
-            count++;
-        }
-        if (dairy != null) {
-            sum += dairy;
-            count++;
+    /**
+     * Tells the read side about a saved status change, so the restaurant's summary is refreshed.
+     */
+    private void publishIfChanged(DiningReview review, ReviewStatus previousStatus) {
+        if (review.getReviewStatus() != previousStatus) {
+            eventPublisher.publishEvent(new ReviewStatusChanged(
+                    review.getId(), review.getRestaurantId(), previousStatus, review.getReviewStatus(), Instant.now()));
         }
+    }
+
+    /**
+     * Applies the admin's decision to the review. A review moving into or out of APPROVED adds or
+     * removes its scores from its restaurant's entry in the score changes, which are recorded with it.
+     *
+     * @return whether the review's scores moved, so its restaurant's ratings change
+     */
+    private boolean moderate(DiningReview review, Boolean acceptReview, Map<Long, RatingAggregator> scoreChanges) {
+        boolean wasApproved = review.getReviewStatus() == ReviewStatus.APPROVED;
         
-        if (count == 0) {
-            return null;
+        if (Boolean.TRUE.equals(acceptReview)) {
+            review.setReviewStatus(ReviewStatus.APPROVED);
+        } else {
+            review.setReviewStatus(ReviewStatus.REJECTED);
         }
         
-        return roundToTwoDecimals(sum / count);
+        boolean approved = review.getReviewStatus() == ReviewStatus.APPROVED;
+        if (approved == wasApproved) {
+            return false;
+        }
+        scoreChanges.computeIfAbsent(review.getRestaurantId(), restaurantId -> new RatingAggregator())
+                .accumulate(review, approved ? 1 : -1);
+        return true;
     }
 
-    private Double roundToTwoDecimals(double value) {
-        return BigDecimal.valueOf(value)
-                .setScale(2, RoundingMode.HALF_UP)
-                .doubleValue();
+    /**
+     * What a batch moderation did: the result of each action, the reviews it saved, their score
+     * changes by restaurant, and which reviews' scores moved.
+     */
+    private static final class Batch {
+
+        private final List<AdminReviewResult> results = new ArrayList<>();
+        private final Map<Long, DiningReview> reviewsById = new HashMap<>();
+        private final Map<Long, RatingAggregator> scoreChanges = new LinkedHashMap<>();
+        private final Set<Long> ratedReviewIds = new HashSet<>();
+
+        void addAll(Batch other) {
+            results.addAll(other.results);
+            reviewsById.putAll(other.reviewsById);
+            other.scoreChanges.forEach((restaurantId, changes) -> scoreChanges
+                    .computeIfAbsent(restaurantId, id -> new RatingAggregator()).addAll(changes));
+            ratedReviewIds.addAll(other.ratedReviewIds);
+        }
+
+        void clear() {
+            results.clear();
+            reviewsById.clear();
+            scoreChanges.clear();
+            ratedReviewIds.clear();
+        }
     }
 }
-
@@ -0,0 +1,88 @@
+package com.tim_rayner.restaurant.controllers;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.WebRequest;
+
+/**
+ * Conditional GET support for versioned entities. The entity's version is its strong ETag and
+ * its last write time is its Last-Modified date.
+ * <p>
+ * An entity can also be answered in a binary format, which is a different representation, so its
+ * ETag carries the format as a suffix (JSON ETags are the bare version). Which format is answered
+ * is only known once Spring has negotiated it, so handlers just record the validators here and
+ * {@link NegotiatedResponseAdvice} sets the headers and checks If-None-Match / If-Modified-Since
+ * against the representation actually chosen.
+ */
+final class ConditionalRequests {
+
+    private static final String VALIDATORS_ATTRIBUTE = ConditionalRequests.class.getName() + ".validators";
+
+    private static final Map<MediaType, String> BINARY_SUFFIXES = Map.of(
+            MediaType.APPLICATION_CBOR, "-cbor",
+            new MediaType("application", "x-jackson-smile"), "-smile");
+
+    private ConditionalRequests() {
+    }
+
+    /**
+     * Whether the client sent a validator (If-None-Match or If-Modified-Since) to check its copy against.
+     */
+    static boolean hasValidators(WebRequest request) {
+        return request.getHeader(HttpHeaders.IF_NONE_MATCH) != null
+                || request.getHeader(HttpHeaders.IF_MODIFIED_SINCE) != null;
+    }
+
+    /**
+     * Makes the response conditional on the entity's version and last write time. If the client's
+     * copy of the negotiated representation is current, the response becomes a 304 and the body the
+     * handler returns is never serialized.
+     */
+    static void validate(WebRequest request, Long version, Instant lastModified) {
+        request.setAttribute(VALIDATORS_ATTRIBUTE, new Validators(version, lastModified, null),
+                RequestAttributes.SCOPE_REQUEST);
+    }
+
+    /**
+     * A conditional response whose body is only loaded if the client's copy turns out to be stale,
+     * so a 304 costs nothing beyond finding the version. The response is a 404 if the body has
+     * gone by then.
+     */
+    static <T> ResponseEntity<T> deferred(
+            WebRequest request, Long version, Instant lastModified, Supplier<Optional<T>> body) {
+        request.setAttribute(VALIDATORS_ATTRIBUTE, new Validators(version, lastModified, body),
+                RequestAttributes.SCOPE_REQUEST);
+        return ResponseEntity.ok().build();
+    }
+
+    /**
+     * The validators recorded for the request, if any.
+     */
+    static Validators validators(RequestAttributes request) {
+        return (Validators) request.getAttribute(VALIDATORS_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+    }
+
+    /**
+     * The ETag of the given representation of the entity.
+     */
+    static String etag(Long version, MediaType contentType) {
+        String suffix = contentType == null
+                ? ""
+                : BINARY_SUFFIXES.getOrDefault(new MediaType(contentType.getType(), contentType.getSubtype()), "");
+        return version + suffix;
+    }
+
+    /**
+     * An entity's version and last write time, either of which may be missing on rows written before
+     * they were tracked, and the loader of a deferred body (null if the handler returned the body itself).
+     */
+    record Validators(Long version, Instant lastModified, Supplier<? extends Optional<?>> body) {
+    }
+}
@@ -1,37 +1,64 @@
 package com.tim_rayner.restaurant.controllers;
 
+import java.io.IOException;
+import java.net.URI;
 import java.util.Optional;
+import java.util.stream.Stream;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+
+import tools.jackson.databind.ObjectMapper;
 
 import com.tim_rayner.restaurant.entities.DiningReview;
 import com.tim_rayner.restaurant.entities.ReviewStatus;
 import com.tim_rayner.restaurant.repositories.DiningReviewRepository;
 import com.tim_rayner.restaurant.repositories.RestaurantRepository;
-import com.tim_rayner.restaurant.repositories.UserRepository;
+import com.tim_rayner.restaurant.repositories.RowVersion;
+import com.tim_rayner.restaurant.responses.SubmissionStatus;
+import com.tim_rayner.restaurant.services.RestaurantCache;
+import com.tim_rayner.restaurant.services.ReviewSubmissionQueue;
+import com.tim_rayner.restaurant.services.UsernameRegistry;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 
 @RestController
 @RequestMapping("/reviews")
 public class DiningReviewController {
 
+    private static final int EXPORT_FETCH_SIZE = 1000;
+
     private final DiningReviewRepository diningReviewRepository;
     private final RestaurantRepository restaurantRepository;
-    private final UserRepository userRepository;
+    private final UsernameRegistry usernameRegistry;
+    private final RestaurantCache restaurantCache;
+    private final ReviewSubmissionQueue reviewSubmissionQueue;
+    private final ObjectMapper objectMapper;
 
     public DiningReviewController(
             DiningReviewRepository diningReviewRepository,
             RestaurantRepository restaurantRepository,
-            UserRepository userRepository) {
+            UsernameRegistry usernameRegistry,
+            RestaurantCache restaurantCache,
+            ReviewSubmissionQueue reviewSubmissionQueue,
+            ObjectMapper objectMapper) {
         this.diningReviewRepository = diningReviewRepository;
         this.restaurantRepository = restaurantRepository;
-        this.userRepository = userRepository;
+        this.usernameRegistry = usernameRegistry;
+        this.restaurantCache = restaurantCache;
+        this.reviewSubmissionQueue = reviewSubmissionQueue;
+        this.objectMapper = objectMapper;
     }
 
     @PostMapping
@@ -42,7 +69,7 @@ public class DiningReviewController {
         }
         
         // Validate that the user exists by their display name (author)
-        if (!userRepository.existsByUsername(review.getAuthor())) {
+        if (!usernameRegistry.exists(review.getAuthor())) {
             return ResponseEntity.notFound().build();
         }
         
@@ -53,10 +80,84 @@ public class DiningReviewController {
         return ResponseEntity.status(HttpStatus.CREATED).body(savedReview);
     }
 
+    /**
+     * Asynchronous variant of {@link #submitReview}: the review is validated, queued and
+     * written in a batch shortly afterwards. Poll the returned Location for the review ID.
+     */
+    @PostMapping("/submissions")
+    public ResponseEntity<SubmissionStatus> queueReview(@RequestBody DiningReview review) {
+        if (review.getRestaurantId() == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        
+        // Both checks are normally answered from memory
+        if (restaurantCache.findById(review.getRestaurantId()).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (!usernameRegistry.exists(review.getAuthor())) {
+            return ResponseEntity.notFound().build();
+        }
+        
+        review.setId(null);
+        review.setReviewStatus(ReviewStatus.PENDING);
+        
+        Optional<String> trackingId = reviewSubmissionQueue.submit(review);
+        if (trackingId.isEmpty()) {
+            // Queue full or write-behind switched off; tell the client to back off
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .build();
+        }
+        
+        return ResponseEntity.accepted()
+                .location(URI.create("/reviews/submissions/" + trackingId.get()))
+                .body(new SubmissionStatus(trackingId.get(), SubmissionStatus.State.QUEUED, null));
+    }
+
+    @GetMapping("/submissions/{trackingId}")
+    public ResponseEntity<SubmissionStatus> getSubmission(@PathVariable String trackingId) {
+        return reviewSubmissionQueue.status(trackingId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Streams dining reviews as NDJSON in ID order, gzipped if the client accepts it.
+     * Filters are optional and combine: a restaurant, a status, and an inclusive ID range.
+     */
+    @GetMapping(value = "/export", produces = NdjsonWriter.MEDIA_TYPE)
+    @Transactional(readOnly = true)
+    public void exportReviews(
+            @RequestParam(required = false) Long restaurantId,
+            @RequestParam(required = false) ReviewStatus status,
+            @RequestParam(required = false) Long fromId,
+            @RequestParam(required = false) Long toId,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        try (Stream<DiningReview> reviews = diningReviewRepository
+                .streamForExport(restaurantId, status, fromId, toId, EXPORT_FETCH_SIZE)) {
+            NdjsonWriter.respond(reviews, objectMapper.writer(), request, response);
+        }
+    }
+
     @GetMapping("/{id}")
-    public ResponseEntity<DiningReview> getReview(@PathVariable Long id) {
-        Optional<DiningReview> review = diningReviewRepository.findById(id);
-        return review.map(ResponseEntity::ok)
-                     .orElse(ResponseEntity.notFound().build());
+    public ResponseEntity<DiningReview> getReview(@PathVariable Long id, WebRequest request) {
+        if (!ConditionalRequests.hasValidators(request)) {
+            // Nothing to compare against, so the review is needed anyway: one query
+            Optional<DiningReview> review = diningReviewRepository.findById(id);
+            if (review.isEmpty()) {
+                return ResponseEntity.notFound().build();
+            }
+            ConditionalRequests.validate(request, review.get().getVersion(), review.get().getLastModified());
+            return ResponseEntity.ok(review.get());
+        }
+        
+        // Check the client's copy against the version alone; the review is only loaded if it is stale
+        Optional<RowVersion> version = diningReviewRepository.findVersionById(id);
+        if (version.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ConditionalRequests.deferred(request, version.get().version(), version.get().lastModified(),
+                () -> diningReviewRepository.findById(id));
     }
 }
@@ -0,0 +1,113 @@
+package com.tim_rayner.restaurant.controllers;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Optional;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.ObjectWriter;
+
+import com.tim_rayner.restaurant.responses.ImportRowError;
+import com.tim_rayner.restaurant.responses.ImportSummary;
+import com.tim_rayner.restaurant.services.BulkImporter;
+import com.tim_rayner.restaurant.services.ImportFormat;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Bulk import of restaurants and reviews. The request body is an NDJSON ({@code application/x-ndjson})
+ * or CSV ({@code text/csv}) file, read as it arrives. The response streams back NDJSON: an error line
+ * for every rejected row, a summary after every batch, and a final summary with {@code complete: true}.
+ */
+@RestController
+@RequestMapping("/admin/import")
+public class ImportController {
+
+    private final BulkImporter bulkImporter;
+    private final ObjectMapper objectMapper;
+
+    public ImportController(BulkImporter bulkImporter, ObjectMapper objectMapper) {
+        this.bulkImporter = bulkImporter;
+        this.objectMapper = objectMapper;
+    }
+
+    @PostMapping(value = "/restaurants", produces = NdjsonWriter.MEDIA_TYPE)
+    public void importRestaurants(
+            @RequestHeader(value = HttpHeaders.CONTENT_TYPE, required = false) String contentType,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        Optional<ImportFormat> format = format(contentType);
+        if (format.isEmpty()) {
+            response.setStatus(HttpStatus.UNSUPPORTED_MEDIA_TYPE.value());
+            return;
+        }
+        
+        response.setContentType(NdjsonWriter.MEDIA_TYPE);
+        bulkImporter.importRestaurants(request.getInputStream(), format.get(), listener(response.getOutputStream()));
+    }
+
+    @PostMapping(value = "/reviews", produces = NdjsonWriter.MEDIA_TYPE)
+    public void importReviews(
+            @RequestHeader(value = HttpHeaders.CONTENT_TYPE, required = false) String contentType,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        Optional<ImportFormat> format = format(contentType);
+        if (format.isEmpty()) {
+            response.setStatus(HttpStatus.UNSUPPORTED_MEDIA_TYPE.value());
+            return;
+        }
+        
+        response.setContentType(NdjsonWriter.MEDIA_TYPE);
+        bulkImporter.importReviews(request.getInputStream(), format.get(), listener(response.getOutputStream()));
+    }
+
+    private static Optional<ImportFormat> format(String contentType) {
+        if (contentType == null) {
+            return Optional.empty();
+        }
+        try {
+            MediaType mediaType = MediaType.parseMediaType(contentType);
+            return ImportFormat.fromMediaType(mediaType.getType() + "/" + mediaType.getSubtype());
+        } catch (InvalidMediaTypeException e) {
+            return Optional.empty();
+        }
+    }
+
+    private BulkImporter.Listener listener(OutputStream out) {
+        ObjectWriter writer = objectMapper.writer();
+        return new BulkImporter.Listener() {
+            @Override
+            public void rejected(ImportRowError error) {
+                write(error, false);
+            }
+
+            @Override
+            public void progress(ImportSummary summary) {
+                // Flushed so the client sees progress while the upload is still being read
+                write(summary, true);
+            }
+
+            private void write(Object row, boolean flush) {
+                try {
+                    NdjsonWriter.writeRow(row, writer, out);
+                    if (flush) {
+                        out.flush();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+    }
+}
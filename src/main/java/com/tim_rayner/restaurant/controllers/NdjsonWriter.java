@@ -0,0 +1,77 @@
+package com.tim_rayner.restaurant.controllers;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.http.HttpHeaders;
+
+import tools.jackson.databind.ObjectWriter;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Writes a stream of values as newline-delimited JSON, one row at a time,
+ * so a response never holds more than the row being serialized.
+ */
+final class NdjsonWriter {
+
+    static final String MEDIA_TYPE = "application/x-ndjson";
+
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+
+    private NdjsonWriter() {
+    }
+
+    static long write(Stream<?> rows, ObjectWriter writer, OutputStream out) throws IOException {
+        long count = 0;
+        Iterator<?> iterator = rows.iterator();
+        while (iterator.hasNext()) {
+            writeRow(iterator.next(), writer, out);
+            count++;
+        }
+        out.flush();
+        return count;
+    }
+
+    static void writeRow(Object row, ObjectWriter writer, OutputStream out) throws IOException {
+        out.write(writer.writeValueAsBytes(row));
+        out.write('\n');
+    }
+
+    /**
+     * Streams the rows as the NDJSON response body, gzipped when the client sends
+     * {@code Accept-Encoding: gzip}.
+     */
+    static long respond(Stream<?> rows, ObjectWriter writer, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        response.setContentType(MEDIA_TYPE);
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (!acceptsGzip(request)) {
+            return write(rows, writer, response.getOutputStream());
+        }
+        
+        response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        try (GZIPOutputStream out = new GZIPOutputStream(response.getOutputStream(), GZIP_BUFFER_SIZE)) {
+            return write(rows, writer, out);
+        }
+    }
+
+    private static boolean acceptsGzip(HttpServletRequest request) {
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                // gzip;q=0 means the client refuses it
+                return parts.length == 1 || !parts[1].trim().matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+}
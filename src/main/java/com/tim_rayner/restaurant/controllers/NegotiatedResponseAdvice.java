@@ -0,0 +1,65 @@
+package com.tim_rayner.restaurant.controllers;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Runs once Spring has chosen the format of a response body from the request's Accept header.
+ * Every such response varies on Accept, so shared caches keep the formats apart. A response made
+ * conditional through {@link ConditionalRequests} gets the ETag of the chosen representation, and
+ * is turned into a 304 here, before anything is serialized, if the client's copy is current.
+ */
+@ControllerAdvice
+class NegotiatedResponseAdvice implements ResponseBodyAdvice<Object> {
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(
+            Object body,
+            MethodParameter returnType,
+            MediaType selectedContentType,
+            Class<? extends HttpMessageConverter<?>> selectedConverterType,
+            ServerHttpRequest request,
+            ServerHttpResponse response) {
+        response.getHeaders().add(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        if (!(request instanceof ServletServerHttpRequest servletRequest)
+                || !(response instanceof ServletServerHttpResponse servletResponse)) {
+            return body;
+        }
+
+        ServletWebRequest webRequest =
+                new ServletWebRequest(servletRequest.getServletRequest(), servletResponse.getServletResponse());
+        ConditionalRequests.Validators validators = ConditionalRequests.validators(webRequest);
+        if (validators == null) {
+            return body;
+        }
+        if (validators.version() != null && validators.lastModified() != null
+                && webRequest.checkNotModified(ConditionalRequests.etag(validators.version(), selectedContentType),
+                        validators.lastModified().toEpochMilli())) {
+            return null;
+        }
+        if (validators.body() == null) {
+            return body;
+        }
+
+        Object loaded = validators.body().get().orElse(null);
+        if (loaded == null) {
+            response.setStatusCode(HttpStatus.NOT_FOUND);
+        }
+        return loaded;
+    }
+}
@@ -1,10 +1,19 @@
 package com.tim_rayner.restaurant.controllers;
 
+import java.io.IOException;
+import java.time.Instant;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ProblemDetail;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -12,51 +21,171 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
+import tools.jackson.databind.ObjectMapper;
+
+import com.tim_rayner.restaurant.entities.Allergen;
 import com.tim_rayner.restaurant.entities.Restaurant;
+import com.tim_rayner.restaurant.entities.RestaurantSummary;
+import com.tim_rayner.restaurant.events.RestaurantChanged;
 import com.tim_rayner.restaurant.repositories.RestaurantRepository;
+import com.tim_rayner.restaurant.repositories.RestaurantSummaryRepository;
+import com.tim_rayner.restaurant.responses.NearbyRestaurant;
+import com.tim_rayner.restaurant.services.AllergyLeaderboard;
+import com.tim_rayner.restaurant.services.GeoPoint;
+import com.tim_rayner.restaurant.services.NearbyRestaurantIndex;
+import com.tim_rayner.restaurant.services.PostcodeCentroids;
+import com.tim_rayner.restaurant.services.RestaurantCache;
+import com.tim_rayner.restaurant.services.TextSearchIndex;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 
 @RestController
 @RequestMapping("/restaurants")
 public class RestaurantController {
 
+    private static final int EXPORT_FETCH_SIZE = 1000;
+
     private final RestaurantRepository restaurantRepository;
+    private final RestaurantSummaryRepository restaurantSummaryRepository;
+    private final RestaurantCache restaurantCache;
+    private final AllergyLeaderboard allergyLeaderboard;
+    private final NearbyRestaurantIndex nearbyRestaurantIndex;
+    private final PostcodeCentroids postcodeCentroids;
+    private final TextSearchIndex textSearchIndex;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
 
-    public RestaurantController(RestaurantRepository restaurantRepository) {
+    public RestaurantController(
+            RestaurantRepository restaurantRepository,
+            RestaurantSummaryRepository restaurantSummaryRepository,
+            RestaurantCache restaurantCache,
+            AllergyLeaderboard allergyLeaderboard,
+            NearbyRestaurantIndex nearbyRestaurantIndex,
+            PostcodeCentroids postcodeCentroids,
+            TextSearchIndex textSearchIndex,
+            ApplicationEventPublisher eventPublisher,
+            ObjectMapper objectMapper) {
         this.restaurantRepository = restaurantRepository;
+        this.restaurantSummaryRepository = restaurantSummaryRepository;
+        this.restaurantCache = restaurantCache;
+        this.allergyLeaderboard = allergyLeaderboard;
+        this.nearbyRestaurantIndex = nearbyRestaurantIndex;
+        this.postcodeCentroids = postcodeCentroids;
+        this.textSearchIndex = textSearchIndex;
+        this.eventPublisher = eventPublisher;
+        this.objectMapper = objectMapper;
     }
 
     @PostMapping
     public ResponseEntity<Restaurant> createRestaurant(@RequestBody Restaurant restaurant) {
         Restaurant savedRestaurant = restaurantRepository.save(restaurant);
+        // Searches pick the restaurant up once its summary has been projected
+        eventPublisher.publishEvent(new RestaurantChanged(savedRestaurant.getId(), Instant.now()));
+        textSearchIndex.index(savedRestaurant);
         return ResponseEntity.status(HttpStatus.CREATED).body(savedRestaurant);
     }
 
+    /**
+     * Streams every restaurant as NDJSON in ID order, gzipped if the client accepts it.
+     */
+    @GetMapping(value = "/export", produces = NdjsonWriter.MEDIA_TYPE)
+    @Transactional(readOnly = true)
+    public void exportRestaurants(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        try (Stream<Restaurant> restaurants = restaurantRepository.streamAll(EXPORT_FETCH_SIZE)) {
+            NdjsonWriter.respond(restaurants, objectMapper.writer(), request, response);
+        }
+    }
+
     @GetMapping("/{id}")
-    public ResponseEntity<Restaurant> getRestaurant(@PathVariable Long id) {
-        Optional<Restaurant> restaurant = restaurantRepository.findById(id);
-        return restaurant.map(ResponseEntity::ok)
-                         .orElse(ResponseEntity.notFound().build());
+    public ResponseEntity<Restaurant> getRestaurant(@PathVariable Long id, WebRequest request) {
+        Optional<Restaurant> restaurant = restaurantCache.findById(id);
+        if (restaurant.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        
+        // Usually answered from the cache, so a 304 costs neither a query nor serialization
+        ConditionalRequests.validate(request, restaurant.get().getVersion(), restaurant.get().getLastModified());
+        return ResponseEntity.ok(restaurant.get());
     }
 
+    /**
+     * Finds the restaurants in a post code rated for every given allergy, best rated first.
+     * Answers with summaries from the read model, which may briefly lag the latest moderation.
+     * With fields, e.g. fields=id,name,peanutRating, each summary has only those properties.
+     */
     @GetMapping("/search")
-    public ResponseEntity<List<Restaurant>> searchRestaurants(
+    public ResponseEntity<List<?>> searchRestaurants(
             @RequestParam String zipcode,
-            @RequestParam String allergy) {
-        
-        List<Restaurant> restaurants;
+            @RequestParam Set<String> allergy,
+            @RequestParam(required = false) String fields) {
         
-        restaurants = switch (allergy.toLowerCase()) {
-            case "peanut" -> restaurantRepository.findByPostCodeAndPeanutRatingNotNullOrderByPeanutRatingDesc(zipcode);
-            case "egg" -> restaurantRepository.findByPostCodeAndEggRatingNotNullOrderByEggRatingDesc(zipcode);
-            case "dairy" -> restaurantRepository.findByPostCodeAndDairyRatingNotNullOrderByDairyRatingDesc(zipcode);
-            default -> null;
-        };
-        
-        if (restaurants == null) {
+        Optional<Set<Allergen>> allergens = parseAllergens(allergy);
+        Optional<List<String>> selected = fields == null
+                ? Optional.of(List.of())
+                : SparseFieldsets.parse(fields, SparseFieldsets.RESTAURANT_SUMMARY_FIELDS);
+        if (allergens.isEmpty() || selected.isEmpty()) {
             return ResponseEntity.badRequest().build();
         }
         
+        // Served from memory once the leaderboard is built; the query is only needed during startup
+        List<RestaurantSummary> restaurants = allergyLeaderboard.isLoaded()
+                ? allergyLeaderboard.search(zipcode, allergens.get())
+                : restaurantSummaryRepository.searchByAllergens(zipcode, allergens.get());
+        if (fields != null) {
+            // Summaries are small and already in memory, so they are trimmed rather than re-queried
+            return ResponseEntity.ok(SparseFieldsets.select(restaurants, selected.get(), objectMapper));
+        }
         return ResponseEntity.ok(restaurants);
     }
+
+    /**
+     * Finds restaurants within radiusKm of a postcode that are rated for every given allergy, best
+     * rated first and nearest first among equals. Distances are between postcode district centroids.
+     * The centroid table only covers some districts, so a postcode outside it is a 400 whose problem
+     * detail names the district.
+     */
+    @GetMapping("/nearby")
+    public ResponseEntity<?> searchNearbyRestaurants(
+            @RequestParam String postcode,
+            @RequestParam(defaultValue = "5") double radiusKm,
+            @RequestParam Set<String> allergy,
+            @RequestParam(defaultValue = "20") int limit) {
+
+        Optional<Set<Allergen>> allergens = parseAllergens(allergy);
+        Optional<GeoPoint> origin = postcodeCentroids.locate(postcode);
+        if (allergens.isEmpty() || limit < 1
+                || !(radiusKm > 0 && radiusKm <= nearbyRestaurantIndex.getMaxRadiusKm())) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (origin.isEmpty()) {
+            ProblemDetail problem = ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST,
+                    "No location is known for postcode district " + PostcodeCentroids.outcode(postcode)
+                            + "; proximity search only covers the districts in the centroid table");
+            return ResponseEntity.badRequest().contentType(MediaType.APPLICATION_PROBLEM_JSON).body(problem);
+        }
+
+        // The database holds no positions, so there is nothing to fall back on until the index is built
+        if (!allergyLeaderboard.isLoaded()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok(nearbyRestaurantIndex.search(origin.get(), radiusKm, allergens.get(), limit));
+    }
+
+    /**
+     * Accepts one or more allergies, e.g. allergy=peanut,dairy. Empty if any name is unknown or none is given.
+     */
+    private static Optional<Set<Allergen>> parseAllergens(Set<String> names) {
+        Set<Allergen> allergens = EnumSet.noneOf(Allergen.class);
+        for (String name : names) {
+            Optional<Allergen> allergen = Allergen.fromName(name);
+            if (allergen.isEmpty()) {
+                return Optional.empty();
+            }
+            allergens.add(allergen.get());
+        }
+        return allergens.isEmpty() ? Optional.empty() : Optional.of(allergens);
+    }
 }
@@ -0,0 +1,44 @@
+package com.tim_rayner.restaurant.controllers;
+
+import java.util.List;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.tim_rayner.restaurant.responses.TextSearchHit;
+import com.tim_rayner.restaurant.services.TextSearchIndex;
+
+@RestController
+@RequestMapping("/search")
+public class SearchController {
+
+    private static final int MAX_LIMIT = 100;
+
+    private final TextSearchIndex textSearchIndex;
+
+    public SearchController(TextSearchIndex textSearchIndex) {
+        this.textSearchIndex = textSearchIndex;
+    }
+
+    /**
+     * Full-text search over restaurant bios and approved review comments, e.g. q=nut-free kitchen.
+     */
+    @GetMapping
+    public ResponseEntity<List<TextSearchHit>> search(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "20") int limit) {
+        
+        if (q.isBlank() || limit < 1 || limit > MAX_LIMIT) {
+            return ResponseEntity.badRequest().build();
+        }
+        
+        if (!textSearchIndex.isLoaded()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok(textSearchIndex.search(q, limit));
+    }
+}
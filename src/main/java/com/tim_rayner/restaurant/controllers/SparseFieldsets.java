@@ -0,0 +1,67 @@
+package com.tim_rayner.restaurant.controllers;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+
+import tools.jackson.core.type.TypeReference;
+import tools.jackson.databind.ObjectMapper;
+
+/**
+ * Sparse fieldsets for list endpoints: {@code fields=id,name,peanutRating} answers each item with
+ * only those properties. Names are the JSON property names, which are also the entity attribute
+ * names, so a repository can select just those columns. Properties come back in alphabetical
+ * order, as they do in the full items.
+ */
+final class SparseFieldsets {
+
+    static final Set<String> REVIEW_FIELDS = Set.of(
+            "id", "author", "restaurantId", "peanutScore", "eggScore", "dairyScore", "comment", "reviewStatus");
+
+    static final Set<String> RESTAURANT_SUMMARY_FIELDS = Set.of(
+            "id", "name", "postCode", "overallRating", "peanutRating", "eggRating", "dairyRating",
+            "reviewCount", "peanutReviewCount", "eggReviewCount", "dairyReviewCount");
+
+    private static final TypeReference<Map<String, Object>> PROPERTIES = new TypeReference<>() {
+    };
+
+    private SparseFieldsets() {
+    }
+
+    /**
+     * Parses a comma-separated fields parameter. Empty if it names no field or one outside allowed.
+     */
+    static Optional<List<String>> parse(String fields, Set<String> allowed) {
+        Set<String> names = new TreeSet<>();
+        for (String name : fields.split(",")) {
+            String trimmed = name.trim();
+            if (!allowed.contains(trimmed)) {
+                return Optional.empty();
+            }
+            names.add(trimmed);
+        }
+        return Optional.of(List.copyOf(names));
+    }
+
+    /**
+     * Cuts already loaded items down to the given fields, leaving out nulls as the full items do.
+     */
+    static List<Map<String, Object>> select(List<?> items, List<String> fields, ObjectMapper objectMapper) {
+        List<Map<String, Object>> selected = new ArrayList<>(items.size());
+        for (Object item : items) {
+            Map<String, Object> properties = objectMapper.convertValue(item, PROPERTIES);
+            Map<String, Object> kept = new LinkedHashMap<>();
+            for (String field : fields) {
+                if (properties.get(field) != null) {
+                    kept.put(field, properties.get(field));
+                }
+            }
+            selected.add(kept);
+        }
+        return selected;
+    }
+}
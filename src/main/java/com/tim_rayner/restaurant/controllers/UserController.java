@@ -1,7 +1,11 @@
 package com.tim_rayner.restaurant.controllers;
 
+import java.util.EnumSet;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -10,37 +14,101 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.tim_rayner.restaurant.entities.Allergen;
 import com.tim_rayner.restaurant.entities.User;
 import com.tim_rayner.restaurant.repositories.UserRepository;
+import com.tim_rayner.restaurant.responses.Recommendation;
+import com.tim_rayner.restaurant.services.AllergyLeaderboard;
+import com.tim_rayner.restaurant.services.GeoPoint;
+import com.tim_rayner.restaurant.services.NearbyRestaurantIndex;
+import com.tim_rayner.restaurant.services.PostcodeCentroids;
+import com.tim_rayner.restaurant.services.UsernameRegistry;
 
 @RestController
 @RequestMapping("/users")
 public class UserController {
 
     private final UserRepository userRepository;
+    private final UsernameRegistry usernameRegistry;
+    private final AllergyLeaderboard allergyLeaderboard;
+    private final NearbyRestaurantIndex nearbyRestaurantIndex;
+    private final PostcodeCentroids postcodeCentroids;
 
-    public UserController(UserRepository userRepository) {
+    public UserController(
+            UserRepository userRepository,
+            UsernameRegistry usernameRegistry,
+            AllergyLeaderboard allergyLeaderboard,
+            NearbyRestaurantIndex nearbyRestaurantIndex,
+            PostcodeCentroids postcodeCentroids) {
         this.userRepository = userRepository;
+        this.usernameRegistry = usernameRegistry;
+        this.allergyLeaderboard = allergyLeaderboard;
+        this.nearbyRestaurantIndex = nearbyRestaurantIndex;
+        this.postcodeCentroids = postcodeCentroids;
     }
 
     @PostMapping
     public ResponseEntity<User> createUser(@RequestBody User user) {
-        if (userRepository.existsByUsername(user.getUsername())) {
+        if (usernameRegistry.exists(user.getUsername())) {
             return ResponseEntity.status(HttpStatus.CONFLICT).build();
         }
-        User savedUser = userRepository.save(user);
+        User savedUser;
+        try {
+            savedUser = userRepository.save(user);
+        } catch (DataIntegrityViolationException e) {
+            // Another request created the same username in the meantime
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        usernameRegistry.register(savedUser.getUsername());
         return ResponseEntity.status(HttpStatus.CREATED).body(savedUser);
     }
 
     @GetMapping("/{username}")
     public ResponseEntity<User> getUser(@PathVariable String username) {
+        // Unknown usernames are answered from memory
+        if (!usernameRegistry.exists(username)) {
+            return ResponseEntity.notFound().build();
+        }
+        
         Optional<User> user = userRepository.findByUsername(username);
         return user.map(ResponseEntity::ok)
                    .orElse(ResponseEntity.notFound().build());
     }
 
+    /**
+     * Recommends restaurants near the user's postcode, scored over only the allergies the user has.
+     * The scores are precomputed for every allergy combination, so this only looks them up.
+     * Empty if the user's postcode cannot be placed.
+     */
+    @GetMapping("/{username}/recommendations")
+    public ResponseEntity<List<Recommendation>> getRecommendations(
+            @PathVariable String username,
+            @RequestParam(defaultValue = "10") double radiusKm,
+            @RequestParam(defaultValue = "20") int limit) {
+        if (limit < 1 || !(radiusKm > 0 && radiusKm <= nearbyRestaurantIndex.getMaxRadiusKm())) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (!usernameRegistry.exists(username)) {
+            return ResponseEntity.notFound().build();
+        }
+        Optional<User> user = userRepository.findByUsername(username);
+        if (user.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        if (!allergyLeaderboard.isLoaded()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        Optional<GeoPoint> origin = postcodeCentroids.locate(user.get().getPostCode());
+        if (origin.isEmpty()) {
+            return ResponseEntity.ok(List.of());
+        }
+        return ResponseEntity.ok(nearbyRestaurantIndex.recommend(origin.get(), radiusKm, allergies(user.get()), limit));
+    }
+
     @PutMapping("/{username}")
     public ResponseEntity<User> updateUser(@PathVariable String username, @RequestBody User updatedUser) {
         Optional<User> existingUser = userRepository.findByUsername(username);
@@ -72,4 +140,18 @@ public class UserController {
         User savedUser = userRepository.save(user);
         return ResponseEntity.ok(savedUser);
     }
+
+    private static Set<Allergen> allergies(User user) {
+        Set<Allergen> allergies = EnumSet.noneOf(Allergen.class);
+        if (Boolean.TRUE.equals(user.getActivePeanutAllergy())) {
+            allergies.add(Allergen.PEANUT);
+        }
+        if (Boolean.TRUE.equals(user.getActiveEggAllergy())) {
+            allergies.add(Allergen.EGG);
+        }
+        if (Boolean.TRUE.equals(user.getActiveDairyAllergy())) {
+            allergies.add(Allergen.DAIRY);
+        }
+        return allergies;
+    }
 }
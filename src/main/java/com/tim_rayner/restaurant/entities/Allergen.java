@@ -0,0 +1,48 @@
+package com.tim_rayner.restaurant.entities;
+
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+
+public enum Allergen {
+    PEANUT,
+    EGG,
+    DAIRY;
+
+    /**
+     * The number of distinct allergy masks, from no allergies to all of them.
+     */
+    public static final int MASKS = 1 << values().length;
+
+    /**
+     * Encodes a set of allergens as a bit mask between 0 and {@link #MASKS} - 1.
+     */
+    public static int mask(Set<Allergen> allergens) {
+        int mask = 0;
+        for (Allergen allergen : allergens) {
+            mask |= 1 << allergen.ordinal();
+        }
+        return mask;
+    }
+
+    /**
+     * Whether this allergen is part of the given mask.
+     */
+    public boolean in(int mask) {
+        return (mask & (1 << ordinal())) != 0;
+    }
+
+    /**
+     * Resolves an allergy name as used in request parameters ("peanut", "egg", "dairy"), ignoring case.
+     */
+    public static Optional<Allergen> fromName(String name) {
+        if (name == null) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(valueOf(name.trim().toUpperCase(Locale.ROOT)));
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+}
@@ -1,12 +1,20 @@
 package com.tim_rayner.restaurant.entities;
 
+import java.time.Instant;
+
+import org.hibernate.annotations.UpdateTimestamp;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -15,7 +23,8 @@ import lombok.Setter;
 @JsonInclude(JsonInclude.Include.NON_NULL)
 public class DiningReview {
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "dining_reviews_seq")
+    @SequenceGenerator(name = "dining_reviews_seq", sequenceName = "DINING_REVIEWS_SEQ", allocationSize = 50)
     @Getter @Setter
     private Long id;
 
@@ -46,4 +55,22 @@ public class DiningReview {
     @Column(name="REVIEW_STATUS")
     @Getter @Setter
     private ReviewStatus reviewStatus;
+
+    /**
+     * Incremented on every update; used for optimistic locking and as the ETag.
+     */
+    @Version
+    @Column(name="VERSION")
+    @JsonIgnore
+    @Getter @Setter
+    private Long version;
+
+    /**
+     * When the row was last written; sent as Last-Modified.
+     */
+    @UpdateTimestamp
+    @Column(name="LAST_MODIFIED")
+    @JsonIgnore
+    @Getter @Setter
+    private Instant lastModified;
 }
@@ -0,0 +1,55 @@
+package com.tim_rayner.restaurant.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Score changes to a restaurant's approved reviews that are not yet in its running totals: reviews
+ * that moved into APPROVED add their scores, reviews that moved out of it subtract them. Written in
+ * the transaction that changed the reviews and deleted by the recompute that applies it, so a change
+ * is applied exactly once even if the recompute fails or the application stops first.
+ */
+@Entity
+@Table(name="RATING_CHANGES")
+public class RatingChange {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "rating_changes_seq")
+    @SequenceGenerator(name = "rating_changes_seq", sequenceName = "RATING_CHANGES_SEQ", allocationSize = 50)
+    @Getter @Setter
+    private Long id;
+
+    @Column(name="RESTAURANT_ID", nullable = false)
+    @Getter @Setter
+    private Long restaurantId;
+
+    @Column(name="PEANUT_SCORE_SUM", nullable = false)
+    @Getter @Setter
+    private long peanutScoreSum;
+
+    @Column(name="PEANUT_SCORE_COUNT", nullable = false)
+    @Getter @Setter
+    private long peanutScoreCount;
+
+    @Column(name="EGG_SCORE_SUM", nullable = false)
+    @Getter @Setter
+    private long eggScoreSum;
+
+    @Column(name="EGG_SCORE_COUNT", nullable = false)
+    @Getter @Setter
+    private long eggScoreCount;
+
+    @Column(name="DAIRY_SCORE_SUM", nullable = false)
+    @Getter @Setter
+    private long dairyScoreSum;
+
+    @Column(name="DAIRY_SCORE_COUNT", nullable = false)
+    @Getter @Setter
+    private long dairyScoreCount;
+}
@@ -1,12 +1,20 @@
 package com.tim_rayner.restaurant.entities;
 
+import java.time.Instant;
+
+import org.hibernate.annotations.UpdateTimestamp;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -15,7 +23,8 @@ import lombok.Setter;
 @JsonInclude(JsonInclude.Include.NON_NULL)
 public class Restaurant {
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "restaurants_seq")
+    @SequenceGenerator(name = "restaurants_seq", sequenceName = "RESTAURANTS_SEQ", allocationSize = 50)
     @Getter @Setter
     private Long id;
 
@@ -47,4 +56,53 @@ public class Restaurant {
     @Getter @Setter
     private Double dairyRating;
 
+    // Running totals over approved reviews, so ratings can be updated without re-reading every review.
+    // Null until the totals have been built for this restaurant.
+    @Column(name="PEANUT_SCORE_SUM")
+    @JsonIgnore
+    @Getter @Setter
+    private Long peanutScoreSum;
+
+    @Column(name="PEANUT_SCORE_COUNT")
+    @JsonIgnore
+    @Getter @Setter
+    private Long peanutScoreCount;
+
+    @Column(name="EGG_SCORE_SUM")
+    @JsonIgnore
+    @Getter @Setter
+    private Long eggScoreSum;
+
+    @Column(name="EGG_SCORE_COUNT")
+    @JsonIgnore
+    @Getter @Setter
+    private Long eggScoreCount;
+
+    @Column(name="DAIRY_SCORE_SUM")
+    @JsonIgnore
+    @Getter @Setter
+    private Long dairyScoreSum;
+
+    @Column(name="DAIRY_SCORE_COUNT")
+    @JsonIgnore
+    @Getter @Setter
+    private Long dairyScoreCount;
+
+    /**
+     * Incremented on every update; used for optimistic locking and as the ETag.
+     */
+    @Version
+    @Column(name="VERSION")
+    @JsonIgnore
+    @Getter @Setter
+    private Long version;
+
+    /**
+     * When the row was last written; sent as Last-Modified.
+     */
+    @UpdateTimestamp
+    @Column(name="LAST_MODIFIED")
+    @JsonIgnore
+    @Getter @Setter
+    private Instant lastModified;
 }
@@ -0,0 +1,78 @@
+package com.tim_rayner.restaurant.entities;
+
+import java.time.Instant;
+
+import org.hibernate.annotations.Immutable;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Read model of a restaurant for searches and listings: its ratings and approved review counts,
+ * without the bio or the running totals. Rows are written only by the summary projection's SQL,
+ * after the restaurant or one of its reviews changes, so they may briefly lag the restaurant.
+ */
+@Entity
+@Immutable
+@Table(name="RESTAURANT_SUMMARIES")
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class RestaurantSummary {
+    @Id
+    @Getter @Setter
+    private Long id;
+
+    @Column(name="NAME")
+    @Getter @Setter
+    private String name;
+
+    @Column(name="POST_CODE")
+    @Getter @Setter
+    private String postCode;
+
+    @Column(name="OVERALL_RATING")
+    @Getter @Setter
+    private Double overallRating;
+
+    @Column(name="PEANUT_RATING")
+    @Getter @Setter
+    private Double peanutRating;
+
+    @Column(name="EGG_RATING")
+    @Getter @Setter
+    private Double eggRating;
+
+    @Column(name="DAIRY_RATING")
+    @Getter @Setter
+    private Double dairyRating;
+
+    @Column(name="REVIEW_COUNT")
+    @Getter @Setter
+    private long reviewCount;
+
+    @Column(name="PEANUT_REVIEW_COUNT")
+    @Getter @Setter
+    private long peanutReviewCount;
+
+    @Column(name="EGG_REVIEW_COUNT")
+    @Getter @Setter
+    private long eggReviewCount;
+
+    @Column(name="DAIRY_REVIEW_COUNT")
+    @Getter @Setter
+    private long dairyReviewCount;
+
+    /**
+     * When the row was last refreshed from the restaurant and its reviews.
+     */
+    @Column(name="PROJECTED_AT")
+    @JsonIgnore
+    @Getter @Setter
+    private Instant projectedAt;
+}
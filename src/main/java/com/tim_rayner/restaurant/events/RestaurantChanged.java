@@ -0,0 +1,10 @@
+package com.tim_rayner.restaurant.events;
+
+import java.time.Instant;
+
+/**
+ * Published when a restaurant is created or its ratings are recomputed. Listeners that read the
+ * restaurant back should do so after commit.
+ */
+public record RestaurantChanged(Long restaurantId, Instant occurredAt) {
+}
@@ -0,0 +1,16 @@
+package com.tim_rayner.restaurant.events;
+
+import java.time.Instant;
+
+import com.tim_rayner.restaurant.entities.ReviewStatus;
+
+/**
+ * Published once a moderator's change to a review's status has been saved.
+ */
+public record ReviewStatusChanged(
+        Long reviewId,
+        Long restaurantId,
+        ReviewStatus previousStatus,
+        ReviewStatus newStatus,
+        Instant occurredAt) {
+}
@@ -1,8 +1,12 @@
 package com.tim_rayner.restaurant.repositories;
 
 import java.util.List;
+import java.util.Optional;
 
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 
 import com.tim_rayner.restaurant.entities.DiningReview;
 import com.tim_rayner.restaurant.entities.ReviewStatus;
@@ -11,8 +15,9 @@ import com.tim_rayner.restaurant.entities.ReviewStatus;
  * Repository interface for DiningReview entity operations.
  * Extends CrudRepository to provide standard CRUD operations,
  * plus custom query methods for filtering reviews by status and restaurant.
+ * Streaming queries live in {@link DiningReviewRepositoryCustom}.
  */
-public interface DiningReviewRepository extends CrudRepository<DiningReview, Long> {
+public interface DiningReviewRepository extends CrudRepository<DiningReview, Long>, DiningReviewRepositoryCustom {
 
     /**
      * Finds all dining reviews with a given status.
@@ -23,6 +28,26 @@ public interface DiningReviewRepository extends CrudRepository<DiningReview, Lon
      */
     List<DiningReview> findByReviewStatus(ReviewStatus reviewStatus);
 
+    /**
+     * Fetches one page of dining reviews with a given status, using the review ID as a keyset cursor.
+     * Use case: "As an admin, I want to work through the pending queue a page at a time"
+     * 
+     * @param reviewStatus the status to filter by (e.g., PENDING, APPROVED, REJECTED)
+     * @param id only reviews with an ID greater than this are returned (0 for the first page)
+     * @param limit the maximum number of reviews to return
+     * @return dining reviews matching the status, in ascending ID order
+     */
+    List<DiningReview> findByReviewStatusAndIdGreaterThanOrderByIdAsc(ReviewStatus reviewStatus, Long id, Limit limit);
+
+    /**
+     * Counts the dining reviews with a given status, from the status index alone.
+     * Use case: "As an operator, I want to see how many reviews are waiting for moderation"
+     * 
+     * @param reviewStatus the status to count (e.g., PENDING)
+     * @return the number of reviews with that status
+     */
+    long countByReviewStatus(ReviewStatus reviewStatus);
+
     /**
      * Finds all dining reviews for a specific restaurant with a given status.
      * Use case: "I want to fetch the set of all approved dining reviews belonging to this restaurant"
@@ -33,4 +58,14 @@ public interface DiningReviewRepository extends CrudRepository<DiningReview, Lon
      */
     List<DiningReview> findByRestaurantIdAndReviewStatus(Long restaurantId, ReviewStatus reviewStatus);
 
+    /**
+     * Reads a dining review's version and last-modified time without loading the review.
+     * Use case: "As a client, I want to re-poll a review cheaply when it has not changed"
+     * 
+     * @param id the dining review's unique ID
+     * @return the review's version, or empty if there is no such review
+     */
+    @Query("select new com.tim_rayner.restaurant.repositories.RowVersion(r.version, r.lastModified) "
+            + "from DiningReview r where r.id = :id")
+    Optional<RowVersion> findVersionById(@Param("id") Long id);
 }
@@ -0,0 +1,53 @@
+package com.tim_rayner.restaurant.repositories;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import com.tim_rayner.restaurant.entities.DiningReview;
+import com.tim_rayner.restaurant.entities.ReviewStatus;
+
+/**
+ * Streaming queries for DiningReview that need direct control over the persistence context,
+ * and queries that read only some of its columns.
+ * Streams must be consumed inside a transaction and closed afterwards.
+ */
+public interface DiningReviewRepositoryCustom {
+
+    /**
+     * Streams all dining reviews with a given status in ascending ID order.
+     * Rows are read from the database in chunks of fetchSize and detached once handed on,
+     * so memory use does not depend on how many reviews match.
+     * 
+     * @param reviewStatus the status to filter by (e.g., PENDING, APPROVED, REJECTED)
+     * @param fetchSize the number of rows to fetch from the database per round-trip
+     * @return a forward-only stream of matching dining reviews
+     */
+    Stream<DiningReview> streamByReviewStatus(ReviewStatus reviewStatus, int fetchSize);
+
+    /**
+     * Streams dining reviews in ascending ID order, narrowed by whichever filters are given.
+     * Only the given filters are added to the query, so each combination can use its own index.
+     * 
+     * @param restaurantId only reviews of this restaurant, or null for all restaurants
+     * @param reviewStatus only reviews with this status, or null for any status
+     * @param fromId the lowest ID to include, or null for no lower bound
+     * @param toId the highest ID to include, or null for no upper bound
+     * @param fetchSize the number of rows to fetch from the database per round-trip
+     * @return a forward-only stream of matching dining reviews
+     */
+    Stream<DiningReview> streamForExport(Long restaurantId, ReviewStatus reviewStatus, Long fromId, Long toId,
+            int fetchSize);
+
+    /**
+     * Finds all dining reviews with a given status in ascending ID order, selecting only the given
+     * attributes, so list views that show a few fields never read the comment text.
+     * Each review comes back as a map of attribute name to value, in the given order, without nulls.
+     * 
+     * @param reviewStatus the status to filter by (e.g., PENDING, APPROVED, REJECTED)
+     * @param attributes names of DiningReview attributes; the caller checks them against what it exposes
+     * @return one map per matching review
+     */
+    List<Map<String, Object>> findAttributesByReviewStatus(ReviewStatus reviewStatus, List<String> attributes);
+
+}
@@ -0,0 +1,106 @@
+package com.tim_rayner.restaurant.repositories;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.hibernate.jpa.HibernateHints;
+
+import com.tim_rayner.restaurant.entities.DiningReview;
+import com.tim_rayner.restaurant.entities.ReviewStatus;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+
+class DiningReviewRepositoryImpl implements DiningReviewRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Stream<DiningReview> streamByReviewStatus(ReviewStatus reviewStatus, int fetchSize) {
+        return entityManager
+                .createQuery("select r from DiningReview r where r.reviewStatus = :reviewStatus order by r.id",
+                        DiningReview.class)
+                .setParameter("reviewStatus", reviewStatus)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream()
+                // Otherwise every streamed row stays in the persistence context until the transaction ends
+                .peek(entityManager::detach);
+    }
+
+    @Override
+    public Stream<DiningReview> streamForExport(Long restaurantId, ReviewStatus reviewStatus, Long fromId, Long toId,
+            int fetchSize) {
+        List<String> conditions = new ArrayList<>();
+        if (restaurantId != null) {
+            conditions.add("r.restaurantId = :restaurantId");
+        }
+        if (reviewStatus != null) {
+            conditions.add("r.reviewStatus = :reviewStatus");
+        }
+        if (fromId != null) {
+            conditions.add("r.id >= :fromId");
+        }
+        if (toId != null) {
+            conditions.add("r.id <= :toId");
+        }
+        
+        String where = conditions.isEmpty() ? "" : " where " + String.join(" and ", conditions);
+        TypedQuery<DiningReview> query = entityManager
+                .createQuery("select r from DiningReview r" + where + " order by r.id", DiningReview.class);
+        if (restaurantId != null) {
+            query.setParameter("restaurantId", restaurantId);
+        }
+        if (reviewStatus != null) {
+            query.setParameter("reviewStatus", reviewStatus);
+        }
+        if (fromId != null) {
+            query.setParameter("fromId", fromId);
+        }
+        if (toId != null) {
+            query.setParameter("toId", toId);
+        }
+        
+        return query
+                .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream()
+                .peek(entityManager::detach);
+    }
+
+    @Override
+    public List<Map<String, Object>> findAttributesByReviewStatus(ReviewStatus reviewStatus,
+            List<String> attributes) {
+        for (String attribute : attributes) {
+            // Names end up in the query text; allow nothing that could change its meaning
+            if (!attribute.matches("[A-Za-z]+")) {
+                throw new IllegalArgumentException("Invalid attribute name: " + attribute);
+            }
+        }
+        String select = attributes.stream().map(attribute -> "r." + attribute).collect(Collectors.joining(", "));
+        List<Tuple> rows = entityManager
+                .createQuery("select " + select + " from DiningReview r where r.reviewStatus = :reviewStatus order by r.id",
+                        Tuple.class)
+                .setParameter("reviewStatus", reviewStatus)
+                .getResultList();
+        
+        List<Map<String, Object>> reviews = new ArrayList<>(rows.size());
+        for (Tuple row : rows) {
+            Map<String, Object> review = new LinkedHashMap<>();
+            for (int i = 0; i < attributes.size(); i++) {
+                if (row.get(i) != null) {
+                    review.put(attributes.get(i), row.get(i));
+                }
+            }
+            reviews.add(review);
+        }
+        return reviews;
+    }
+}
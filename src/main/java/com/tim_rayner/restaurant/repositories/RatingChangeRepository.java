@@ -0,0 +1,52 @@
+package com.tim_rayner.restaurant.repositories;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+
+import com.tim_rayner.restaurant.entities.RatingChange;
+
+/**
+ * Repository for the score changes waiting to be added to restaurants' running totals.
+ * The rebuild of a restaurant's totals lives in {@link RatingChangeRepositoryCustom}.
+ */
+public interface RatingChangeRepository extends CrudRepository<RatingChange, Long>, RatingChangeRepositoryCustom {
+
+    /**
+     * Finds the score changes waiting to be applied to a restaurant.
+     * 
+     * @param restaurantId the unique ID of the restaurant
+     * @return the restaurant's pending changes, in no particular order
+     */
+    List<RatingChange> findByRestaurantId(Long restaurantId);
+
+    /**
+     * Lists the restaurants with score changes waiting, e.g. left behind by a restart.
+     * 
+     * @return the IDs of the restaurants with pending changes
+     */
+    @Query("select distinct c.restaurantId from RatingChange c")
+    List<Long> findRestaurantIds();
+
+    /**
+     * Deletes applied changes in one statement, without loading them again.
+     * 
+     * @param ids the IDs of the changes to delete
+     */
+    @Modifying
+    @Query("delete from RatingChange c where c.id in :ids")
+    void deleteAllByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Deletes a restaurant's changes in one statement, e.g. once the restaurant is gone.
+     * 
+     * @param restaurantId the unique ID of the restaurant
+     */
+    @Modifying
+    @Query("delete from RatingChange c where c.restaurantId = :restaurantId")
+    void deleteAllByRestaurantId(@Param("restaurantId") Long restaurantId);
+}
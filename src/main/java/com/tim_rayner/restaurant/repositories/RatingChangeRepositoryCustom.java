@@ -0,0 +1,19 @@
+package com.tim_rayner.restaurant.repositories;
+
+/**
+ * Rebuilds of running totals that must agree with the pending score changes. Must be called inside
+ * a transaction.
+ */
+public interface RatingChangeRepositoryCustom {
+
+    /**
+     * Sums a restaurant's approved scores as they were before its pending changes, in one statement,
+     * so the sums and the changes come from the same snapshot. Adding the pending changes read
+     * afterwards, including any committed in between, then gives the current totals with no change
+     * counted twice or missed.
+     * 
+     * @param restaurantId the unique ID of the restaurant
+     * @return the score totals without the pending changes, with zero counts if there are none
+     */
+    ScoreTotals sumApprovedScoresBeforeChanges(Long restaurantId);
+}
@@ -0,0 +1,44 @@
+package com.tim_rayner.restaurant.repositories;
+
+import com.tim_rayner.restaurant.entities.ReviewStatus;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+class RatingChangeRepositoryImpl implements RatingChangeRepositoryCustom {
+
+    private static final String SUM_BEFORE_CHANGES = """
+            SELECT a.PEANUT_SUM - c.PEANUT_SUM, a.PEANUT_COUNT - c.PEANUT_COUNT,
+                   a.EGG_SUM - c.EGG_SUM, a.EGG_COUNT - c.EGG_COUNT,
+                   a.DAIRY_SUM - c.DAIRY_SUM, a.DAIRY_COUNT - c.DAIRY_COUNT
+            FROM (SELECT COALESCE(SUM(PEANUT_SCORE), 0) PEANUT_SUM, COUNT(PEANUT_SCORE) PEANUT_COUNT,
+                         COALESCE(SUM(EGG_SCORE), 0) EGG_SUM, COUNT(EGG_SCORE) EGG_COUNT,
+                         COALESCE(SUM(DAIRY_SCORE), 0) DAIRY_SUM, COUNT(DAIRY_SCORE) DAIRY_COUNT
+                  FROM DINING_REVIEWS
+                  WHERE RESTAURANT_ID = :restaurantId AND REVIEW_STATUS = :approved) a
+            CROSS JOIN (SELECT COALESCE(SUM(PEANUT_SCORE_SUM), 0) PEANUT_SUM, COALESCE(SUM(PEANUT_SCORE_COUNT), 0) PEANUT_COUNT,
+                               COALESCE(SUM(EGG_SCORE_SUM), 0) EGG_SUM, COALESCE(SUM(EGG_SCORE_COUNT), 0) EGG_COUNT,
+                               COALESCE(SUM(DAIRY_SCORE_SUM), 0) DAIRY_SUM, COALESCE(SUM(DAIRY_SCORE_COUNT), 0) DAIRY_COUNT
+                        FROM RATING_CHANGES
+                        WHERE RESTAURANT_ID = :restaurantId) c
+            """;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public ScoreTotals sumApprovedScoresBeforeChanges(Long restaurantId) {
+        Object[] row = (Object[]) entityManager.createNativeQuery(SUM_BEFORE_CHANGES)
+                .setParameter("restaurantId", restaurantId)
+                .setParameter("approved", ReviewStatus.APPROVED.ordinal())
+                .getSingleResult();
+        return new ScoreTotals(
+                longValue(row[0]), longValue(row[1]),
+                longValue(row[2]), longValue(row[3]),
+                longValue(row[4]), longValue(row[5]));
+    }
+
+    private static Long longValue(Object value) {
+        return ((Number) value).longValue();
+    }
+}
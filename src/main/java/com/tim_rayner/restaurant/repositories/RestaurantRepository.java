@@ -1,6 +1,5 @@
 package com.tim_rayner.restaurant.repositories;
 
-import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.repository.CrudRepository;
@@ -9,10 +8,10 @@ import com.tim_rayner.restaurant.entities.Restaurant;
 
 /**
  * Repository interface for Restaurant entity operations.
- * Extends CrudRepository to provide standard CRUD operations,
- * plus custom query methods for allergy-based restaurant searches.
+ * Extends CrudRepository to provide standard CRUD operations.
+ * Allergy-based searches read the summaries in {@link RestaurantSummaryRepository} instead.
  */
-public interface RestaurantRepository extends CrudRepository<Restaurant, Long> {
+public interface RestaurantRepository extends CrudRepository<Restaurant, Long>, RestaurantRepositoryCustom {
     
     /**
      * Finds a restaurant by its unique identifier.
@@ -21,31 +20,4 @@ public interface RestaurantRepository extends CrudRepository<Restaurant, Long> {
      * @return an Optional containing the restaurant if found, or empty if not found
      */
     Optional<Restaurant> findById(long id);
-    
-    /**
-     * Finds all restaurants in a given post code that have a peanut allergy rating,
-     * sorted by peanut rating in descending order (highest rated first).
-     * 
-     * @param postCode the post code to search within
-     * @return list of restaurants with peanut ratings, sorted by rating descending
-     */
-    List<Restaurant> findByPostCodeAndPeanutRatingNotNullOrderByPeanutRatingDesc(String postCode);
-    
-    /**
-     * Finds all restaurants in a given post code that have an egg allergy rating,
-     * sorted by egg rating in descending order (highest rated first).
-     * 
-     * @param postCode the post code to search within
-     * @return list of restaurants with egg ratings, sorted by rating descending
-     */
-    List<Restaurant> findByPostCodeAndEggRatingNotNullOrderByEggRatingDesc(String postCode);
-    
-    /**
-     * Finds all restaurants in a given post code that have a dairy allergy rating,
-     * sorted by dairy rating in descending order (highest rated first).
-     * 
-     * @param postCode the post code to search within
-     * @return list of restaurants with dairy ratings, sorted by rating descending
-     */
-    List<Restaurant> findByPostCodeAndDairyRatingNotNullOrderByDairyRatingDesc(String postCode);
-}
\ No newline at end of file
+}
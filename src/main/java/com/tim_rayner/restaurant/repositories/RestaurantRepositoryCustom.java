@@ -0,0 +1,23 @@
+package com.tim_rayner.restaurant.repositories;
+
+import java.util.stream.Stream;
+
+import com.tim_rayner.restaurant.entities.Restaurant;
+
+/**
+ * Streaming queries for Restaurant that need direct control over the persistence context.
+ * Streams must be consumed inside a transaction and closed afterwards.
+ */
+public interface RestaurantRepositoryCustom {
+
+    /**
+     * Streams every restaurant in ascending ID order.
+     * Rows are read from the database in chunks of fetchSize and detached once handed on,
+     * so memory use does not depend on how many restaurants there are.
+     * 
+     * @param fetchSize the number of rows to fetch from the database per round-trip
+     * @return a forward-only stream of all restaurants
+     */
+    Stream<Restaurant> streamAll(int fetchSize);
+
+}
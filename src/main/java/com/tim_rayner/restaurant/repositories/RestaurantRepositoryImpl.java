@@ -0,0 +1,27 @@
+package com.tim_rayner.restaurant.repositories;
+
+import java.util.stream.Stream;
+
+import org.hibernate.jpa.HibernateHints;
+
+import com.tim_rayner.restaurant.entities.Restaurant;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+class RestaurantRepositoryImpl implements RestaurantRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Stream<Restaurant> streamAll(int fetchSize) {
+        return entityManager
+                .createQuery("select r from Restaurant r order by r.id", Restaurant.class)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream()
+                // Otherwise every streamed row stays in the persistence context until the transaction ends
+                .peek(entityManager::detach);
+    }
+}
@@ -0,0 +1,63 @@
+package com.tim_rayner.restaurant.repositories;
+
+import java.util.List;
+import java.util.Set;
+
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+
+import com.tim_rayner.restaurant.entities.Allergen;
+import com.tim_rayner.restaurant.entities.RestaurantSummary;
+
+/**
+ * Repository for the restaurant summary read model. Searches and listings read summaries only,
+ * so they never touch the RESTAURANTS rows that moderation and rating recomputes write.
+ */
+public interface RestaurantSummaryRepository
+        extends CrudRepository<RestaurantSummary, Long>, RestaurantSummaryRepositoryCustom {
+
+    /**
+     * Finds all restaurants in a given post code that have a rating for every selected allergy,
+     * sorted by their combined score across those allergies in descending order (highest rated first).
+     * The combined score is the mean of the selected ratings; ordering by their sum gives the same order.
+     * 
+     * @param postCode the post code to search within
+     * @param peanut whether restaurants must have, and are ranked by, a peanut rating
+     * @param egg whether restaurants must have, and are ranked by, an egg rating
+     * @param dairy whether restaurants must have, and are ranked by, a dairy rating
+     * @return list of matching restaurant summaries, sorted by combined rating descending
+     */
+    @Query("""
+            select r from RestaurantSummary r
+            where r.postCode = :postCode
+              and (:peanut = false or r.peanutRating is not null)
+              and (:egg = false or r.eggRating is not null)
+              and (:dairy = false or r.dairyRating is not null)
+            order by (case when :peanut = true then r.peanutRating else 0 end)
+                   + (case when :egg = true then r.eggRating else 0 end)
+                   + (case when :dairy = true then r.dairyRating else 0 end) desc,
+                     r.id
+            """)
+    List<RestaurantSummary> findByPostCodeAndAllergyRatings(
+            @Param("postCode") String postCode,
+            @Param("peanut") boolean peanut,
+            @Param("egg") boolean egg,
+            @Param("dairy") boolean dairy);
+
+    /**
+     * Finds all restaurants in a given post code that have a rating for every given allergen,
+     * sorted by their combined score across those allergens in descending order (highest rated first).
+     * 
+     * @param postCode the post code to search within
+     * @param allergens the allergens restaurants must be rated for
+     * @return list of matching restaurant summaries, sorted by combined rating descending
+     */
+    default List<RestaurantSummary> searchByAllergens(String postCode, Set<Allergen> allergens) {
+        return findByPostCodeAndAllergyRatings(
+                postCode,
+                allergens.contains(Allergen.PEANUT),
+                allergens.contains(Allergen.EGG),
+                allergens.contains(Allergen.DAIRY));
+    }
+}
@@ -0,0 +1,26 @@
+package com.tim_rayner.restaurant.repositories;
+
+/**
+ * Writes to the restaurant summary read model. Each refresh is a single statement that reads the
+ * restaurant and counts its approved reviews in the database, so no entity is loaded to build it.
+ * Must be called inside a transaction.
+ */
+public interface RestaurantSummaryRepositoryCustom {
+
+    /**
+     * Brings one restaurant's summary up to date with the restaurant and its approved reviews,
+     * creating it if it does not exist yet, or removes it if the restaurant no longer exists.
+     * 
+     * @param restaurantId the restaurant to refresh
+     */
+    void refresh(Long restaurantId);
+
+    /**
+     * Rebuilds every summary from the restaurants and their approved reviews, and removes the
+     * summaries of restaurants that no longer exist.
+     * 
+     * @return the number of summaries written
+     */
+    int refreshAll();
+
+}
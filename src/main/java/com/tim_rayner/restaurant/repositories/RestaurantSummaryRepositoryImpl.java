@@ -0,0 +1,57 @@
+package com.tim_rayner.restaurant.repositories;
+
+import org.hibernate.query.NativeQuery;
+
+import com.tim_rayner.restaurant.entities.RestaurantSummary;
+import com.tim_rayner.restaurant.entities.ReviewStatus;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+
+class RestaurantSummaryRepositoryImpl implements RestaurantSummaryRepositoryCustom {
+
+    private static final String MERGE = """
+            MERGE INTO RESTAURANT_SUMMARIES (ID, NAME, POST_CODE, OVERALL_RATING, PEANUT_RATING, EGG_RATING,
+                    DAIRY_RATING, REVIEW_COUNT, PEANUT_REVIEW_COUNT, EGG_REVIEW_COUNT, DAIRY_REVIEW_COUNT, PROJECTED_AT)
+            KEY (ID)
+            SELECT r.ID, r.NAME, r.POST_CODE, r.OVERALL_RATING, r.PEANUT_RATING, r.EGG_RATING, r.DAIRY_RATING,
+                   COUNT(d.ID), COUNT(d.PEANUT_SCORE), COUNT(d.EGG_SCORE), COUNT(d.DAIRY_SCORE), CURRENT_TIMESTAMP
+            FROM RESTAURANTS r
+            LEFT JOIN DINING_REVIEWS d ON d.RESTAURANT_ID = r.ID AND d.REVIEW_STATUS = :approved
+            %s
+            GROUP BY r.ID, r.NAME, r.POST_CODE, r.OVERALL_RATING, r.PEANUT_RATING, r.EGG_RATING, r.DAIRY_RATING
+            """;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public void refresh(Long restaurantId) {
+        int written = nativeUpdate(MERGE.formatted("WHERE r.ID = :restaurantId"))
+                .setParameter("approved", ReviewStatus.APPROVED.ordinal())
+                .setParameter("restaurantId", restaurantId)
+                .executeUpdate();
+        if (written == 0) {
+            nativeUpdate("DELETE FROM RESTAURANT_SUMMARIES WHERE ID = :restaurantId")
+                    .setParameter("restaurantId", restaurantId)
+                    .executeUpdate();
+        }
+    }
+
+    @Override
+    public int refreshAll() {
+        nativeUpdate("DELETE FROM RESTAURANT_SUMMARIES s WHERE NOT EXISTS (SELECT 1 FROM RESTAURANTS r WHERE r.ID = s.ID)")
+                .executeUpdate();
+        return nativeUpdate(MERGE.formatted(""))
+                .setParameter("approved", ReviewStatus.APPROVED.ordinal())
+                .executeUpdate();
+    }
+
+    private Query nativeUpdate(String sql) {
+        // Without this Hibernate cannot tell which tables the statement writes and clears every second-level cache region
+        return entityManager.createNativeQuery(sql)
+                .unwrap(NativeQuery.class)
+                .addSynchronizedEntityClass(RestaurantSummary.class);
+    }
+}
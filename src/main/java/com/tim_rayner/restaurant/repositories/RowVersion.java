@@ -0,0 +1,9 @@
+package com.tim_rayner.restaurant.repositories;
+
+import java.time.Instant;
+
+/**
+ * The version and last-modified time of a row, read without loading the entity.
+ */
+public record RowVersion(Long version, Instant lastModified) {
+}
@@ -0,0 +1,14 @@
+package com.tim_rayner.restaurant.repositories;
+
+/**
+ * The sums and counts of a set of reviews' allergen scores, computed by the database.
+ * A sum is null when there were no scores for that allergen.
+ */
+public record ScoreTotals(
+        Long peanutSum,
+        Long peanutCount,
+        Long eggSum,
+        Long eggCount,
+        Long dairySum,
+        Long dairyCount) {
+}
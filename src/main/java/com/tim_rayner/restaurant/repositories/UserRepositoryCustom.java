@@ -0,0 +1,33 @@
+package com.tim_rayner.restaurant.repositories;
+
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import com.tim_rayner.restaurant.entities.User;
+
+/**
+ * User lookups that go through Hibernate's natural-id API rather than a query,
+ * so they can be answered from the second-level cache, and a username stream.
+ * Streams must be consumed inside a transaction and closed afterwards.
+ */
+public interface UserRepositoryCustom {
+
+    /**
+     * Fetches a user profile by their username (display name).
+     * Use case: "I want to fetch the user profile belonging to a given display name"
+     * 
+     * @param username the unique display name of the user
+     * @return an Optional containing the user if found, or empty if not found
+     */
+    Optional<User> findByUsername(String username);
+
+    /**
+     * Streams every username without loading the user profiles.
+     * Use case: "I want to check usernames exist without asking the database each time"
+     * 
+     * @param fetchSize the number of rows to fetch from the database per round-trip
+     * @return a forward-only stream of all usernames
+     */
+    Stream<String> streamAllUsernames(int fetchSize);
+
+}
@@ -0,0 +1,21 @@
+package com.tim_rayner.restaurant.responses;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.tim_rayner.restaurant.entities.ReviewStatus;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Outcome of one item in a batch moderation request.
+ * The status mirrors what the single-review endpoint would have returned for the same id:
+ * 202 means the review was saved but its restaurant's ratings have not caught up with it yet.
+ */
+@AllArgsConstructor
+@Getter
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class AdminReviewResult {
+    private Long id;
+    private int status;
+    private ReviewStatus reviewStatus;
+}
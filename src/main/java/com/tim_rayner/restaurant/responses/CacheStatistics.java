@@ -0,0 +1,17 @@
+package com.tim_rayner.restaurant.responses;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Hit and miss counters for an in-process cache, used to size it.
+ */
+@AllArgsConstructor
+@Getter
+public class CacheStatistics {
+    private long size;
+    private long hits;
+    private long misses;
+    private double hitRate;
+    private long evictions;
+}
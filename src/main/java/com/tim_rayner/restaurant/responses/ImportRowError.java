@@ -0,0 +1,15 @@
+package com.tim_rayner.restaurant.responses;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * A row of an import file that was not imported, by its line number in the file.
+ */
+@AllArgsConstructor
+@Getter
+public class ImportRowError {
+
+    private long line;
+    private String error;
+}
@@ -0,0 +1,17 @@
+package com.tim_rayner.restaurant.responses;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Running totals of an import, reported after every batch and once more when the file is finished.
+ */
+@AllArgsConstructor
+@Getter
+public class ImportSummary {
+
+    private long rowsRead;
+    private long imported;
+    private long rejected;
+    private boolean complete;
+}
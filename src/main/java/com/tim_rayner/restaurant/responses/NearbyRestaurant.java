@@ -0,0 +1,17 @@
+package com.tim_rayner.restaurant.responses;
+
+import com.tim_rayner.restaurant.entities.RestaurantSummary;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * A restaurant found by a proximity search, with its distance from the searched postcode
+ * in kilometres (between district centroids, to two decimal places).
+ */
+@AllArgsConstructor
+@Getter
+public class NearbyRestaurant {
+    private RestaurantSummary restaurant;
+    private double distanceKm;
+}
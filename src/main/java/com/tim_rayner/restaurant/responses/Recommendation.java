@@ -0,0 +1,18 @@
+package com.tim_rayner.restaurant.responses;
+
+import com.tim_rayner.restaurant.entities.RestaurantSummary;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * A restaurant recommended to a user: its distance from the user's postcode in kilometres, and its
+ * score, the average rating over the user's allergies (its overall rating if they have none).
+ */
+@AllArgsConstructor
+@Getter
+public class Recommendation {
+    private RestaurantSummary restaurant;
+    private double distanceKm;
+    private double score;
+}
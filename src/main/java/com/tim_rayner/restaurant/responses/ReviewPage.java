@@ -0,0 +1,21 @@
+package com.tim_rayner.restaurant.responses;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.tim_rayner.restaurant.entities.DiningReview;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * One page of dining reviews. Pass next back as the cursor to fetch the following page;
+ * it is absent on the last page.
+ */
+@AllArgsConstructor
+@Getter
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ReviewPage {
+    private List<DiningReview> items;
+    private String next;
+}
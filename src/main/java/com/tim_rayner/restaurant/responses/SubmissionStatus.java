@@ -0,0 +1,26 @@
+package com.tim_rayner.restaurant.responses;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Progress of a review accepted for asynchronous submission.
+ * The review ID is present once the review has been written.
+ */
+@AllArgsConstructor
+@Getter
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SubmissionStatus {
+
+    public enum State {
+        QUEUED,
+        WRITTEN,
+        FAILED
+    }
+
+    private String trackingId;
+    private State state;
+    private Long reviewId;
+}
@@ -0,0 +1,19 @@
+package com.tim_rayner.restaurant.responses;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * One match of a full-text search: a restaurant's bio, or an approved review's comment when
+ * reviewId is present. Higher scores are better matches.
+ */
+@AllArgsConstructor
+@Getter
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TextSearchHit {
+    private Long restaurantId;
+    private Long reviewId;
+    private double score;
+}
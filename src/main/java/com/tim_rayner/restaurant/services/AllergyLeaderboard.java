@@ -0,0 +1,218 @@
+package com.tim_rayner.restaurant.services;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.tim_rayner.restaurant.entities.Allergen;
+import com.tim_rayner.restaurant.entities.RestaurantSummary;
+import com.tim_rayner.restaurant.repositories.RestaurantSummaryRepository;
+
+/**
+ * In-memory index of restaurant summaries ranked per allergen within each post code, so allergy
+ * searches need no database work. Built and kept up to date by the {@link RestaurantSummaryProjector}
+ * from the summary read model. Results are ordered exactly as
+ * {@link RestaurantSummaryRepository#findByPostCodeAndAllergyRatings} orders them.
+ * Every change is passed on to the {@link NearbyRestaurantIndex}.
+ */
+@Component
+public class AllergyLeaderboard {
+
+    private static final Map<Allergen, Function<RestaurantSummary, Double>> RATINGS = Map.of(
+            Allergen.PEANUT, RestaurantSummary::getPeanutRating,
+            Allergen.EGG, RestaurantSummary::getEggRating,
+            Allergen.DAIRY, RestaurantSummary::getDairyRating);
+
+    private final RestaurantSummaryRepository restaurantSummaryRepository;
+    private final NearbyRestaurantIndex nearbyRestaurantIndex;
+
+    // Each board is immutable and replaced as a whole, so searches never need a lock
+    private final Map<String, Board> boards = new ConcurrentHashMap<>();
+    private final Map<Long, String> postCodes = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+
+    public AllergyLeaderboard(
+            RestaurantSummaryRepository restaurantSummaryRepository,
+            NearbyRestaurantIndex nearbyRestaurantIndex) {
+        this.restaurantSummaryRepository = restaurantSummaryRepository;
+        this.nearbyRestaurantIndex = nearbyRestaurantIndex;
+    }
+
+    /**
+     * Reloads the index from the summaries. Called once they have been rebuilt at startup.
+     */
+    public synchronized void rebuild() {
+        boards.clear();
+        postCodes.clear();
+        nearbyRestaurantIndex.clear();
+        restaurantSummaryRepository.findAll().forEach(this::apply);
+        loaded = true;
+    }
+
+    /**
+     * Whether the index, and with it the {@link NearbyRestaurantIndex}, has been built.
+     * Until then searches have to go to the database.
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Records a restaurant's current post code and ratings, from its refreshed summary. Inside a transaction the
+     * change is applied after commit, so a rollback cannot leave ratings in the index that were never saved.
+     */
+    public void update(RestaurantSummary restaurant) {
+        RestaurantSummary snapshot = copyOf(restaurant);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(snapshot);
+                }
+            });
+        } else {
+            apply(snapshot);
+        }
+    }
+
+    /**
+     * Finds the restaurants in a post code rated for every given allergen, ordered by their
+     * combined rating (highest first) and then by ID.
+     */
+    public List<RestaurantSummary> search(String postCode, Set<Allergen> allergens) {
+        Board board = boards.get(postCode);
+        if (board == null || allergens.isEmpty()) {
+            return Collections.emptyList();
+        }
+        
+        if (allergens.size() == 1) {
+            return board.ranked.get(allergens.iterator().next());
+        }
+        
+        // Start from the shortest ranking; every match has to appear in all of them
+        List<RestaurantSummary> candidates = null;
+        for (Allergen allergen : allergens) {
+            List<RestaurantSummary> ranked = board.ranked.get(allergen);
+            if (candidates == null || ranked.size() < candidates.size()) {
+                candidates = ranked;
+            }
+        }
+        
+        List<RestaurantSummary> matches = new ArrayList<>();
+        for (RestaurantSummary restaurant : candidates) {
+            if (allergens.stream().allMatch(allergen -> rating(restaurant, allergen) != null)) {
+                matches.add(restaurant);
+            }
+        }
+        matches.sort(Comparator
+                .comparingDouble((RestaurantSummary restaurant) -> combinedScore(restaurant, allergens))
+                .reversed()
+                .thenComparing(RestaurantSummary::getId));
+        return matches;
+    }
+
+    private synchronized void apply(RestaurantSummary restaurant) {
+        Long id = restaurant.getId();
+        String postCode = restaurant.getPostCode();
+        
+        String previousPostCode = postCode == null ? postCodes.remove(id) : postCodes.put(id, postCode);
+        if (previousPostCode != null) {
+            boards.computeIfPresent(previousPostCode, (key, board) -> board.without(id));
+        }
+        if (postCode != null) {
+            boards.compute(postCode, (key, board) -> (board == null ? Board.EMPTY : board).with(restaurant));
+        }
+        nearbyRestaurantIndex.put(restaurant);
+    }
+
+    /**
+     * Sums the selected ratings in the same order as the SQL query, so ties and rounding agree.
+     */
+    static double combinedScore(RestaurantSummary restaurant, Set<Allergen> allergens) {
+        double peanut = allergens.contains(Allergen.PEANUT) ? restaurant.getPeanutRating() : 0;
+        double egg = allergens.contains(Allergen.EGG) ? restaurant.getEggRating() : 0;
+        double dairy = allergens.contains(Allergen.DAIRY) ? restaurant.getDairyRating() : 0;
+        return peanut + egg + dairy;
+    }
+
+    static Double rating(RestaurantSummary restaurant, Allergen allergen) {
+        return RATINGS.get(allergen).apply(restaurant);
+    }
+
+    // Indexed copies are never handed to code that could modify them
+    private static RestaurantSummary copyOf(RestaurantSummary restaurant) {
+        RestaurantSummary copy = new RestaurantSummary();
+        copy.setId(restaurant.getId());
+        copy.setPostCode(restaurant.getPostCode());
+        copy.setName(restaurant.getName());
+        copy.setOverallRating(restaurant.getOverallRating());
+        copy.setPeanutRating(restaurant.getPeanutRating());
+        copy.setEggRating(restaurant.getEggRating());
+        copy.setDairyRating(restaurant.getDairyRating());
+        copy.setReviewCount(restaurant.getReviewCount());
+        copy.setPeanutReviewCount(restaurant.getPeanutReviewCount());
+        copy.setEggReviewCount(restaurant.getEggReviewCount());
+        copy.setDairyReviewCount(restaurant.getDairyReviewCount());
+        copy.setProjectedAt(restaurant.getProjectedAt());
+        return copy;
+    }
+
+    /**
+     * The restaurants of one post code that have a rating for each allergen, best first.
+     */
+    private static final class Board {
+
+        static final Board EMPTY = new Board(emptyRankings());
+
+        final Map<Allergen, List<RestaurantSummary>> ranked;
+
+        private Board(Map<Allergen, List<RestaurantSummary>> ranked) {
+            this.ranked = ranked;
+        }
+
+        Board without(Long id) {
+            Map<Allergen, List<RestaurantSummary>> next = new EnumMap<>(Allergen.class);
+            ranked.forEach((allergen, restaurants) -> {
+                List<RestaurantSummary> remaining = new ArrayList<>(restaurants);
+                remaining.removeIf(restaurant -> restaurant.getId().equals(id));
+                next.put(allergen, Collections.unmodifiableList(remaining));
+            });
+            return new Board(next);
+        }
+
+        Board with(RestaurantSummary restaurant) {
+            Map<Allergen, List<RestaurantSummary>> next = new EnumMap<>(ranked);
+            for (Allergen allergen : Allergen.values()) {
+                if (rating(restaurant, allergen) == null) {
+                    continue;
+                }
+                Comparator<RestaurantSummary> order = Comparator
+                        .comparing((RestaurantSummary candidate) -> rating(candidate, allergen), Comparator.reverseOrder())
+                        .thenComparing(RestaurantSummary::getId);
+                List<RestaurantSummary> restaurants = new ArrayList<>(ranked.get(allergen));
+                int position = Collections.binarySearch(restaurants, restaurant, order);
+                restaurants.add(position < 0 ? -position - 1 : position, restaurant);
+                next.put(allergen, Collections.unmodifiableList(restaurants));
+            }
+            return new Board(next);
+        }
+
+        private static Map<Allergen, List<RestaurantSummary>> emptyRankings() {
+            Map<Allergen, List<RestaurantSummary>> rankings = new EnumMap<>(Allergen.class);
+            for (Allergen allergen : Allergen.values()) {
+                rankings.put(allergen, Collections.emptyList());
+            }
+            return rankings;
+        }
+    }
+}
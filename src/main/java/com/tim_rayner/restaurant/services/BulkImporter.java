@@ -0,0 +1,391 @@
+package com.tim_rayner.restaurant.services;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.MappingIterator;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.ObjectReader;
+import tools.jackson.dataformat.csv.CsvMapper;
+import tools.jackson.dataformat.csv.CsvSchema;
+
+import com.tim_rayner.restaurant.entities.DiningReview;
+import com.tim_rayner.restaurant.entities.Restaurant;
+import com.tim_rayner.restaurant.entities.ReviewStatus;
+import com.tim_rayner.restaurant.events.RestaurantChanged;
+import com.tim_rayner.restaurant.repositories.DiningReviewRepository;
+import com.tim_rayner.restaurant.repositories.RestaurantRepository;
+import com.tim_rayner.restaurant.responses.ImportRowError;
+import com.tim_rayner.restaurant.responses.ImportSummary;
+
+/**
+ * Streams restaurants or reviews from an NDJSON or CSV file into the database. Rows are parsed and
+ * validated one at a time and written in batches, one transaction per batch, so memory use does not
+ * depend on the size of the file. Rejected rows and progress are reported to a {@link Listener} as
+ * the import goes rather than collected.
+ */
+@Service
+public class BulkImporter {
+
+    private static final Logger log = LoggerFactory.getLogger(BulkImporter.class);
+
+    /**
+     * Receives an import's rejected rows and its progress after each batch.
+     */
+    public interface Listener {
+
+        void rejected(ImportRowError error);
+
+        void progress(ImportSummary summary);
+    }
+
+    private final RestaurantRepository restaurantRepository;
+    private final DiningReviewRepository diningReviewRepository;
+    private final RestaurantRatingService restaurantRatingService;
+    private final RatingRecomputeScheduler ratingRecomputeScheduler;
+    private final RestaurantCache restaurantCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TextSearchIndex textSearchIndex;
+    private final UsernameRegistry usernameRegistry;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final ObjectReader csvReader;
+    private final int batchSize;
+
+    public BulkImporter(
+            RestaurantRepository restaurantRepository,
+            DiningReviewRepository diningReviewRepository,
+            RestaurantRatingService restaurantRatingService,
+            RatingRecomputeScheduler ratingRecomputeScheduler,
+            RestaurantCache restaurantCache,
+            ApplicationEventPublisher eventPublisher,
+            TextSearchIndex textSearchIndex,
+            UsernameRegistry usernameRegistry,
+            PlatformTransactionManager transactionManager,
+            ObjectMapper objectMapper,
+            @Value("${restaurant.import.batch-size:500}") int batchSize) {
+        this.restaurantRepository = restaurantRepository;
+        this.diningReviewRepository = diningReviewRepository;
+        this.restaurantRatingService = restaurantRatingService;
+        this.ratingRecomputeScheduler = ratingRecomputeScheduler;
+        this.restaurantCache = restaurantCache;
+        this.eventPublisher = eventPublisher;
+        this.textSearchIndex = textSearchIndex;
+        this.usernameRegistry = usernameRegistry;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.csvReader = new CsvMapper()
+                .readerForMapOf(String.class)
+                .with(CsvSchema.emptySchema().withHeader());
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Imports new restaurants. IDs in the file are ignored; ratings are taken as given,
+     * as they are by {@code POST /restaurants}.
+     */
+    public ImportSummary importRestaurants(InputStream in, ImportFormat format, Listener listener) {
+        return importRows(in, format, Restaurant.class, this::validateRestaurant, this::writeRestaurants, listener);
+    }
+
+    /**
+     * Imports reviews of existing restaurants by existing users. IDs in the file are ignored and a
+     * missing status means PENDING. Each batch records the score changes of its approved reviews, and
+     * each restaurant they belong to has them added to its ratings once, after the last batch, rather
+     * than once per batch.
+     */
+    public ImportSummary importReviews(InputStream in, ImportFormat format, Listener listener) {
+        Set<Long> changedRestaurants = new HashSet<>();
+        try {
+            return importRows(in, format, DiningReview.class, this::validateReview,
+                    reviews -> writeReviews(reviews, changedRestaurants), listener);
+        } finally {
+            ratingRecomputeScheduler.recomputeAndWait(changedRestaurants);
+        }
+    }
+
+    private <T> ImportSummary importRows(
+            InputStream in,
+            ImportFormat format,
+            Class<T> type,
+            Function<T, String> validator,
+            Consumer<List<T>> writer,
+            Listener listener) {
+        Progress progress = new Progress(listener);
+        List<Row<T>> batch = new ArrayList<>(batchSize);
+
+        try (RowReader<T> rows = format == ImportFormat.CSV ? new CsvRows<>(in, type) : new NdjsonRows<>(in, type)) {
+            Row<T> row;
+            while ((row = rows.next()) != null) {
+                progress.rowsRead++;
+                String error = row.error() != null ? row.error() : validator.apply(row.value());
+                if (error != null) {
+                    progress.reject(row.line(), error);
+                    continue;
+                }
+                batch.add(row);
+                if (batch.size() == batchSize) {
+                    write(batch, writer, progress);
+                    batch.clear();
+                    listener.progress(progress.summary(false));
+                }
+            }
+        } catch (IOException | JacksonException e) {
+            // The file can no longer be read; keep what was imported up to here
+            progress.reject(progress.rowsRead + 1, "Unreadable input: " + message(e));
+        }
+
+        if (!batch.isEmpty()) {
+            write(batch, writer, progress);
+        }
+        ImportSummary summary = progress.summary(true);
+        listener.progress(summary);
+        return summary;
+    }
+
+    private <T> void write(List<Row<T>> batch, Consumer<List<T>> writer, Progress progress) {
+        List<T> values = batch.stream().map(Row::value).toList();
+        try {
+            transactionTemplate.executeWithoutResult(status -> writer.accept(values));
+            progress.imported += values.size();
+        } catch (RuntimeException e) {
+            // Fall back to one row at a time so one bad row does not lose the rest of the batch
+            for (Row<T> row : batch) {
+                clearId(row.value());
+                try {
+                    transactionTemplate.executeWithoutResult(status -> writer.accept(List.of(row.value())));
+                    progress.imported++;
+                } catch (RuntimeException rowFailure) {
+                    // Database messages carry SQL and schema details, so the client only gets the category
+                    log.warn("Import row {} could not be saved", row.line(), rowFailure);
+                    progress.reject(row.line(), saveFailure(rowFailure));
+                }
+            }
+        }
+    }
+
+    private String validateRestaurant(Restaurant restaurant) {
+        restaurant.setId(null);
+        if (isBlank(restaurant.getName())) {
+            return "name is required";
+        }
+        if (isBlank(restaurant.getPostCode())) {
+            return "postCode is required";
+        }
+        if (!isRating(restaurant.getPeanutRating()) || !isRating(restaurant.getEggRating())
+                || !isRating(restaurant.getDairyRating()) || !isRating(restaurant.getOverallRating())) {
+            return "ratings must be between 1 and 5";
+        }
+        return null;
+    }
+
+    private String validateReview(DiningReview review) {
+        review.setId(null);
+        if (review.getRestaurantId() == null) {
+            return "restaurantId is required";
+        }
+        if (!isScore(review.getPeanutScore()) || !isScore(review.getEggScore()) || !isScore(review.getDairyScore())) {
+            return "scores must be between 1 and 5";
+        }
+        if (isBlank(review.getAuthor()) || !usernameRegistry.exists(review.getAuthor())) {
+            return "unknown author " + review.getAuthor();
+        }
+        if (restaurantCache.findById(review.getRestaurantId()).isEmpty()) {
+            return "unknown restaurant " + review.getRestaurantId();
+        }
+        if (review.getReviewStatus() == null) {
+            review.setReviewStatus(ReviewStatus.PENDING);
+        }
+        return null;
+    }
+
+    private void writeRestaurants(List<Restaurant> restaurants) {
+        restaurantRepository.saveAll(restaurants);
+        Instant now = Instant.now();
+        restaurants.forEach(restaurant -> eventPublisher.publishEvent(new RestaurantChanged(restaurant.getId(), now)));
+        restaurants.forEach(textSearchIndex::index);
+    }
+
+    private void writeReviews(List<DiningReview> reviews, Set<Long> changedRestaurants) {
+        diningReviewRepository.saveAll(reviews);
+        Map<Long, RatingAggregator> batchChanges = new HashMap<>();
+        for (DiningReview review : reviews) {
+            textSearchIndex.index(review);
+            if (review.getReviewStatus() == ReviewStatus.APPROVED) {
+                batchChanges.computeIfAbsent(review.getRestaurantId(), id -> new RatingAggregator()).add(review);
+            }
+        }
+        restaurantRatingService.recordChanges(batchChanges);
+        // A batch that fails to commit is written again row by row, so its restaurants are only counted after a commit
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                changedRestaurants.addAll(batchChanges.keySet());
+            }
+        });
+    }
+
+    private static void clearId(Object value) {
+        // The failed batch left an ID and version behind; both must go for the row to be inserted afresh
+        if (value instanceof Restaurant restaurant) {
+            restaurant.setId(null);
+            restaurant.setVersion(null);
+        } else if (value instanceof DiningReview review) {
+            review.setId(null);
+            review.setVersion(null);
+        }
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    private static boolean isRating(Double rating) {
+        return rating == null || (rating >= 1 && rating <= 5);
+    }
+
+    private static boolean isScore(Long score) {
+        return score == null || (score >= 1 && score <= 5);
+    }
+
+    private static String saveFailure(RuntimeException e) {
+        return e instanceof DataIntegrityViolationException
+                ? "could not be saved: it breaks a database constraint"
+                : "could not be saved";
+    }
+
+    private static String message(Exception e) {
+        if (e instanceof JacksonException jacksonException) {
+            return jacksonException.getOriginalMessage();
+        }
+        return e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+    }
+
+    /**
+     * A parsed row: either a value, or the reason it could not be parsed.
+     */
+    private record Row<T>(long line, T value, String error) {
+    }
+
+    private interface RowReader<T> extends AutoCloseable {
+
+        /**
+         * Returns the next row, or null at the end of the file.
+         */
+        Row<T> next() throws IOException;
+
+        @Override
+        void close() throws IOException;
+    }
+
+    private final class NdjsonRows<T> implements RowReader<T> {
+
+        private final BufferedReader reader;
+        private final ObjectReader rowReader;
+        private long line;
+
+        NdjsonRows(InputStream in, Class<T> type) {
+            this.reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            this.rowReader = objectMapper.readerFor(type);
+        }
+
+        @Override
+        public Row<T> next() throws IOException {
+            String text;
+            do {
+                text = reader.readLine();
+                line++;
+            } while (text != null && text.isBlank());
+            if (text == null) {
+                return null;
+            }
+            try {
+                return new Row<>(line, rowReader.readValue(text), null);
+            } catch (JacksonException e) {
+                return new Row<>(line, null, message(e));
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+
+    private final class CsvRows<T> implements RowReader<T> {
+
+        private final MappingIterator<Map<String, String>> rows;
+        private final Class<T> type;
+
+        CsvRows(InputStream in, Class<T> type) {
+            this.rows = csvReader.readValues(new InputStreamReader(in, StandardCharsets.UTF_8));
+            this.type = type;
+        }
+
+        @Override
+        public Row<T> next() {
+            if (!rows.hasNextValue()) {
+                return null;
+            }
+            long line = rows.currentLocation().getLineNr();
+            Map<String, String> fields = rows.nextValue();
+            // An empty cell means the field is absent, as a missing key would in NDJSON
+            fields.values().removeIf(String::isBlank);
+            try {
+                return new Row<>(line, objectMapper.convertValue(fields, type), null);
+            } catch (JacksonException | IllegalArgumentException e) {
+                return new Row<>(line, null, message(e));
+            }
+        }
+
+        @Override
+        public void close() {
+            rows.close();
+        }
+    }
+
+    private static final class Progress {
+
+        private final Listener listener;
+        private long rowsRead;
+        private long imported;
+        private long rejected;
+
+        Progress(Listener listener) {
+            this.listener = listener;
+        }
+
+        void reject(long line, String error) {
+            rejected++;
+            listener.rejected(new ImportRowError(line, error));
+        }
+
+        ImportSummary summary(boolean complete) {
+            return new ImportSummary(rowsRead, imported, rejected, complete);
+        }
+    }
+}
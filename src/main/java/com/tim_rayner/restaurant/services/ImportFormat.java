@@ -0,0 +1,37 @@
+package com.tim_rayner.restaurant.services;
+
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * File formats accepted by the {@link BulkImporter}.
+ */
+public enum ImportFormat {
+    /** One JSON object per line, with the same fields as the API accepts. */
+    NDJSON,
+    /** A header row naming the fields, then one row per record. */
+    CSV;
+
+    public static Optional<ImportFormat> fromMediaType(String mediaType) {
+        switch (mediaType.toLowerCase(Locale.ROOT)) {
+            case "application/x-ndjson":
+            case "application/jsonl":
+                return Optional.of(NDJSON);
+            case "text/csv":
+                return Optional.of(CSV);
+            default:
+                return Optional.empty();
+        }
+    }
+
+    public static Optional<ImportFormat> fromFileName(String fileName) {
+        String name = fileName.toLowerCase(Locale.ROOT);
+        if (name.endsWith(".ndjson") || name.endsWith(".jsonl")) {
+            return Optional.of(NDJSON);
+        }
+        if (name.endsWith(".csv")) {
+            return Optional.of(CSV);
+        }
+        return Optional.empty();
+    }
+}
@@ -0,0 +1,196 @@
+package com.tim_rayner.restaurant.services;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.tim_rayner.restaurant.entities.Allergen;
+import com.tim_rayner.restaurant.entities.RestaurantSummary;
+import com.tim_rayner.restaurant.responses.NearbyRestaurant;
+import com.tim_rayner.restaurant.responses.Recommendation;
+
+/**
+ * In-memory spatial grid of restaurants, placed at their postcode district's centroid, for
+ * "within N km" searches without a database scan. The grid's cells are squares of latitude and
+ * longitude; a search only visits the cells overlapping the circle's bounding box.
+ * Fed by {@link AllergyLeaderboard}, which hands over the same snapshots it indexes, so both
+ * indexes change together. Restaurants whose postcode is not in the centroid table are left out.
+ * <p>
+ * Each restaurant also carries its recommendation score for every one of the {@link Allergen#MASKS}
+ * allergy combinations, worked out when its ratings change, so recommendations only look scores up.
+ */
+@Component
+public class NearbyRestaurantIndex {
+
+    private static final double KM_PER_DEGREE = Math.PI * GeoPoint.EARTH_RADIUS_KM / 180;
+
+    private final PostcodeCentroids postcodeCentroids;
+    private final double cellDegrees;
+    private final double maxRadiusKm;
+
+    // Cell contents are immutable and replaced as a whole, so searches never need a lock
+    private final Map<Long, List<Located>> cells = new ConcurrentHashMap<>();
+    private final Map<Long, Located> byId = new ConcurrentHashMap<>();
+
+    public NearbyRestaurantIndex(
+            PostcodeCentroids postcodeCentroids,
+            @Value("${restaurant.nearby.cell-km:2}") double cellKm,
+            @Value("${restaurant.nearby.max-radius-km:50}") double maxRadiusKm) {
+        this.postcodeCentroids = postcodeCentroids;
+        this.cellDegrees = cellKm / KM_PER_DEGREE;
+        this.maxRadiusKm = maxRadiusKm;
+    }
+
+    public double getMaxRadiusKm() {
+        return maxRadiusKm;
+    }
+
+    /**
+     * Finds the restaurants within the radius that are rated for every given allergen, ordered by
+     * their combined rating (highest first), then by distance and then by ID.
+     */
+    public List<NearbyRestaurant> search(GeoPoint origin, double radiusKm, Set<Allergen> allergens, int limit) {
+        List<NearbyRestaurant> matches = new ArrayList<>();
+        forEachWithin(origin, radiusKm, (located, distance) -> {
+            if (isRatedForAll(located.restaurant(), allergens)) {
+                matches.add(new NearbyRestaurant(located.restaurant(), RatingAggregator.roundToTwoDecimals(distance)));
+            }
+        });
+
+        matches.sort(Comparator
+                .comparingDouble((NearbyRestaurant match) ->
+                        AllergyLeaderboard.combinedScore(match.getRestaurant(), allergens))
+                .reversed()
+                .thenComparingDouble(NearbyRestaurant::getDistanceKm)
+                .thenComparing(match -> match.getRestaurant().getId()));
+        return matches.size() > limit ? List.copyOf(matches.subList(0, limit)) : matches;
+    }
+
+    /**
+     * Recommends the restaurants within the radius for someone with the given allergies, by their
+     * precomputed score for that combination (highest first), then by distance and then by ID.
+     * Restaurants without a rating for one of the allergies are left out.
+     */
+    public List<Recommendation> recommend(GeoPoint origin, double radiusKm, Set<Allergen> allergies, int limit) {
+        int mask = Allergen.mask(allergies);
+        List<Recommendation> matches = new ArrayList<>();
+        forEachWithin(origin, radiusKm, (located, distance) -> {
+            double score = located.scores()[mask];
+            if (!Double.isNaN(score)) {
+                matches.add(new Recommendation(located.restaurant(), RatingAggregator.roundToTwoDecimals(distance), score));
+            }
+        });
+
+        matches.sort(Comparator
+                .comparingDouble(Recommendation::getScore)
+                .reversed()
+                .thenComparingDouble(Recommendation::getDistanceKm)
+                .thenComparing(match -> match.getRestaurant().getId()));
+        return matches.size() > limit ? List.copyOf(matches.subList(0, limit)) : matches;
+    }
+
+    /**
+     * Places the restaurant at its postcode's centroid, replacing any earlier position.
+     * Called by {@link AllergyLeaderboard} with its own snapshot, under its lock.
+     */
+    void put(RestaurantSummary restaurant) {
+        Located previous = byId.remove(restaurant.getId());
+        if (previous != null) {
+            cells.computeIfPresent(previous.cell(), (key, contents) -> without(contents, restaurant.getId()));
+        }
+
+        Optional<GeoPoint> point = postcodeCentroids.locate(restaurant.getPostCode());
+        if (point.isEmpty()) {
+            return;
+        }
+        Located located = new Located(restaurant, point.get(),
+                key(cell(point.get().latitude()), cell(point.get().longitude())), scores(restaurant));
+        byId.put(restaurant.getId(), located);
+        cells.compute(located.cell(), (key, contents) -> {
+            List<Located> next = contents == null ? new ArrayList<>() : new ArrayList<>(contents);
+            next.add(located);
+            return List.copyOf(next);
+        });
+    }
+
+    private void forEachWithin(GeoPoint origin, double radiusKm, BiConsumer<Located, Double> action) {
+        double latitudeSpan = radiusKm / KM_PER_DEGREE;
+        // Degrees of longitude shrink towards the poles; widen the box for the edge furthest from the equator
+        double widestLatitude = Math.min(89, Math.abs(origin.latitude()) + latitudeSpan);
+        double longitudeSpan = radiusKm / (KM_PER_DEGREE * Math.cos(Math.toRadians(widestLatitude)));
+
+        for (int row = cell(origin.latitude() - latitudeSpan); row <= cell(origin.latitude() + latitudeSpan); row++) {
+            for (int column = cell(origin.longitude() - longitudeSpan);
+                    column <= cell(origin.longitude() + longitudeSpan); column++) {
+                for (Located located : cells.getOrDefault(key(row, column), List.of())) {
+                    double distance = origin.distanceKm(located.point());
+                    if (distance <= radiusKm) {
+                        action.accept(located, distance);
+                    }
+                }
+            }
+        }
+    }
+
+    void clear() {
+        cells.clear();
+        byId.clear();
+    }
+
+    private int cell(double degrees) {
+        return (int) Math.floor(degrees / cellDegrees);
+    }
+
+    private static long key(int row, int column) {
+        return ((long) row << 32) | (column & 0xffffffffL);
+    }
+
+    private static boolean isRatedForAll(RestaurantSummary restaurant, Set<Allergen> allergens) {
+        return allergens.stream().allMatch(allergen -> AllergyLeaderboard.rating(restaurant, allergen) != null);
+    }
+
+    /**
+     * The restaurant's recommendation score for each allergy mask: the average of its ratings for
+     * the allergies in the mask, or NaN if it lacks one of them. Mask 0, no allergies, uses the
+     * overall rating.
+     */
+    static double[] scores(RestaurantSummary restaurant) {
+        double[] scores = new double[Allergen.MASKS];
+        Double overall = restaurant.getOverallRating();
+        scores[0] = overall == null ? Double.NaN : overall;
+        for (int mask = 1; mask < Allergen.MASKS; mask++) {
+            double sum = 0;
+            int count = 0;
+            for (Allergen allergen : Allergen.values()) {
+                Double rating = AllergyLeaderboard.rating(restaurant, allergen);
+                if (allergen.in(mask) && rating == null) {
+                    sum = Double.NaN;
+                    break;
+                }
+                if (allergen.in(mask)) {
+                    sum += rating;
+                    count++;
+                }
+            }
+            scores[mask] = Double.isNaN(sum) ? Double.NaN : RatingAggregator.roundToTwoDecimals(sum / count);
+        }
+        return scores;
+    }
+
+    private static List<Located> without(List<Located> contents, Long id) {
+        List<Located> remaining = new ArrayList<>(contents);
+        remaining.removeIf(located -> located.restaurant().getId().equals(id));
+        return remaining.isEmpty() ? null : List.copyOf(remaining);
+    }
+
+    private record Located(RestaurantSummary restaurant, GeoPoint point, long cell, double[] scores) {
+    }
+}
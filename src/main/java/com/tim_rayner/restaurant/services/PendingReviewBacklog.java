@@ -0,0 +1,84 @@
+package com.tim_rayner.restaurant.services;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.tim_rayner.restaurant.entities.ReviewStatus;
+import com.tim_rayner.restaurant.repositories.DiningReviewRepository;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Publishes the moderation backlog, the number of reviews waiting in PENDING, as the gauge
+ * {@code restaurant.reviews.pending}. The count is taken from the status index on a background thread
+ * every refresh interval, so a scrape never queries the database and the gauge is at most that old.
+ * Reviews still in the write-behind queue are not in it; {@code restaurant.reviews.queue.depth} has those.
+ */
+@Component
+public class PendingReviewBacklog implements MeterBinder, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(PendingReviewBacklog.class);
+
+    private final DiningReviewRepository diningReviewRepository;
+    private final Duration refreshInterval;
+    private final AtomicLong pendingReviews = new AtomicLong();
+    private final ScheduledExecutorService executor;
+
+    public PendingReviewBacklog(
+            DiningReviewRepository diningReviewRepository,
+            @Value("${restaurant.reviews.pending.refresh-interval:PT30S}") Duration refreshInterval) {
+        this.diningReviewRepository = diningReviewRepository;
+        this.refreshInterval = refreshInterval;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "pending-review-count");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("restaurant.reviews.pending", pendingReviews, AtomicLong::get)
+                .description("Reviews waiting for moderation, as of the last refresh")
+                .register(registry);
+    }
+
+    /**
+     * Starts counting once the seed data or any startup import is in.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        executor.scheduleWithFixedDelay(this::refresh, 0, refreshInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Counts the pending reviews now, on the calling thread.
+     */
+    public long refresh() {
+        try {
+            pendingReviews.set(diningReviewRepository.countByReviewStatus(ReviewStatus.PENDING));
+        } catch (RuntimeException e) {
+            // Keep the last count and try again next time; an exception would end the schedule
+            log.warn("Could not count the pending reviews", e);
+        }
+        return pendingReviews.get();
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,86 @@
+package com.tim_rayner.restaurant.services;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+/**
+ * Offline table of postcode district centroids, read once from a bundled CSV of
+ * {@code outcode,latitude,longitude} rows. A full postcode is located by its outward code,
+ * so "SW1A 1AA" and "SW1A 2BB" share a position.
+ * <p>
+ * The bundled table is partial: it covers about 210 districts, mostly in London and the larger
+ * cities, out of roughly 3,000. A postcode in any other district cannot be located. A complete
+ * extract in the same layout can be dropped in through restaurant.nearby.centroids.
+ */
+@Component
+public class PostcodeCentroids {
+
+    private final Map<String, GeoPoint> centroids;
+
+    public PostcodeCentroids(
+            @Value("${restaurant.nearby.centroids:classpath:geo/outcode-centroids.csv}") Resource table) {
+        this.centroids = read(table);
+    }
+
+    /**
+     * Finds the centroid of a postcode's district, accepting either a full postcode in any case
+     * and spacing or just the outward code.
+     */
+    public Optional<GeoPoint> locate(String postCode) {
+        String outcode = outcode(postCode);
+        return outcode == null ? Optional.empty() : Optional.ofNullable(centroids.get(outcode));
+    }
+
+    /**
+     * Every outward code in the table.
+     */
+    public List<String> outcodes() {
+        return centroids.keySet().stream().sorted().toList();
+    }
+
+    /**
+     * The outward code of a postcode, in upper case without spaces, or null if it is blank.
+     */
+    public static String outcode(String postCode) {
+        if (postCode == null) {
+            return null;
+        }
+        String compact = postCode.replaceAll("\\s+", "").toUpperCase(Locale.ROOT);
+        // The inward code is always a digit followed by two letters
+        if (compact.length() >= 5 && compact.substring(compact.length() - 3).matches("[0-9][A-Z]{2}")) {
+            return compact.substring(0, compact.length() - 3);
+        }
+        return compact.isEmpty() ? null : compact;
+    }
+
+    private static Map<String, GeoPoint> read(Resource table) {
+        Map<String, GeoPoint> centroids = new HashMap<>();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(table.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank() || line.startsWith("#") || line.startsWith("outcode,")) {
+                    continue;
+                }
+                String[] columns = line.split(",");
+                centroids.put(columns[0].trim().toUpperCase(Locale.ROOT),
+                        new GeoPoint(Double.parseDouble(columns[1].trim()), Double.parseDouble(columns[2].trim())));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read postcode centroids from " + table, e);
+        }
+        return Map.copyOf(centroids);
+    }
+}
@@ -0,0 +1,217 @@
+package com.tim_rayner.restaurant.services;
+
+import com.tim_rayner.restaurant.entities.DiningReview;
+import com.tim_rayner.restaurant.entities.RatingChange;
+import com.tim_rayner.restaurant.entities.Restaurant;
+import com.tim_rayner.restaurant.repositories.ScoreTotals;
+
+/**
+ * Accumulates a restaurant's approved scores in primitive running totals and publishes its ratings.
+ * All three allergens are summed in one pass with no allocation per review, and averages are rounded
+ * HALF_UP to two decimal places without BigDecimal, with the same results as RatingCalculator, the
+ * BigDecimal reference the tests and benchmarks compare it with.
+ * It also collects score changes, added and removed reviews, to be stored as a {@link RatingChange}
+ * and applied to the restaurant's totals later.
+ */
+public final class RatingAggregator {
+
+    private long peanutSum;
+    private long peanutCount;
+    private long eggSum;
+    private long eggCount;
+    private long dairySum;
+    private long dairyCount;
+
+    /**
+     * Sums the scores of the given reviews, which are taken to be the restaurant's approved reviews.
+     */
+    public static RatingAggregator of(Iterable<DiningReview> reviews) {
+        RatingAggregator aggregator = new RatingAggregator();
+        for (DiningReview review : reviews) {
+            aggregator.add(review);
+        }
+        return aggregator;
+    }
+
+    /**
+     * Starts from totals the database has already summed; missing totals count as zero.
+     */
+    public static RatingAggregator of(ScoreTotals totals) {
+        RatingAggregator aggregator = new RatingAggregator();
+        aggregator.peanutSum = valueOf(totals.peanutSum());
+        aggregator.peanutCount = valueOf(totals.peanutCount());
+        aggregator.eggSum = valueOf(totals.eggSum());
+        aggregator.eggCount = valueOf(totals.eggCount());
+        aggregator.dairySum = valueOf(totals.dairySum());
+        aggregator.dairyCount = valueOf(totals.dairyCount());
+        return aggregator;
+    }
+
+    /**
+     * Starts from the running totals stored on the restaurant; missing totals count as zero.
+     */
+    public static RatingAggregator fromRunningTotals(Restaurant restaurant) {
+        RatingAggregator aggregator = new RatingAggregator();
+        aggregator.peanutSum = valueOf(restaurant.getPeanutScoreSum());
+        aggregator.peanutCount = valueOf(restaurant.getPeanutScoreCount());
+        aggregator.eggSum = valueOf(restaurant.getEggScoreSum());
+        aggregator.eggCount = valueOf(restaurant.getEggScoreCount());
+        aggregator.dairySum = valueOf(restaurant.getDairyScoreSum());
+        aggregator.dairyCount = valueOf(restaurant.getDairyScoreCount());
+        return aggregator;
+    }
+
+    public void add(DiningReview review) {
+        accumulate(review, 1);
+    }
+
+    public void remove(DiningReview review) {
+        accumulate(review, -1);
+    }
+
+    /**
+     * Adds (direction 1) or removes (direction -1) the review's scores from the totals.
+     */
+    public void accumulate(DiningReview review, int direction) {
+        Long peanut = review.getPeanutScore();
+        if (peanut != null) {
+            peanutSum += direction * peanut;
+            peanutCount += direction;
+        }
+        Long egg = review.getEggScore();
+        if (egg != null) {
+            eggSum += direction * egg;
+            eggCount += direction;
+        }
+        Long dairy = review.getDairyScore();
+        if (dairy != null) {
+            dairySum += direction * dairy;
+            dairyCount += direction;
+        }
+    }
+
+    /**
+     * Adds another aggregator's totals to these, e.g. score changes to the restaurant's stored totals.
+     */
+    public void addAll(RatingAggregator other) {
+        peanutSum += other.peanutSum;
+        peanutCount += other.peanutCount;
+        eggSum += other.eggSum;
+        eggCount += other.eggCount;
+        dairySum += other.dairySum;
+        dairyCount += other.dairyCount;
+    }
+
+    /**
+     * Adds a stored score change to these totals.
+     */
+    public void addAll(RatingChange change) {
+        peanutSum += change.getPeanutScoreSum();
+        peanutCount += change.getPeanutScoreCount();
+        eggSum += change.getEggScoreSum();
+        eggCount += change.getEggScoreCount();
+        dairySum += change.getDairyScoreSum();
+        dairyCount += change.getDairyScoreCount();
+    }
+
+    /**
+     * These totals as a score change to be stored for the restaurant.
+     */
+    public RatingChange toChange(Long restaurantId) {
+        RatingChange change = new RatingChange();
+        change.setRestaurantId(restaurantId);
+        change.setPeanutScoreSum(peanutSum);
+        change.setPeanutScoreCount(peanutCount);
+        change.setEggScoreSum(eggSum);
+        change.setEggScoreCount(eggCount);
+        change.setDairyScoreSum(dairySum);
+        change.setDairyScoreCount(dairyCount);
+        return change;
+    }
+
+    /**
+     * Whether every total is zero, as it is for no reviews or for changes that cancel each other out.
+     */
+    public boolean isEmpty() {
+        return peanutSum == 0 && peanutCount == 0
+                && eggSum == 0 && eggCount == 0
+                && dairySum == 0 && dairyCount == 0;
+    }
+
+    /**
+     * Stores the running totals on the restaurant and republishes its allergen and overall ratings.
+     */
+    public void applyTo(Restaurant restaurant) {
+        restaurant.setPeanutScoreSum(peanutSum);
+        restaurant.setPeanutScoreCount(peanutCount);
+        restaurant.setEggScoreSum(eggSum);
+        restaurant.setEggScoreCount(eggCount);
+        restaurant.setDairyScoreSum(dairySum);
+        restaurant.setDairyScoreCount(dairyCount);
+        
+        restaurant.setPeanutRating(getPeanutRating());
+        restaurant.setEggRating(getEggRating());
+        restaurant.setDairyRating(getDairyRating());
+        restaurant.setOverallRating(getOverallRating());
+    }
+
+    public Double getPeanutRating() {
+        return peanutCount == 0 ? null : average(peanutSum, peanutCount);
+    }
+
+    public Double getEggRating() {
+        return eggCount == 0 ? null : average(eggSum, eggCount);
+    }
+
+    public Double getDairyRating() {
+        return dairyCount == 0 ? null : average(dairySum, dairyCount);
+    }
+
+    /**
+     * Averages whichever allergen ratings are present, or null if none are.
+     */
+    public Double getOverallRating() {
+        double sum = 0.0;
+        int count = 0;
+        
+        // Same order of double additions as the reference implementation, so the rounded result is identical
+        if (peanutCount != 0) {
+            sum += average(peanutSum, peanutCount);
+            count++;
+        }
+        if (eggCount != 0) {
+            sum += average(eggSum, eggCount);
+            count++;
+        }
+        if (dairyCount != 0) {
+            sum += average(dairySum, dairyCount);
+            count++;
+        }
+        
+        return count == 0 ? null : roundToTwoDecimals(sum / count);
+    }
+
+    private static double average(long sum, long count) {
+        return roundToTwoDecimals((double) sum / count);
+    }
+
+    /**
+     * Rounds HALF_UP to two decimal places exactly as {@code BigDecimal.valueOf(value).setScale(2, HALF_UP)},
+     * which rounds the shortest decimal form of the double. That form only differs from the double's exact
+     * value across a midpoint when the double is the nearest one to the midpoint, which rounds up.
+     */
+    public static double roundToTwoDecimals(double value) {
+        if (value < 0) {
+            return -roundToTwoDecimals(-value);
+        }
+        double hundredths = Math.floor(value * 100);
+        // value * 100 may itself round onto a neighbouring hundredth; the value then sits right next to
+        // a hundredth and far from either midpoint, so comparing against this one still rounds correctly
+        double midpoint = (2 * hundredths + 1) / 200;
+        return (value >= midpoint ? hundredths + 1 : hundredths) / 100;
+    }
+
+    private static long valueOf(Long total) {
+        return total == null ? 0 : total;
+    }
+}
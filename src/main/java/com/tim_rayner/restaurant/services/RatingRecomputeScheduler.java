@@ -0,0 +1,269 @@
+package com.tim_rayner.restaurant.services;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Single-flight scheduler for rating recomputes, keyed by restaurant ID. Each recompute applies every score
+ * change recorded for the restaurant so far (see {@link RestaurantRatingService}). Requests for a restaurant
+ * whose recompute has not started yet share it, and requests that arrive while one is running share a single
+ * follow-up run, so a burst of approvals costs one or two small updates however large it is. A restaurant
+ * never has two recomputes racing to save it, while different restaurants are recomputed in parallel on a
+ * fixed pool of threads.
+ * <p>
+ * The changes stay recorded until a recompute applies them, so nothing is lost when one fails or the
+ * application stops: a failed recompute is requested again after a delay, and at startup every restaurant
+ * with recorded changes is recomputed.
+ */
+@Component
+public class RatingRecomputeScheduler implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(RatingRecomputeScheduler.class);
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final RestaurantRatingService restaurantRatingService;
+    private final Duration waitTimeout;
+    private final Duration retryDelay;
+    private final ExecutorService executor;
+    private final Map<Long, Flight> flights = new ConcurrentHashMap<>();
+    private final AtomicLong completedRecomputes = new AtomicLong();
+    private final Timer recomputeTimer;
+    private final Counter requestCounter;
+
+    public RatingRecomputeScheduler(
+            RestaurantRatingService restaurantRatingService,
+            MeterRegistry meterRegistry,
+            @Value("${restaurant.ratings.recompute-threads:4}") int threads,
+            @Value("${restaurant.ratings.wait-timeout:PT10S}") Duration waitTimeout,
+            @Value("${restaurant.ratings.retry-delay:PT30S}") Duration retryDelay) {
+        this.restaurantRatingService = restaurantRatingService;
+        this.waitTimeout = waitTimeout;
+        this.retryDelay = retryDelay;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "rating-recompute-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        
+        this.recomputeTimer = Timer.builder("restaurant.ratings.recompute")
+                .description("Time to recompute one restaurant's ratings, per attempt")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.requestCounter = Counter.builder("restaurant.ratings.recompute.requests")
+                .description("Recomputes requested, before coalescing")
+                .register(meterRegistry);
+        Gauge.builder("restaurant.ratings.recompute.restaurants", flights, Map::size)
+                .description("Restaurants with a recompute running or waiting")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Requests that the restaurant's recorded score changes be applied to its ratings. Inside a
+     * transaction the request is only made once the transaction commits, so that it sees the changes
+     * the transaction recorded; do not wait on the result before then.
+     *
+     * @return completes once a recompute that started after the request has committed
+     */
+    public CompletableFuture<Void> request(Long restaurantId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return enqueue(restaurantId);
+        }
+
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    // Nothing was recorded, so the ratings are already current
+                    result.complete(null);
+                    return;
+                }
+                enqueue(restaurantId).whenComplete((ignored, failure) -> {
+                    if (failure != null) {
+                        result.completeExceptionally(failure);
+                    } else {
+                        result.complete(null);
+                    }
+                });
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Requests that each restaurant's recorded score changes be applied and waits for them, so the
+     * caller can read its own changes back. Must not be called inside a transaction. Gives up waiting
+     * after the configured timeout, leaving the recomputes to finish in the background; a failed one
+     * is retried later, so the ratings are eventually consistent with the recorded changes either way.
+     *
+     * @return the restaurants whose ratings are not yet up to date: still recomputing, or waiting to retry
+     */
+    public Set<Long> recomputeAndWait(Collection<Long> restaurantIds) {
+        Map<Long, CompletableFuture<Void>> recomputes = new LinkedHashMap<>();
+        restaurantIds.forEach(restaurantId -> recomputes.put(restaurantId, request(restaurantId)));
+        try {
+            CompletableFuture.allOf(recomputes.values().toArray(CompletableFuture[]::new))
+                    .get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.warn("Rating recomputes for {} restaurants still running after {}", recomputes.size(), waitTimeout);
+        } catch (ExecutionException e) {
+            log.warn("Rating recompute failed", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return recomputes.entrySet().stream()
+                .filter(entry -> !entry.getValue().isDone() || entry.getValue().isCompletedExceptionally())
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * Recomputes the restaurants whose recorded changes were not applied before the last shutdown.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void recomputePending() {
+        restaurantRatingService.restaurantsWithPendingChanges().forEach(this::enqueue);
+    }
+
+    /**
+     * The number of recomputes run since startup, however many requests each one served.
+     */
+    public long completedRecomputes() {
+        return completedRecomputes.get();
+    }
+
+    private CompletableFuture<Void> enqueue(Long restaurantId) {
+        requestCounter.increment();
+        // Work out the request's run and whether a runner must be started in one atomic step,
+        // so a runner finishing at the same moment cannot strand the request
+        CompletableFuture<Void>[] joined = newFutureHolder();
+        boolean[] start = new boolean[1];
+        flights.compute(restaurantId, (id, flight) -> {
+            if (flight == null) {
+                flight = new Flight();
+                start[0] = true;
+            }
+            if (flight.next == null) {
+                flight.next = new CompletableFuture<>();
+            }
+            joined[0] = flight.next;
+            return flight;
+        });
+
+        if (start[0]) {
+            try {
+                executor.execute(() -> run(restaurantId));
+            } catch (RejectedExecutionException e) {
+                flights.remove(restaurantId);
+                joined[0].completeExceptionally(e);
+            }
+        }
+        return joined[0];
+    }
+
+    /**
+     * Runs the restaurant's recomputes until no more have been requested. Only one runner exists per
+     * restaurant at a time: it is started by the request that creates the flight and ends by removing it.
+     */
+    private void run(Long restaurantId) {
+        CompletableFuture<Void> current;
+        while ((current = take(restaurantId)) != null) {
+            try {
+                recompute(restaurantId);
+                current.complete(null);
+            } catch (RuntimeException e) {
+                log.warn("Rating recompute failed for restaurant {}, retrying in {}", restaurantId, retryDelay, e);
+                current.completeExceptionally(e);
+                // The changes are still recorded, so a later run applies them
+                CompletableFuture.delayedExecutor(retryDelay.toMillis(), TimeUnit.MILLISECONDS)
+                        .execute(() -> enqueue(restaurantId));
+            }
+        }
+    }
+
+    /**
+     * Takes the requests waiting for the next run, or removes the flight if there are none.
+     */
+    private CompletableFuture<Void> take(Long restaurantId) {
+        CompletableFuture<Void>[] taken = newFutureHolder();
+        flights.compute(restaurantId, (id, flight) -> {
+            if (flight.next == null) {
+                return null;
+            }
+            taken[0] = flight.next;
+            flight.next = null;
+            return flight;
+        });
+        return taken[0];
+    }
+
+    private void recompute(Long restaurantId) {
+        for (int attempt = 1;; attempt++) {
+            try {
+                recomputeTimer.record(() -> restaurantRatingService.recompute(restaurantId));
+                completedRecomputes.incrementAndGet();
+                return;
+            } catch (OptimisticLockingFailureException e) {
+                // Someone else saved the restaurant in the meantime; the failed attempt rolled back,
+                // so the changes are still recorded and are added again to a fresh read of the totals
+                if (attempt == MAX_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static CompletableFuture<Void>[] newFutureHolder() {
+        return new CompletableFuture[1];
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(waitTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+            log.warn("Rating recomputes still running at shutdown");
+        }
+    }
+
+    /**
+     * A restaurant with a runner. {@code next} is the run that requests arriving now will share,
+     * or null if none has been requested since the current run started.
+     */
+    private static final class Flight {
+
+        private CompletableFuture<Void> next;
+    }
+}
@@ -0,0 +1,72 @@
+package com.tim_rayner.restaurant.services;
+
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.tim_rayner.restaurant.entities.Restaurant;
+import com.tim_rayner.restaurant.repositories.RestaurantRepository;
+
+/**
+ * Size-bounded, read-through cache of restaurants by ID for the public read path.
+ * A restaurant only changes when its ratings are recomputed, which must call {@link #evict(Long)}.
+ * Cached instances are shared between requests and must not be modified.
+ */
+@Component
+public class RestaurantCache {
+
+    private final RestaurantRepository restaurantRepository;
+    private final Cache<Long, Restaurant> cache;
+
+    public RestaurantCache(
+            RestaurantRepository restaurantRepository,
+            @Value("${restaurant.cache.maximum-size:10000}") long maximumSize) {
+        this.restaurantRepository = restaurantRepository;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Returns the restaurant from the cache, loading it from the repository on a miss.
+     * Unknown IDs are not cached.
+     */
+    public Optional<Restaurant> findById(Long id) {
+        return Optional.ofNullable(cache.get(id, key -> restaurantRepository.findById(key).orElse(null)));
+    }
+
+    /**
+     * Drops the restaurant from the cache. Inside a transaction it is dropped again after commit,
+     * so a read that raced the write cannot leave the old ratings cached.
+     */
+    public void evict(Long id) {
+        cache.invalidate(id);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cache.invalidate(id);
+                }
+            });
+        }
+    }
+
+    public void evictAll() {
+        cache.invalidateAll();
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+}
@@ -0,0 +1,108 @@
+package com.tim_rayner.restaurant.services;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.tim_rayner.restaurant.entities.RatingChange;
+import com.tim_rayner.restaurant.entities.Restaurant;
+import com.tim_rayner.restaurant.events.RestaurantChanged;
+import com.tim_rayner.restaurant.repositories.RatingChangeRepository;
+import com.tim_rayner.restaurant.repositories.RestaurantRepository;
+
+/**
+ * Keeps a restaurant's running score totals and published ratings in step with its approved reviews.
+ * Whatever changes the reviews records their score changes in the same transaction; recomputes then
+ * add the recorded changes to the totals and delete them. Go through {@link RatingRecomputeScheduler}
+ * rather than calling {@link #recompute} directly: it runs at most one recompute per restaurant at a
+ * time and lets the requests that arrive together share one.
+ */
+@Service
+public class RestaurantRatingService {
+
+    private final RatingChangeRepository ratingChangeRepository;
+    private final RestaurantRepository restaurantRepository;
+    private final RestaurantCache restaurantCache;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public RestaurantRatingService(
+            RatingChangeRepository ratingChangeRepository,
+            RestaurantRepository restaurantRepository,
+            RestaurantCache restaurantCache,
+            ApplicationEventPublisher eventPublisher) {
+        this.ratingChangeRepository = ratingChangeRepository;
+        this.restaurantRepository = restaurantRepository;
+        this.restaurantCache = restaurantCache;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Records each restaurant's score changes, in the caller's transaction, so that they commit or
+     * roll back with the review changes they come from. Changes that cancel out are not recorded.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordChanges(Map<Long, RatingAggregator> changesByRestaurant) {
+        List<RatingChange> changes = changesByRestaurant.entrySet().stream()
+                .filter(entry -> !entry.getValue().isEmpty())
+                .map(entry -> entry.getValue().toChange(entry.getKey()))
+                .toList();
+        ratingChangeRepository.saveAll(changes);
+    }
+
+    /**
+     * Adds the restaurant's recorded score changes to its running totals, deletes them and saves its
+     * new ratings, without reading its reviews. A restaurant with no totals yet has them rebuilt from
+     * the sums of its approved scores, less the changes still recorded, which are then added like any
+     * others. The new ratings reach the summaries, and with them the searches, through a
+     * {@link RestaurantChanged} event. Does nothing if no changes are recorded; drops the changes of a
+     * restaurant that no longer exists.
+     */
+    @Transactional
+    public void recompute(Long restaurantId) {
+        Optional<Restaurant> found = restaurantRepository.findById(restaurantId);
+        if (found.isEmpty()) {
+            ratingChangeRepository.deleteAllByRestaurantId(restaurantId);
+            return;
+        }
+
+        Restaurant restaurant = found.get();
+        boolean rebuild = !hasRunningTotals(restaurant);
+        RatingAggregator totals = rebuild
+                ? RatingAggregator.of(ratingChangeRepository.sumApprovedScoresBeforeChanges(restaurantId))
+                : RatingAggregator.fromRunningTotals(restaurant);
+        List<RatingChange> changes = ratingChangeRepository.findByRestaurantId(restaurantId);
+        if (changes.isEmpty() && !rebuild) {
+            return;
+        }
+
+        changes.forEach(totals::addAll);
+        totals.applyTo(restaurant);
+        if (!changes.isEmpty()) {
+            ratingChangeRepository.deleteAllByIdIn(changes.stream().map(RatingChange::getId).toList());
+        }
+
+        Restaurant saved = restaurantRepository.save(restaurant);
+        restaurantCache.evict(restaurantId);
+        eventPublisher.publishEvent(new RestaurantChanged(saved.getId(), Instant.now()));
+    }
+
+    /**
+     * The restaurants with recorded changes that no recompute has applied yet.
+     */
+    @Transactional(readOnly = true)
+    public List<Long> restaurantsWithPendingChanges() {
+        return ratingChangeRepository.findRestaurantIds();
+    }
+
+    private static boolean hasRunningTotals(Restaurant restaurant) {
+        return restaurant.getPeanutScoreSum() != null && restaurant.getPeanutScoreCount() != null
+                && restaurant.getEggScoreSum() != null && restaurant.getEggScoreCount() != null
+                && restaurant.getDairyScoreSum() != null && restaurant.getDairyScoreCount() != null;
+    }
+}
@@ -0,0 +1,196 @@
+package com.tim_rayner.restaurant.services;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.tim_rayner.restaurant.entities.RestaurantSummary;
+import com.tim_rayner.restaurant.events.RestaurantChanged;
+import com.tim_rayner.restaurant.events.ReviewStatusChanged;
+import com.tim_rayner.restaurant.repositories.RestaurantSummaryRepository;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Keeps the restaurant summary read model up to date. Review status changes and restaurant changes
+ * arrive as events once their transaction has committed; the restaurants they name are refreshed
+ * on a single background thread, so writers never wait for the read side. Events for a restaurant
+ * that is already waiting share its refresh. Each refreshed summary is handed to the
+ * {@link AllergyLeaderboard}, which serves the searches. A refresh that fails leaves the restaurant
+ * waiting, still counted in the lag, and is tried again after a delay.
+ * <p>
+ * Publishes {@code restaurant.summaries.lag}, the age of the oldest change not yet projected
+ * (zero when caught up), and {@code restaurant.summaries.projection.delay}, the time from a
+ * change to its summary being written.
+ */
+@Component
+public class RestaurantSummaryProjector implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(RestaurantSummaryProjector.class);
+
+    private static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(10);
+
+    private final RestaurantSummaryRepository restaurantSummaryRepository;
+    private final AllergyLeaderboard allergyLeaderboard;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration retryDelay;
+    private final ExecutorService executor;
+    private final Timer delayTimer;
+
+    // The oldest change not yet projected for each waiting restaurant
+    private final Map<Long, Instant> pending = new ConcurrentHashMap<>();
+    // The oldest change behind the refresh in progress, if any; only the projector thread writes it
+    private volatile Instant inProgressSince;
+
+    public RestaurantSummaryProjector(
+            RestaurantSummaryRepository restaurantSummaryRepository,
+            AllergyLeaderboard allergyLeaderboard,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${restaurant.summaries.retry-delay:PT5S}") Duration retryDelay) {
+        this.restaurantSummaryRepository = restaurantSummaryRepository;
+        this.allergyLeaderboard = allergyLeaderboard;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.retryDelay = retryDelay;
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "summary-projector");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.delayTimer = Timer.builder("restaurant.summaries.projection.delay")
+                .description("Time from a restaurant or review change to its summary being written")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        Gauge.builder("restaurant.summaries.lag", this, projector -> projector.lag().toMillis() / 1000.0)
+                .description("Age of the oldest change not yet in the restaurant summaries")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("restaurant.summaries.pending", pending, Map::size)
+                .description("Restaurants waiting for their summary to be refreshed")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Rebuilds every summary, then the leaderboard from them. Data written before startup, such as
+     * the seed data or a command-line import, published no events, so this has to run before searches are served.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        Integer written = transactionTemplate.execute(status -> restaurantSummaryRepository.refreshAll());
+        log.info("Projected {} restaurant summaries", written);
+        allergyLeaderboard.rebuild();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onReviewStatusChanged(ReviewStatusChanged event) {
+        enqueue(event.restaurantId(), event.occurredAt());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRestaurantChanged(RestaurantChanged event) {
+        enqueue(event.restaurantId(), event.occurredAt());
+    }
+
+    /**
+     * How far the summaries are behind: the age of the oldest change not yet projected, or zero
+     * if every change so far has been.
+     */
+    public Duration lag() {
+        Instant oldest = inProgressSince;
+        for (Instant since : pending.values()) {
+            if (oldest == null || since.isBefore(oldest)) {
+                oldest = since;
+            }
+        }
+        return oldest == null ? Duration.ZERO : Duration.between(oldest, Instant.now());
+    }
+
+    /**
+     * Refreshes the restaurant's summary now, on the calling thread, and hands it to the leaderboard.
+     */
+    public Optional<RestaurantSummary> refresh(Long restaurantId) {
+        Optional<RestaurantSummary> summary = transactionTemplate.execute(status -> {
+            restaurantSummaryRepository.refresh(restaurantId);
+            return restaurantSummaryRepository.findById(restaurantId);
+        });
+        summary.ifPresent(allergyLeaderboard::update);
+        return summary;
+    }
+
+    private void enqueue(Long restaurantId, Instant occurredAt) {
+        boolean[] start = new boolean[1];
+        pending.compute(restaurantId, (id, since) -> {
+            start[0] = since == null;
+            return since == null || occurredAt.isBefore(since) ? occurredAt : since;
+        });
+        if (start[0]) {
+            executor.execute(() -> project(restaurantId));
+        }
+    }
+
+    private void project(Long restaurantId) {
+        // Taken off the queue before reading, so a change committed during the refresh queues another one
+        inProgressSince = pending.get(restaurantId);
+        Instant since = pending.remove(restaurantId);
+        try {
+            refresh(restaurantId);
+            delayTimer.record(Duration.between(since, Instant.now()));
+        } catch (RuntimeException e) {
+            log.warn("Summary refresh failed for restaurant {}, retrying in {}", restaurantId, retryDelay, e);
+            retryLater(restaurantId, since);
+        } finally {
+            inProgressSince = null;
+        }
+    }
+
+    /**
+     * Puts a restaurant whose refresh failed back in the queue, still dated from its oldest change,
+     * and refreshes it again after the retry delay. Changes arriving meanwhile share the retry; if one
+     * arrived during the failed refresh, its refresh is already queued and serves as the retry.
+     */
+    private void retryLater(Long restaurantId, Instant since) {
+        boolean[] schedule = new boolean[1];
+        pending.compute(restaurantId, (id, current) -> {
+            schedule[0] = current == null;
+            return current == null || since.isBefore(current) ? since : current;
+        });
+        if (schedule[0]) {
+            CompletableFuture.delayedExecutor(retryDelay.toMillis(), TimeUnit.MILLISECONDS).execute(() -> {
+                try {
+                    executor.execute(() -> project(restaurantId));
+                } catch (RejectedExecutionException e) {
+                    // Shutting down; the summaries are rebuilt at the next startup
+                }
+            });
+        }
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(SHUTDOWN_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)) {
+            log.warn("Summary refreshes still running at shutdown");
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.tim_rayner.restaurant.services;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.tim_rayner.restaurant.entities.DiningReview;
+import com.tim_rayner.restaurant.repositories.DiningReviewRepository;
+import com.tim_rayner.restaurant.responses.SubmissionStatus;
+import com.tim_rayner.restaurant.responses.SubmissionStatus.State;
+
+/**
+ * Write-behind queue for review submissions. Validated reviews are placed on a bounded in-memory
+ * queue and a single background writer saves them in batches, one transaction per batch, so a burst
+ * of submissions costs a handful of batched inserts rather than a connection per request. Hibernate
+ * writes one single-row INSERT per review and sends them as JDBC batches of hibernate.jdbc.batch_size,
+ * one round-trip per batch; it does not merge rows into multi-row INSERT statements.
+ * When the queue is full, {@link #submit(DiningReview)} refuses the review instead of blocking.
+ * On shutdown the writer drains whatever is still queued before the database goes away.
+ * The queue's depth is published as the {@code restaurant.reviews.queue.depth} gauge.
+ */
+@Component
+public class ReviewSubmissionQueue implements SmartLifecycle, MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(ReviewSubmissionQueue.class);
+
+    private final DiningReviewRepository diningReviewRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int batchSize;
+    private final BlockingQueue<Submission> queue;
+    private final Cache<String, SubmissionStatus> statuses;
+
+    private volatile boolean running;
+    private Thread writer;
+
+    public ReviewSubmissionQueue(
+            DiningReviewRepository diningReviewRepository,
+            PlatformTransactionManager transactionManager,
+            @Value("${restaurant.reviews.write-behind.enabled:false}") boolean enabled,
+            @Value("${restaurant.reviews.write-behind.capacity:10000}") int capacity,
+            @Value("${restaurant.reviews.write-behind.batch-size:500}") int batchSize,
+            @Value("${restaurant.reviews.write-behind.status-ttl:PT10M}") Duration statusTimeToLive) {
+        this.diningReviewRepository = diningReviewRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.statuses = Caffeine.newBuilder()
+                .maximumSize(capacity * 10L)
+                .expireAfterWrite(statusTimeToLive)
+                .build();
+    }
+
+    /**
+     * Whether asynchronous submission is switched on and accepting reviews.
+     */
+    public boolean isAccepting() {
+        return enabled && running;
+    }
+
+    /**
+     * Queues an already validated review for writing.
+     * 
+     * @return the tracking ID, or empty if the queue is full or not accepting reviews
+     */
+    public Optional<String> submit(DiningReview review) {
+        if (!isAccepting()) {
+            return Optional.empty();
+        }
+        
+        String trackingId = UUID.randomUUID().toString();
+        statuses.put(trackingId, new SubmissionStatus(trackingId, State.QUEUED, null));
+        if (!queue.offer(new Submission(trackingId, review))) {
+            statuses.invalidate(trackingId);
+            return Optional.empty();
+        }
+        return Optional.of(trackingId);
+    }
+
+    public Optional<SubmissionStatus> status(String trackingId) {
+        return Optional.ofNullable(statuses.getIfPresent(trackingId));
+    }
+
+    public int depth() {
+        return queue.size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("restaurant.reviews.queue.depth", queue, BlockingQueue::size)
+                .description("Review submissions queued and not yet written")
+                .register(registry);
+    }
+
+    @Override
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        writer = new Thread(this::drain, "review-write-behind");
+        writer.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writer = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Stop after the web server has stopped taking requests, and before the data source closes
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    private void drain() {
+        List<Submission> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            Submission first;
+            try {
+                first = queue.poll(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            if (first != null) {
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                write(batch);
+                batch.clear();
+            }
+        }
+        // Only reached with reviews still queued if the writer was interrupted
+        while (queue.drainTo(batch, batchSize) > 0) {
+            write(batch);
+            batch.clear();
+        }
+    }
+
+    private void write(List<Submission> batch) {
+        List<DiningReview> reviews = batch.stream().map(Submission::review).toList();
+        try {
+            transactionTemplate.executeWithoutResult(status -> diningReviewRepository.saveAll(reviews));
+            batch.forEach(this::markWritten);
+        } catch (RuntimeException e) {
+            // Fall back to one row at a time so one bad review does not lose the rest of the batch
+            log.warn("Batch of {} queued reviews failed, retrying individually", batch.size(), e);
+            for (Submission submission : batch) {
+                submission.review().setId(null);
+                submission.review().setVersion(null);
+                try {
+                    transactionTemplate.executeWithoutResult(status -> diningReviewRepository.save(submission.review()));
+                    markWritten(submission);
+                } catch (RuntimeException rowFailure) {
+                    log.warn("Queued review {} could not be written", submission.trackingId(), rowFailure);
+                    statuses.put(submission.trackingId(), new SubmissionStatus(submission.trackingId(), State.FAILED, null));
+                }
+            }
+        }
+    }
+
+    private void markWritten(Submission submission) {
+        statuses.put(submission.trackingId(),
+                new SubmissionStatus(submission.trackingId(), State.WRITTEN, submission.review().getId()));
+    }
+
+    private record Submission(String trackingId, DiningReview review) {
+    }
+}
@@ -0,0 +1,440 @@
+package com.tim_rayner.restaurant.services;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.tim_rayner.restaurant.entities.DiningReview;
+import com.tim_rayner.restaurant.entities.Restaurant;
+import com.tim_rayner.restaurant.entities.ReviewStatus;
+import com.tim_rayner.restaurant.repositories.DiningReviewRepository;
+import com.tim_rayner.restaurant.repositories.RestaurantRepository;
+import com.tim_rayner.restaurant.responses.TextSearchHit;
+
+/**
+ * In-memory inverted index over restaurant bios and the comments of approved reviews, scored with
+ * BM25. Each term maps to a posting list of the documents containing it, ordered by how much the
+ * term contributes to each document's score. A search walks its terms' lists from the top and stops
+ * as soon as no unread document could still make the results (Fagin's threshold algorithm), so it
+ * reads the heads of the lists rather than whole lists: its cost depends on how many results are
+ * asked for, not on how many reviews exist. Common English words are not indexed.
+ * <p>
+ * Built from the repositories once the application is ready, and kept current by {@link #index}
+ * whenever a restaurant is created or a review is moderated or imported. The average document
+ * length BM25 normalizes by is fixed when the index is built, so the order of every list stays valid
+ * as documents come and go.
+ */
+@Component
+public class TextSearchIndex {
+
+    private static final int FETCH_SIZE = 1000;
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    // Used until the first build measures the real average, e.g. when nothing has been loaded yet
+    private static final double DEFAULT_AVERAGE_LENGTH = 12;
+    private static final Set<String> STOP_WORDS = Set.of("a", "an", "and", "are", "as", "at", "be", "but", "by",
+            "for", "from", "had", "has", "have", "i", "in", "is", "it", "its", "my", "of", "on", "or", "our",
+            "so", "that", "the", "their", "there", "they", "this", "to", "was", "we", "were", "with", "you");
+
+    private final RestaurantRepository restaurantRepository;
+    private final DiningReviewRepository diningReviewRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Postings> postings = new HashMap<>();
+    private final Map<Long, Integer> restaurantDocuments = new HashMap<>();
+    private final Map<Long, Integer> reviewDocuments = new HashMap<>();
+    private final List<Document> documents = new ArrayList<>();
+    private final Deque<Integer> freeSlots = new ArrayDeque<>();
+    private int documentCount;
+    private double averageLength = DEFAULT_AVERAGE_LENGTH;
+    private volatile boolean loaded;
+
+    public TextSearchIndex(RestaurantRepository restaurantRepository, DiningReviewRepository diningReviewRepository) {
+        this.restaurantRepository = restaurantRepository;
+        this.diningReviewRepository = diningReviewRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            // Read everything first: the average length must be known before any impact is worked out
+            List<Text> texts = new ArrayList<>();
+            try (Stream<Restaurant> restaurants = restaurantRepository.streamAll(FETCH_SIZE)) {
+                restaurants.forEach(restaurant -> texts.add(new Text(restaurantDocuments, restaurant.getId(),
+                        restaurant.getId(), null, tokenize(restaurant.getBio()))));
+            }
+            try (Stream<DiningReview> reviews = diningReviewRepository.streamByReviewStatus(ReviewStatus.APPROVED,
+                    FETCH_SIZE)) {
+                reviews.forEach(review -> texts.add(new Text(reviewDocuments, review.getId(),
+                        review.getRestaurantId(), review.getId(), tokenize(review.getComment()))));
+            }
+
+            postings.clear();
+            restaurantDocuments.clear();
+            reviewDocuments.clear();
+            documents.clear();
+            freeSlots.clear();
+            documentCount = 0;
+            long totalLength = texts.stream().mapToLong(text -> text.tokens().size()).sum();
+            long nonEmpty = texts.stream().filter(text -> !text.tokens().isEmpty()).count();
+            averageLength = nonEmpty == 0 ? DEFAULT_AVERAGE_LENGTH : (double) totalLength / nonEmpty;
+
+            // Appending and sorting each list once is far cheaper than keeping them sorted throughout
+            texts.forEach(text -> put(text, false));
+            postings.values().forEach(Postings::sort);
+            loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Whether the index has been built. Until then it cannot answer searches.
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Indexes the restaurant's bio, replacing what was indexed for it before. Inside a transaction
+     * the change is applied after commit.
+     */
+    public void index(Restaurant restaurant) {
+        Text text = new Text(restaurantDocuments, restaurant.getId(), restaurant.getId(), null,
+                tokenize(restaurant.getBio()));
+        afterCommit(() -> update(text));
+    }
+
+    /**
+     * Indexes the review's comment if the review is approved, and removes it otherwise, so only
+     * approved comments are ever found. Inside a transaction the change is applied after commit.
+     */
+    public void index(DiningReview review) {
+        String comment = review.getReviewStatus() == ReviewStatus.APPROVED ? review.getComment() : null;
+        Text text = new Text(reviewDocuments, review.getId(), review.getRestaurantId(), review.getId(),
+                tokenize(comment));
+        afterCommit(() -> update(text));
+    }
+
+    /**
+     * Finds the best matches for the query's terms, best first. A document matching more of the
+     * terms, or rarer ones, scores higher.
+     */
+    public List<TextSearchHit> search(String query, int limit) {
+        List<String> terms = new ArrayList<>(new LinkedHashSet<>(tokenize(query)));
+
+        lock.readLock().lock();
+        try {
+            Map<String, Double> idfs = new HashMap<>();
+            List<Postings> lists = new ArrayList<>();
+            List<Double> listIdfs = new ArrayList<>();
+            for (String term : terms) {
+                Postings list = postings.get(term);
+                if (list != null) {
+                    double idf = Math.log(1 + (documentCount - list.size() + 0.5) / (list.size() + 0.5));
+                    idfs.put(term, idf);
+                    lists.add(list);
+                    listIdfs.add(idf);
+                }
+            }
+
+            // Worst of the best `limit` matches at the head, so it is the one a better match replaces
+            Comparator<Match> worstFirst = Comparator.comparingDouble(Match::score)
+                    .thenComparing(Match::slot, Comparator.reverseOrder());
+            PriorityQueue<Match> best = new PriorityQueue<>(worstFirst);
+            Set<Integer> seen = new HashSet<>();
+            List<Postings.Cursor> cursors = lists.stream().map(Postings::cursor).toList();
+
+            boolean exhausted = lists.isEmpty();
+            while (!exhausted) {
+                exhausted = true;
+                double threshold = 0;
+                for (int i = 0; i < cursors.size(); i++) {
+                    if (!cursors.get(i).hasNext()) {
+                        continue;
+                    }
+                    exhausted = false;
+                    long entry = cursors.get(i).next();
+                    // Everything further down this list contributes at most this much
+                    threshold += listIdfs.get(i) * impactOf(entry);
+
+                    int slot = slotOf(entry);
+                    if (seen.add(slot)) {
+                        best.add(new Match(slot, score(documents.get(slot), idfs)));
+                        if (best.size() > limit) {
+                            best.poll();
+                        }
+                    }
+                }
+                // No document yet unread can score more than the sum of what its terms' lists have left
+                if (best.size() == limit && best.peek().score() >= threshold) {
+                    break;
+                }
+            }
+
+            List<TextSearchHit> hits = new ArrayList<>(best.size());
+            while (!best.isEmpty()) {
+                Match match = best.poll();
+                Document document = documents.get(match.slot());
+                hits.add(new TextSearchHit(document.restaurantId(), document.reviewId(),
+                        Math.round(match.score() * 1000) / 1000.0));
+            }
+            Collections.reverse(hits);
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Splits text into lower-case words and numbers, dropping single characters and stop words.
+     * "Nut-free kitchen" becomes [nut, free, kitchen].
+     */
+    static List<String> tokenize(String text) {
+        if (text == null) {
+            return List.of();
+        }
+        return Arrays.stream(text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{Nd}]+"))
+                .filter(token -> token.length() > 1 && !STOP_WORDS.contains(token))
+                .toList();
+    }
+
+    private void update(Text text) {
+        lock.writeLock().lock();
+        try {
+            remove(text.byId(), text.id());
+            put(text, true);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void put(Text text, boolean keepSorted) {
+        if (text.tokens().isEmpty()) {
+            return;
+        }
+        Map<String, Integer> counts = new HashMap<>();
+        text.tokens().forEach(token -> counts.merge(token, 1, Integer::sum));
+        String[] terms = counts.keySet().toArray(String[]::new);
+        int[] frequencies = new int[terms.length];
+        for (int i = 0; i < terms.length; i++) {
+            frequencies[i] = counts.get(terms[i]);
+        }
+
+        Document document = new Document(text.restaurantId(), text.reviewId(), text.tokens().size(), terms, frequencies);
+        int slot = freeSlots.isEmpty() ? documents.size() : freeSlots.pop();
+        if (slot == documents.size()) {
+            documents.add(document);
+        } else {
+            documents.set(slot, document);
+        }
+        for (int i = 0; i < terms.length; i++) {
+            long entry = entry(impact(frequencies[i], document.length()), slot);
+            Postings list = postings.computeIfAbsent(terms[i], key -> new Postings());
+            if (keepSorted) {
+                list.insert(entry);
+            } else {
+                list.append(entry);
+            }
+        }
+        text.byId().put(text.id(), slot);
+        documentCount++;
+    }
+
+    private void remove(Map<Long, Integer> byId, Long id) {
+        Integer slot = byId.remove(id);
+        if (slot == null) {
+            return;
+        }
+        Document document = documents.get(slot);
+        for (int i = 0; i < document.terms().length; i++) {
+            Postings list = postings.get(document.terms()[i]);
+            list.remove(entry(impact(document.frequencies()[i], document.length()), slot));
+            if (list.size() == 0) {
+                postings.remove(document.terms()[i]);
+            }
+        }
+        documents.set(slot, null);
+        freeSlots.push(slot);
+        documentCount--;
+    }
+
+    private double score(Document document, Map<String, Double> idfs) {
+        double score = 0;
+        for (int i = 0; i < document.terms().length; i++) {
+            Double idf = idfs.get(document.terms()[i]);
+            if (idf != null) {
+                score += idf * impact(document.frequencies()[i], document.length());
+            }
+        }
+        return score;
+    }
+
+    /**
+     * The BM25 term-frequency part of a term's score in one document; the term's IDF multiplies it.
+     */
+    private float impact(int frequency, int length) {
+        return (float) (frequency * (K1 + 1) / (frequency + K1 * (1 - B + B * length / averageLength)));
+    }
+
+    // A posting packs the impact above the document slot, so sorting the longs sorts by impact.
+    // Impacts are positive, and the bits of positive floats sort in the same order as their values.
+    private static long entry(float impact, int slot) {
+        return ((long) Float.floatToIntBits(impact) << 32) | (slot & 0xffffffffL);
+    }
+
+    private static float impactOf(long entry) {
+        return Float.intBitsToFloat((int) (entry >>> 32));
+    }
+
+    private static int slotOf(long entry) {
+        return (int) entry;
+    }
+
+    private static void afterCommit(Runnable change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    change.run();
+                }
+            });
+        } else {
+            change.run();
+        }
+    }
+
+    /**
+     * A bio or comment to index, already tokenized, and the map its slot is recorded in.
+     */
+    private record Text(Map<Long, Integer> byId, Long id, Long restaurantId, Long reviewId, List<String> tokens) {
+    }
+
+    /**
+     * An indexed bio (reviewId null) or comment, with its length in terms and its distinct terms
+     * and their frequencies, which are needed to score it and to take it out of the lists again.
+     */
+    private record Document(Long restaurantId, Long reviewId, int length, String[] terms, int[] frequencies) {
+    }
+
+    private record Match(int slot, double score) {
+    }
+
+    /**
+     * The documents containing one term, in ascending order of impact, so the best are at the end.
+     * New postings go into a small sorted buffer that is merged into the main list once it grows past
+     * an eighth of it, so adding a document does not shift a long list every time.
+     */
+    private static final class Postings {
+
+        private static final int MIN_BUFFER = 64;
+
+        private long[] entries = new long[4];
+        private int size;
+        private long[] buffer = new long[0];
+        private int buffered;
+
+        int size() {
+            return size + buffered;
+        }
+
+        void append(long entry) {
+            entries = grow(entries, size);
+            entries[size++] = entry;
+        }
+
+        void sort() {
+            Arrays.sort(entries, 0, size);
+        }
+
+        void insert(long entry) {
+            int position = Arrays.binarySearch(buffer, 0, buffered, entry);
+            position = position < 0 ? -position - 1 : position;
+            buffer = grow(buffer, buffered);
+            System.arraycopy(buffer, position, buffer, position + 1, buffered - position);
+            buffer[position] = entry;
+            buffered++;
+            if (buffered > Math.max(MIN_BUFFER, size / 8)) {
+                merge();
+            }
+        }
+
+        void remove(long entry) {
+            int position = Arrays.binarySearch(buffer, 0, buffered, entry);
+            if (position >= 0) {
+                System.arraycopy(buffer, position + 1, buffer, position, buffered - position - 1);
+                buffered--;
+                return;
+            }
+            position = Arrays.binarySearch(entries, 0, size, entry);
+            if (position >= 0) {
+                System.arraycopy(entries, position + 1, entries, position, size - position - 1);
+                size--;
+            }
+        }
+
+        /**
+         * Walks the postings from the highest impact down.
+         */
+        Cursor cursor() {
+            return new Cursor();
+        }
+
+        private void merge() {
+            long[] merged = new long[Math.max(4, (size + buffered) * 5 / 4)];
+            int i = 0;
+            int j = 0;
+            int k = 0;
+            while (i < size || j < buffered) {
+                merged[k++] = j == buffered || (i < size && entries[i] <= buffer[j]) ? entries[i++] : buffer[j++];
+            }
+            entries = merged;
+            size = k;
+            buffered = 0;
+        }
+
+        private static long[] grow(long[] array, int used) {
+            return used < array.length ? array : Arrays.copyOf(array, Math.max(4, used * 2));
+        }
+
+        final class Cursor {
+
+            private int inEntries = size - 1;
+            private int inBuffer = buffered - 1;
+
+            boolean hasNext() {
+                return inEntries >= 0 || inBuffer >= 0;
+            }
+
+            long next() {
+                if (inBuffer < 0 || (inEntries >= 0 && entries[inEntries] > buffer[inBuffer])) {
+                    return entries[inEntries--];
+                }
+                return buffer[inBuffer--];
+            }
+        }
+    }
+}
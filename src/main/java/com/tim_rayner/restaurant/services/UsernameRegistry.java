@@ -0,0 +1,115 @@
+package com.tim_rayner.restaurant.services;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.tim_rayner.restaurant.repositories.UserRepository;
+
+/**
+ * Answers "does this username exist?" without a database round-trip in the common case.
+ * Every username is put in a {@link BloomFilter} once the application is ready, and new ones as users
+ * are created; the filter takes about 1.2 bytes per name however long the names are. A name the filter
+ * may contain is confirmed through the user natural-id cache, which also weeds out its false positives.
+ * A name it does not contain is checked against the database once and, if it really is unknown,
+ * remembered for a short time so repeated checks for it stay in memory too.
+ * <p>
+ * A user created by another instance is only missing from this instance's filter, so it is found by
+ * the database check, unless the name was looked up here and found unknown shortly before: then it
+ * stays unknown here until that negative entry expires (restaurant.usernames.negative-cache.ttl).
+ */
+@Component
+public class UsernameRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(UsernameRegistry.class);
+
+    private static final int LOAD_FETCH_SIZE = 1000;
+    // Room for the users created after startup before the false positive rate starts to climb
+    private static final long MINIMUM_CAPACITY = 100_000;
+
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final double falsePositiveRate;
+    private final Cache<String, Boolean> unknownUsernames;
+    // Bumped by every registration, so a lookup can tell whether one happened while it ran
+    private final AtomicLong registrations = new AtomicLong();
+    private volatile BloomFilter knownUsernames;
+
+    public UsernameRegistry(
+            UserRepository userRepository,
+            PlatformTransactionManager transactionManager,
+            @Value("${restaurant.usernames.filter.false-positive-rate:0.01}") double falsePositiveRate,
+            @Value("${restaurant.usernames.negative-cache.maximum-size:100000}") long maximumSize,
+            @Value("${restaurant.usernames.negative-cache.ttl:PT5S}") Duration timeToLive) {
+        this.userRepository = userRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.falsePositiveRate = falsePositiveRate;
+        this.knownUsernames = new BloomFilter(MINIMUM_CAPACITY, falsePositiveRate);
+        this.unknownUsernames = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(timeToLive)
+                .build();
+    }
+
+    /**
+     * Fills a new filter, sized for twice the current users, from every username in the database.
+     * Names are streamed, so loading never holds them all in memory.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        BloomFilter filter = new BloomFilter(Math.max(MINIMUM_CAPACITY, 2 * userRepository.count()), falsePositiveRate);
+        transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<String> usernames = userRepository.streamAllUsernames(LOAD_FETCH_SIZE)) {
+                usernames.forEach(filter::put);
+            }
+        });
+        knownUsernames = filter;
+        log.info("Loaded usernames into a {} KB filter", filter.sizeInBytes() / 1024);
+    }
+
+    public boolean exists(String username) {
+        if (username == null) {
+            return false;
+        }
+        if (unknownUsernames.getIfPresent(username) != null) {
+            return false;
+        }
+
+        long registrationsBefore = registrations.get();
+        boolean exists = knownUsernames.mightContain(username)
+                // Usually answered from the natural-id cache
+                ? userRepository.findByUsername(username).isPresent()
+                // Not seen yet, e.g. created by another instance
+                : userRepository.existsByUsername(username);
+        if (exists) {
+            knownUsernames.put(username);
+        } else {
+            // A name registered while it was being looked up must not be remembered as unknown. Checking
+            // inside compute orders this with register's invalidate, which waits on the same entry.
+            unknownUsernames.asMap().compute(username, (name, unknown) ->
+                    registrations.get() == registrationsBefore ? Boolean.TRUE : unknown);
+        }
+        return exists;
+    }
+
+    /**
+     * Records a newly created user, so it is known from now on.
+     */
+    public void register(String username) {
+        knownUsernames.put(username);
+        registrations.incrementAndGet();
+        unknownUsernames.invalidate(username);
+    }
+}
@@ -0,0 +1,47 @@
+-- Baseline schema, matching what Hibernate generated from the entities under ddl-auto=create-drop
+
+CREATE SEQUENCE RESTAURANTS_SEQ START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE DINING_REVIEWS_SEQ START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE USERS_SEQ START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE RESTAURANTS (
+    ID BIGINT NOT NULL,
+    POST_CODE VARCHAR(255),
+    NAME VARCHAR(255),
+    BIO VARCHAR(255),
+    OVERALL_RATING FLOAT(53),
+    PEANUT_RATING FLOAT(53),
+    EGG_RATING FLOAT(53),
+    DAIRY_RATING FLOAT(53),
+    PEANUT_SCORE_SUM BIGINT,
+    PEANUT_SCORE_COUNT BIGINT,
+    EGG_SCORE_SUM BIGINT,
+    EGG_SCORE_COUNT BIGINT,
+    DAIRY_SCORE_SUM BIGINT,
+    DAIRY_SCORE_COUNT BIGINT,
+    PRIMARY KEY (ID)
+);
+
+CREATE TABLE DINING_REVIEWS (
+    ID BIGINT NOT NULL,
+    AUTHOR VARCHAR(255),
+    RESTAURANT_ID BIGINT,
+    PEANUT_SCORE BIGINT,
+    EGG_SCORE BIGINT,
+    DAIRY_SCORE BIGINT,
+    COMMENT VARCHAR(255),
+    REVIEW_STATUS TINYINT CHECK (REVIEW_STATUS BETWEEN 0 AND 2),
+    PRIMARY KEY (ID)
+);
+
+CREATE TABLE USERS (
+    ID BIGINT NOT NULL,
+    USERNAME VARCHAR(255) UNIQUE,
+    CITY VARCHAR(255),
+    COUNTY VARCHAR(255),
+    POST_CODE VARCHAR(255),
+    ACTIVE_PEANUT_ALLERGY BOOLEAN,
+    ACTIVE_EGG_ALLERGY BOOLEAN,
+    ACTIVE_DAIRY_ALLERGY BOOLEAN,
+    PRIMARY KEY (ID)
+);
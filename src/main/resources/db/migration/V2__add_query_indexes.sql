@@ -0,0 +1,16 @@
+-- Indexes for the repository queries on the hot paths
+
+-- DiningReviewRepository.findByRestaurantIdAndReviewStatus (rebuilding a restaurant's running totals)
+CREATE INDEX IDX_DINING_REVIEWS_RESTAURANT_STATUS ON DINING_REVIEWS (RESTAURANT_ID, REVIEW_STATUS);
+
+-- DiningReviewRepository.findByReviewStatus, the keyset page query and the status stream, all ordered by ID
+CREATE INDEX IDX_DINING_REVIEWS_STATUS_ID ON DINING_REVIEWS (REVIEW_STATUS, ID);
+
+-- Looking up reviews by author
+CREATE INDEX IDX_DINING_REVIEWS_AUTHOR ON DINING_REVIEWS (AUTHOR);
+
+-- RestaurantRepository.findByPostCodeAndAllergyRatings, one per allergen so a single-allergy search
+-- can also skip unrated restaurants within the post code
+CREATE INDEX IDX_RESTAURANTS_POST_CODE_PEANUT ON RESTAURANTS (POST_CODE, PEANUT_RATING);
+CREATE INDEX IDX_RESTAURANTS_POST_CODE_EGG ON RESTAURANTS (POST_CODE, EGG_RATING);
+CREATE INDEX IDX_RESTAURANTS_POST_CODE_DAIRY ON RESTAURANTS (POST_CODE, DAIRY_RATING);
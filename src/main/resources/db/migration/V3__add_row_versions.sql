@@ -0,0 +1,7 @@
+-- Row versions for optimistic locking and ETags, and the time of the last change for Last-Modified
+
+ALTER TABLE RESTAURANTS ADD COLUMN VERSION BIGINT DEFAULT 0 NOT NULL;
+ALTER TABLE RESTAURANTS ADD COLUMN LAST_MODIFIED TIMESTAMP(6) WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP NOT NULL;
+
+ALTER TABLE DINING_REVIEWS ADD COLUMN VERSION BIGINT DEFAULT 0 NOT NULL;
+ALTER TABLE DINING_REVIEWS ADD COLUMN LAST_MODIFIED TIMESTAMP(6) WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP NOT NULL;
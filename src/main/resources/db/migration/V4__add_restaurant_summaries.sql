@@ -0,0 +1,27 @@
+-- Read model for restaurant searches and listings, kept apart from the RESTAURANTS rows that rating
+-- recomputes write. Filled and refreshed by RestaurantSummaryProjector; review counts are of approved reviews
+
+CREATE TABLE RESTAURANT_SUMMARIES (
+    ID BIGINT NOT NULL,
+    NAME VARCHAR(255),
+    POST_CODE VARCHAR(255),
+    OVERALL_RATING FLOAT(53),
+    PEANUT_RATING FLOAT(53),
+    EGG_RATING FLOAT(53),
+    DAIRY_RATING FLOAT(53),
+    REVIEW_COUNT BIGINT NOT NULL,
+    PEANUT_REVIEW_COUNT BIGINT NOT NULL,
+    EGG_REVIEW_COUNT BIGINT NOT NULL,
+    DAIRY_REVIEW_COUNT BIGINT NOT NULL,
+    PROJECTED_AT TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    PRIMARY KEY (ID)
+);
+
+-- RestaurantSummaryRepository.findByPostCodeAndAllergyRatings; the allergy search no longer reads RESTAURANTS
+CREATE INDEX IDX_RESTAURANT_SUMMARIES_POST_CODE_PEANUT ON RESTAURANT_SUMMARIES (POST_CODE, PEANUT_RATING);
+CREATE INDEX IDX_RESTAURANT_SUMMARIES_POST_CODE_EGG ON RESTAURANT_SUMMARIES (POST_CODE, EGG_RATING);
+CREATE INDEX IDX_RESTAURANT_SUMMARIES_POST_CODE_DAIRY ON RESTAURANT_SUMMARIES (POST_CODE, DAIRY_RATING);
+
+DROP INDEX IDX_RESTAURANTS_POST_CODE_PEANUT;
+DROP INDEX IDX_RESTAURANTS_POST_CODE_EGG;
+DROP INDEX IDX_RESTAURANTS_POST_CODE_DAIRY;
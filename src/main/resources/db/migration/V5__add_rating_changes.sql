@@ -0,0 +1,20 @@
+-- Score changes from moderation and imports, written in the same transaction as the review status change
+-- and removed by the recompute that adds them to the restaurant's running totals. A change survives a
+-- failed recompute or a restart, so the totals catch up instead of silently drifting
+
+CREATE SEQUENCE RATING_CHANGES_SEQ START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE RATING_CHANGES (
+    ID BIGINT NOT NULL,
+    RESTAURANT_ID BIGINT NOT NULL,
+    PEANUT_SCORE_SUM BIGINT NOT NULL,
+    PEANUT_SCORE_COUNT BIGINT NOT NULL,
+    EGG_SCORE_SUM BIGINT NOT NULL,
+    EGG_SCORE_COUNT BIGINT NOT NULL,
+    DAIRY_SCORE_SUM BIGINT NOT NULL,
+    DAIRY_SCORE_COUNT BIGINT NOT NULL,
+    PRIMARY KEY (ID)
+);
+
+-- RatingChangeRepository.findByRestaurantId and the rebuild's sums
+CREATE INDEX IDX_RATING_CHANGES_RESTAURANT_ID ON RATING_CHANGES (RESTAURANT_ID);
@@ -0,0 +1,69 @@
+package com.tim_rayner.restaurant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.tim_rayner.restaurant.entities.DiningReview;
+import com.tim_rayner.restaurant.entities.Restaurant;
+import com.tim_rayner.restaurant.entities.ReviewStatus;
+import com.tim_rayner.restaurant.repositories.DiningReviewRepository;
+import com.tim_rayner.restaurant.repositories.RestaurantRepository;
+import com.tim_rayner.restaurant.repositories.UserRepository;
+import com.tim_rayner.restaurant.services.RatingCalculator;
+
+/**
+ * Runs the generator on its own in-memory database, at a size small enough for a test.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:generated;DB_CLOSE_DELAY=-1",
+        "restaurant.generator.users=500",
+        "restaurant.generator.restaurants=200",
+        "restaurant.generator.reviews=3000",
+        "restaurant.generator.post-codes=40",
+        "restaurant.generator.batch-size=100"})
+@ActiveProfiles("generate")
+class DataGeneratorTest {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RestaurantRepository restaurantRepository;
+
+    @Autowired
+    private DiningReviewRepository diningReviewRepository;
+
+    @Test
+    void generatesTheConfiguredUsersAndRestaurants() {
+        assertEquals(500, userRepository.count());
+        assertEquals(200, restaurantRepository.count());
+        assertTrue(userRepository.findByUsername(DataGenerator.username(499)).isPresent());
+    }
+
+    @Test
+    void generatesRoughlyTheConfiguredReviews_withEveryStatus() {
+        long reviews = diningReviewRepository.count();
+        assertTrue(reviews > 2000 && reviews < 4000, reviews + " reviews");
+        for (ReviewStatus status : ReviewStatus.values()) {
+            assertFalse(diningReviewRepository.findByReviewStatus(status).isEmpty(), status.name());
+        }
+    }
+
+    @Test
+    void ratings_matchTheApprovedReviews() {
+        for (Restaurant restaurant : restaurantRepository.findAll()) {
+            List<DiningReview> approved = diningReviewRepository
+                    .findByRestaurantIdAndReviewStatus(restaurant.getId(), ReviewStatus.APPROVED);
+            assertEquals(RatingCalculator.calculateAverage(approved, "peanut"), restaurant.getPeanutRating());
+            assertEquals(RatingCalculator.calculateAverage(approved, "dairy"), restaurant.getDairyRating());
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.tim_rayner.restaurant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.tim_rayner.restaurant.entities.DiningReview;
+import com.tim_rayner.restaurant.entities.ReviewStatus;
+import com.tim_rayner.restaurant.repositories.DiningReviewRepository;
+import com.tim_rayner.restaurant.services.PendingReviewBacklog;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Checks that requests, repository calls, the review queue, the moderation backlog, the connection
+ * pool and rating recomputes all publish meters.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class MetricsTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private PendingReviewBacklog pendingReviewBacklog;
+
+    @Autowired
+    private DiningReviewRepository diningReviewRepository;
+
+    @Test
+    void requestAndRepositoryCall_areTimed() throws Exception {
+        mockMvc.perform(get("/admin/reviews/pending"))
+                .andExpect(status().isOk());
+
+        assertNotNull(meterRegistry.find("http.server.requests").tag("uri", "/admin/reviews/pending").timer());
+        assertNotNull(meterRegistry.find("spring.data.repository.invocations")
+                .tag("repository", "DiningReviewRepository")
+                .tag("method", "findByReviewStatus")
+                .timer());
+    }
+
+    @Test
+    void gaugesAndRecomputeTimer_areRegistered() {
+        assertNotNull(meterRegistry.find("restaurant.reviews.queue.depth").gauge());
+        assertNotNull(meterRegistry.find("hikaricp.connections.active").gauge());
+        assertNotNull(meterRegistry.find("restaurant.ratings.recompute").timer());
+    }
+
+    @Test
+    void pendingReviewGauge_countsTheModerationBacklog() {
+        DiningReview review = new DiningReview();
+        review.setAuthor("johndoe");
+        review.setRestaurantId(1L);
+        review.setPeanutScore(3L);
+        review.setReviewStatus(ReviewStatus.PENDING);
+        review = diningReviewRepository.save(review);
+        try {
+            long pending = pendingReviewBacklog.refresh();
+
+            assertEquals(diningReviewRepository.findByReviewStatus(ReviewStatus.PENDING).size(), pending);
+            assertEquals(pending, meterRegistry.get("restaurant.reviews.pending").gauge().value());
+        } finally {
+            diningReviewRepository.deleteById(review.getId());
+        }
+    }
+}
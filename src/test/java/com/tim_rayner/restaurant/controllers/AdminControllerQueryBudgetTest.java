@@ -0,0 +1,147 @@
+package com.tim_rayner.restaurant.controllers;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.tim_rayner.restaurant.entities.DiningReview;
+import com.tim_rayner.restaurant.entities.Restaurant;
+import com.tim_rayner.restaurant.entities.ReviewStatus;
+import com.tim_rayner.restaurant.repositories.DiningReviewRepository;
+import com.tim_rayner.restaurant.repositories.RestaurantRepository;
+import com.tim_rayner.restaurant.services.RatingAggregator;
+import com.tim_rayner.restaurant.support.QueryBudgetTest;
+import com.tim_rayner.restaurant.support.SqlStatementCounter;
+
+/**
+ * SQL statement budgets for {@link AdminController}: a change that adds a round-trip fails here.
+ * Moderation budgets include the rating recompute the request waits for.
+ */
+@QueryBudgetTest
+class AdminControllerQueryBudgetTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private RestaurantRepository restaurantRepository;
+
+    @Autowired
+    private DiningReviewRepository diningReviewRepository;
+
+    private Restaurant restaurant;
+    private final List<DiningReview> reviews = new ArrayList<>();
+
+    @BeforeEach
+    void createPendingReviews() {
+        Restaurant newRestaurant = new Restaurant();
+        newRestaurant.setName("Budget Bistro");
+        newRestaurant.setPostCode("QB2 2BB");
+        // Running totals already built, as they are after the restaurant's first recompute
+        new RatingAggregator().applyTo(newRestaurant);
+        restaurant = restaurantRepository.save(newRestaurant);
+
+        for (long score = 1; score <= 2; score++) {
+            DiningReview review = new DiningReview();
+            review.setAuthor("johndoe");
+            review.setRestaurantId(restaurant.getId());
+            review.setPeanutScore(score);
+            review.setReviewStatus(ReviewStatus.PENDING);
+            reviews.add(diningReviewRepository.save(review));
+        }
+    }
+
+    @AfterEach
+    void removeCreatedRows() {
+        diningReviewRepository.deleteAllById(reviews.stream().map(DiningReview::getId).toList());
+        restaurantRepository.deleteById(restaurant.getId());
+    }
+
+    @Test
+    void getPendingReviews() throws Exception {
+        SqlStatementCounter.count(() -> mockMvc.perform(get("/admin/reviews/pending"))
+                .andExpect(status().isOk()))
+                .assertBudget(1, 0, 0, 0);
+    }
+
+    @Test
+    void getPendingReviews_withFields_readsOnlyThoseColumns() throws Exception {
+        SqlStatementCounter.Counts counts = SqlStatementCounter.count(() -> mockMvc.perform(get("/admin/reviews/pending")
+                .param("fields", "id,restaurantId,peanutScore"))
+                .andExpect(status().isOk()));
+
+        counts.assertBudget(1, 0, 0, 0);
+        assertFalse(counts.statements().get(0).toLowerCase().contains("comment"), counts.statements().get(0));
+    }
+
+    @Test
+    void getPendingReviewPage() throws Exception {
+        SqlStatementCounter.count(() -> mockMvc.perform(get("/admin/reviews/pending/page").param("size", "1"))
+                .andExpect(status().isOk()))
+                .assertBudget(1, 0, 0, 0);
+    }
+
+    @Test
+    void streamPendingReviews() throws Exception {
+        SqlStatementCounter.count(() -> mockMvc.perform(get("/admin/reviews/pending/stream"))
+                .andExpect(status().isOk()))
+                .assertBudget(1, 0, 0, 0);
+    }
+
+    @Test
+    void processReview() throws Exception {
+        // The review's read and write with its recorded score change, then the restaurant's read and write
+        // with the change applied and deleted: no review is re-read to update the ratings
+        SqlStatementCounter.count(() -> mockMvc.perform(put("/admin/reviews/" + reviews.get(0).getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"acceptReview\":true}"))
+                .andExpect(status().isOk()))
+                .assertBudget(3, 1, 2, 1);
+    }
+
+    @Test
+    void processReview_restaurantWithoutTotals_rebuildsThemOnce() throws Exception {
+        restaurant.setPeanutScoreSum(null);
+        restaurant = restaurantRepository.save(restaurant);
+
+        SqlStatementCounter.count(() -> mockMvc.perform(put("/admin/reviews/" + reviews.get(0).getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"acceptReview\":true}"))
+                .andExpect(status().isOk()))
+                .assertBudget(4, 1, 2, 1);
+        SqlStatementCounter.count(() -> mockMvc.perform(put("/admin/reviews/" + reviews.get(1).getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"acceptReview\":true}"))
+                .andExpect(status().isOk()))
+                .assertBudget(3, 1, 2, 1);
+    }
+
+    @Test
+    void processReviews() throws Exception {
+        String actions = "[{\"id\":" + reviews.get(0).getId() + ",\"acceptReview\":true},"
+                + "{\"id\":" + reviews.get(1).getId() + ",\"acceptReview\":true}]";
+        SqlStatementCounter.count(() -> mockMvc.perform(put("/admin/reviews")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(actions))
+                .andExpect(status().isOk()))
+                .assertBudget(3, 1, 2, 1);
+    }
+
+    @Test
+    void getRestaurantCacheStatistics() throws Exception {
+        SqlStatementCounter.count(() -> mockMvc.perform(get("/admin/cache/restaurants"))
+                .andExpect(status().isOk()))
+                .assertBudget(0, 0, 0, 0);
+    }
+}
@@ -1,35 +1,69 @@
 package com.tim_rayner.restaurant.controllers;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Collections;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.boot.webmvc.test.autoconfigure.WebMvcTest;
 import org.springframework.http.MediaType;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.context.annotation.Import;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import tools.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.tim_rayner.restaurant.actions.AdminBatchReviewAction;
 import com.tim_rayner.restaurant.actions.AdminReviewAction;
 import com.tim_rayner.restaurant.entities.DiningReview;
+import com.tim_rayner.restaurant.entities.RatingChange;
 import com.tim_rayner.restaurant.entities.Restaurant;
 import com.tim_rayner.restaurant.entities.ReviewStatus;
+import com.tim_rayner.restaurant.events.ReviewStatusChanged;
 import com.tim_rayner.restaurant.repositories.DiningReviewRepository;
+import com.tim_rayner.restaurant.repositories.RatingChangeRepository;
 import com.tim_rayner.restaurant.repositories.RestaurantRepository;
+import com.tim_rayner.restaurant.services.RatingAggregator;
+import com.tim_rayner.restaurant.services.RatingRecomputeScheduler;
+import com.tim_rayner.restaurant.services.RestaurantCache;
+import com.tim_rayner.restaurant.services.RestaurantRatingService;
+import com.tim_rayner.restaurant.services.TextSearchIndex;
 
 @WebMvcTest(AdminController.class)
+@Import(RestaurantRatingService.class)
+@RecordApplicationEvents
 class AdminControllerTest {
 
     @Autowired
@@ -41,9 +75,30 @@ class AdminControllerTest {
     @MockitoBean
     private DiningReviewRepository diningReviewRepository;
 
+    @MockitoBean
+    private RestaurantCache restaurantCache;
+
+    @MockitoSpyBean
+    private RestaurantRatingService restaurantRatingService;
+
+    @MockitoBean
+    private RatingChangeRepository ratingChangeRepository;
+
     @MockitoBean
     private RestaurantRepository restaurantRepository;
 
+    @MockitoBean
+    private RatingRecomputeScheduler ratingRecomputeScheduler;
+
+    @MockitoBean
+    private TextSearchIndex textSearchIndex;
+
+    @MockitoBean
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ApplicationEvents applicationEvents;
+
     @Test
     void getPendingReviews_returnsList() throws Exception {
         DiningReview review1 = new DiningReview();
@@ -80,6 +135,102 @@ class AdminControllerTest {
                 .andExpect(jsonPath("$").isEmpty());
     }
 
+    @Test
+    void getPendingReviews_withFields_selectsOnlyThoseAttributes() throws Exception {
+        when(diningReviewRepository.findAttributesByReviewStatus(
+                ReviewStatus.PENDING, List.of("author", "id", "restaurantId")))
+                .thenReturn(List.of(Map.of("author", "alice", "id", 1L, "restaurantId", 3L)));
+
+        mockMvc.perform(get("/admin/reviews/pending")
+                .param("fields", "id,restaurantId, author"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(1))
+                .andExpect(jsonPath("$[0].author").value("alice"))
+                .andExpect(jsonPath("$[0].comment").doesNotExist());
+
+        verify(diningReviewRepository, never()).findByReviewStatus(any());
+    }
+
+    @Test
+    void getPendingReviews_unknownField_returnsBadRequest() throws Exception {
+        mockMvc.perform(get("/admin/reviews/pending")
+                .param("fields", "id,version"))
+                .andExpect(status().isBadRequest());
+
+        verify(diningReviewRepository, never()).findAttributesByReviewStatus(any(), any());
+    }
+
+    @Test
+    void getPendingReviewPage_returnsPageWithNextCursor() throws Exception {
+        DiningReview review1 = new DiningReview();
+        review1.setId(5L);
+        review1.setReviewStatus(ReviewStatus.PENDING);
+
+        DiningReview review2 = new DiningReview();
+        review2.setId(7L);
+        review2.setReviewStatus(ReviewStatus.PENDING);
+
+        DiningReview review3 = new DiningReview();
+        review3.setId(9L);
+        review3.setReviewStatus(ReviewStatus.PENDING);
+
+        when(diningReviewRepository.findByReviewStatusAndIdGreaterThanOrderByIdAsc(
+                ReviewStatus.PENDING, 4L, Limit.of(3)))
+                .thenReturn(Arrays.asList(review1, review2, review3));
+
+        mockMvc.perform(get("/admin/reviews/pending/page")
+                .param("cursor", "4")
+                .param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(2))
+                .andExpect(jsonPath("$.items[0].id").value(5))
+                .andExpect(jsonPath("$.items[1].id").value(7))
+                .andExpect(jsonPath("$.next").value("7"));
+    }
+
+    @Test
+    void getPendingReviewPage_lastPage_hasNoNextCursor() throws Exception {
+        DiningReview review = new DiningReview();
+        review.setId(1L);
+        review.setReviewStatus(ReviewStatus.PENDING);
+
+        when(diningReviewRepository.findByReviewStatusAndIdGreaterThanOrderByIdAsc(
+                eq(ReviewStatus.PENDING), eq(0L), any(Limit.class)))
+                .thenReturn(Collections.singletonList(review));
+
+        mockMvc.perform(get("/admin/reviews/pending/page"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].id").value(1))
+                .andExpect(jsonPath("$.next").doesNotExist());
+    }
+
+    @Test
+    void getPendingReviewPage_invalidCursor_returns400() throws Exception {
+        mockMvc.perform(get("/admin/reviews/pending/page")
+                .param("cursor", "not-a-cursor"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void streamPendingReviews_writesOneJsonObjectPerLine() throws Exception {
+        DiningReview review1 = new DiningReview();
+        review1.setId(1L);
+        review1.setReviewStatus(ReviewStatus.PENDING);
+
+        DiningReview review2 = new DiningReview();
+        review2.setId(2L);
+        review2.setReviewStatus(ReviewStatus.PENDING);
+
+        when(diningReviewRepository.streamByReviewStatus(eq(ReviewStatus.PENDING), anyInt()))
+                .thenReturn(Stream.of(review1, review2));
+
+        mockMvc.perform(get("/admin/reviews/pending/stream"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andExpect(content().string(
+                        "{\"id\":1,\"reviewStatus\":\"PENDING\"}\n{\"id\":2,\"reviewStatus\":\"PENDING\"}\n"));
+    }
+
     @Test
     void approveReview_success_returns200() throws Exception {
         DiningReview review = new DiningReview();
@@ -89,17 +240,10 @@ class AdminControllerTest {
         review.setPeanutScore(4L);
         review.setReviewStatus(ReviewStatus.PENDING);
 
-        Restaurant restaurant = new Restaurant();
-        restaurant.setId(1L);
-        restaurant.setName("Test Restaurant");
-
         AdminReviewAction action = new AdminReviewAction();
         action.setAcceptReview(true);
 
         when(diningReviewRepository.findById(anyLong())).thenReturn(Optional.of(review));
-        when(restaurantRepository.findById(any(Long.class))).thenReturn(Optional.of(restaurant));
-        when(diningReviewRepository.findByRestaurantIdAndReviewStatus(anyLong(), any(ReviewStatus.class)))
-                .thenReturn(Collections.singletonList(review));
         when(diningReviewRepository.save(any(DiningReview.class))).thenReturn(review);
 
         mockMvc.perform(put("/admin/reviews/1")
@@ -109,7 +253,57 @@ class AdminControllerTest {
                 .andExpect(jsonPath("$.id").value(1))
                 .andExpect(jsonPath("$.reviewStatus").value("APPROVED"));
 
-        verify(restaurantRepository).save(any(Restaurant.class));
+        Map<Long, RatingAggregator> scoreChanges = scoreChanges();
+        assertEquals(Set.of(1L), scoreChanges.keySet());
+        assertEquals(4.0, scoreChanges.get(1L).getPeanutRating());
+        verify(textSearchIndex).index(review);
+    }
+
+    @Test
+    void approveReview_ratingsNotUpdatedInTime_returns202() throws Exception {
+        DiningReview review = new DiningReview();
+        review.setId(1L);
+        review.setRestaurantId(1L);
+        review.setPeanutScore(4L);
+        review.setReviewStatus(ReviewStatus.PENDING);
+
+        AdminReviewAction action = new AdminReviewAction();
+        action.setAcceptReview(true);
+
+        when(diningReviewRepository.findById(anyLong())).thenReturn(Optional.of(review));
+        when(diningReviewRepository.save(any(DiningReview.class))).thenReturn(review);
+        when(ratingRecomputeScheduler.recomputeAndWait(any())).thenReturn(Set.of(1L));
+
+        // The review is saved; its restaurant's ratings catch up later
+        mockMvc.perform(put("/admin/reviews/1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(action)))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.reviewStatus").value("APPROVED"));
+    }
+
+    @Test
+    void processReview_concurrentModeration_returns409() throws Exception {
+        DiningReview review = new DiningReview();
+        review.setId(1L);
+        review.setRestaurantId(1L);
+        review.setPeanutScore(4L);
+        review.setReviewStatus(ReviewStatus.PENDING);
+
+        AdminReviewAction action = new AdminReviewAction();
+        action.setAcceptReview(true);
+
+        when(diningReviewRepository.findById(anyLong())).thenReturn(Optional.of(review));
+        when(diningReviewRepository.save(any(DiningReview.class)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(DiningReview.class, 1L));
+
+        mockMvc.perform(put("/admin/reviews/1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(action)))
+                .andExpect(status().isConflict());
+
+        verify(ratingRecomputeScheduler, never()).recomputeAndWait(any());
+        verify(textSearchIndex, never()).index(any(DiningReview.class));
     }
 
     @Test
@@ -135,7 +329,7 @@ class AdminControllerTest {
                 .andExpect(jsonPath("$.reviewStatus").value("REJECTED"));
 
         // Verify restaurant scores are NOT recomputed for rejection
-        verify(restaurantRepository, never()).save(any(Restaurant.class));
+        verify(ratingRecomputeScheduler, never()).recomputeAndWait(any());
     }
 
     @Test
@@ -151,9 +345,63 @@ class AdminControllerTest {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    void approveReview_alreadyApproved_doesNotRecompute() throws Exception {
+        DiningReview review = new DiningReview();
+        review.setId(1L);
+        review.setRestaurantId(1L);
+        review.setPeanutScore(4L);
+        review.setReviewStatus(ReviewStatus.APPROVED);
+
+        AdminReviewAction action = new AdminReviewAction();
+        action.setAcceptReview(true);
+
+        when(diningReviewRepository.findById(anyLong())).thenReturn(Optional.of(review));
+        when(diningReviewRepository.save(any(DiningReview.class))).thenReturn(review);
+
+        mockMvc.perform(put("/admin/reviews/1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(action)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.reviewStatus").value("APPROVED"));
+
+        verify(ratingRecomputeScheduler, never()).recomputeAndWait(any());
+        assertEquals(0, applicationEvents.stream(ReviewStatusChanged.class).count());
+    }
+
+    @Test
+    void rejectApprovedReview_recomputesRatings() throws Exception {
+        DiningReview review = new DiningReview();
+        review.setId(1L);
+        review.setRestaurantId(1L);
+        review.setPeanutScore(4L);
+        review.setReviewStatus(ReviewStatus.APPROVED);
+
+        AdminReviewAction action = new AdminReviewAction();
+        action.setAcceptReview(false);
+
+        when(diningReviewRepository.findById(anyLong())).thenReturn(Optional.of(review));
+        when(diningReviewRepository.save(any(DiningReview.class))).thenReturn(review);
+
+        mockMvc.perform(put("/admin/reviews/1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(action)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.reviewStatus").value("REJECTED"));
+
+        // The review's scores come off the restaurant's totals
+        RatingAggregator restored = scoreChanges().get(1L);
+        restored.add(review);
+        assertTrue(restored.isEmpty());
+        ReviewStatusChanged event = applicationEvents.stream(ReviewStatusChanged.class).findFirst().orElseThrow();
+        assertEquals(1L, event.restaurantId());
+        assertEquals(ReviewStatus.APPROVED, event.previousStatus());
+        assertEquals(ReviewStatus.REJECTED, event.newStatus());
+    }
+
     @Test
     void approveReview_computesAverageScores() throws Exception {
-        // First review already approved
+        // First review already approved, so its scores are in the restaurant's running totals
         DiningReview approvedReview = new DiningReview();
         approvedReview.setId(1L);
         approvedReview.setRestaurantId(1L);
@@ -172,16 +420,14 @@ class AdminControllerTest {
         Restaurant restaurant = new Restaurant();
         restaurant.setId(1L);
         restaurant.setName("Test Restaurant");
+        RatingAggregator.of(List.of(approvedReview)).applyTo(restaurant);
 
         AdminReviewAction action = new AdminReviewAction();
         action.setAcceptReview(true);
 
         when(diningReviewRepository.findById(anyLong())).thenReturn(Optional.of(newReview));
-        when(restaurantRepository.findById(any(Long.class))).thenReturn(Optional.of(restaurant));
-        // After approval, both reviews are approved
-        when(diningReviewRepository.findByRestaurantIdAndReviewStatus(anyLong(), any(ReviewStatus.class)))
-                .thenReturn(Arrays.asList(approvedReview, newReview));
         when(diningReviewRepository.save(any(DiningReview.class))).thenReturn(newReview);
+        recomputeWhenWaitedOn(restaurant);
 
         mockMvc.perform(put("/admin/reviews/2")
                 .contentType(MediaType.APPLICATION_JSON)
@@ -190,7 +436,11 @@ class AdminControllerTest {
                 .andExpect(jsonPath("$.reviewStatus").value("APPROVED"));
 
         // Verify restaurant was saved with updated scores
-        verify(restaurantRepository).save(any(Restaurant.class));
+        verify(restaurantRepository).save(restaurant);
+        assertEquals(4.5, restaurant.getPeanutRating());
+        assertEquals(4.0, restaurant.getEggRating());
+        assertNull(restaurant.getDairyRating());
+        assertEquals(4.25, restaurant.getOverallRating());
     }
 
     @Test
@@ -206,15 +456,14 @@ class AdminControllerTest {
         Restaurant restaurant = new Restaurant();
         restaurant.setId(1L);
         restaurant.setName("Test Restaurant");
+        new RatingAggregator().applyTo(restaurant);
 
         AdminReviewAction action = new AdminReviewAction();
         action.setAcceptReview(true);
 
         when(diningReviewRepository.findById(anyLong())).thenReturn(Optional.of(review));
-        when(restaurantRepository.findById(any(Long.class))).thenReturn(Optional.of(restaurant));
-        when(diningReviewRepository.findByRestaurantIdAndReviewStatus(anyLong(), any(ReviewStatus.class)))
-                .thenReturn(Collections.singletonList(review));
         when(diningReviewRepository.save(any(DiningReview.class))).thenReturn(review);
+        recomputeWhenWaitedOn(restaurant);
 
         mockMvc.perform(put("/admin/reviews/1")
                 .contentType(MediaType.APPLICATION_JSON)
@@ -222,7 +471,200 @@ class AdminControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.reviewStatus").value("APPROVED"));
 
-        verify(restaurantRepository).save(any(Restaurant.class));
+        verify(restaurantRepository).save(restaurant);
+        assertEquals(4.0, restaurant.getPeanutRating());
+        assertNull(restaurant.getEggRating());
+        assertNull(restaurant.getDairyRating());
+        assertEquals(4.0, restaurant.getOverallRating());
     }
-}
 
+    @Test
+    void processReviews_batch_recomputesEachRestaurantOnce() throws Exception {
+        DiningReview review1 = new DiningReview();
+        review1.setId(1L);
+        review1.setRestaurantId(1L);
+        review1.setPeanutScore(4L);
+        review1.setReviewStatus(ReviewStatus.PENDING);
+
+        DiningReview review2 = new DiningReview();
+        review2.setId(2L);
+        review2.setRestaurantId(1L);
+        review2.setPeanutScore(5L);
+        review2.setReviewStatus(ReviewStatus.PENDING);
+
+        DiningReview review3 = new DiningReview();
+        review3.setId(3L);
+        review3.setRestaurantId(2L);
+        review3.setPeanutScore(2L);
+        review3.setReviewStatus(ReviewStatus.PENDING);
+
+        when(diningReviewRepository.findAllById(anyIterable())).thenReturn(Arrays.asList(review1, review2, review3));
+
+        List<AdminBatchReviewAction> actions = Arrays.asList(
+                batchAction(1L, true),
+                batchAction(2L, true),
+                batchAction(3L, false),
+                batchAction(999L, true));
+
+        mockMvc.perform(put("/admin/reviews")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(actions)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(1))
+                .andExpect(jsonPath("$[0].status").value(200))
+                .andExpect(jsonPath("$[0].reviewStatus").value("APPROVED"))
+                .andExpect(jsonPath("$[1].reviewStatus").value("APPROVED"))
+                .andExpect(jsonPath("$[2].reviewStatus").value("REJECTED"))
+                .andExpect(jsonPath("$[3].id").value(999))
+                .andExpect(jsonPath("$[3].status").value(404));
+
+        verify(diningReviewRepository, never()).save(any(DiningReview.class));
+        verify(diningReviewRepository).saveAll(anyIterable());
+        // The pending review that was rejected never counted towards restaurant 2
+        Map<Long, RatingAggregator> scoreChanges = scoreChanges();
+        assertEquals(Set.of(1L), scoreChanges.keySet());
+        assertEquals(4.5, scoreChanges.get(1L).getPeanutRating());
+        assertEquals(List.of(1L, 2L, 3L), applicationEvents.stream(ReviewStatusChanged.class)
+                .map(ReviewStatusChanged::reviewId)
+                .sorted()
+                .toList());
+    }
+
+    /**
+     * Makes waiting on a recompute run it, as the scheduler does on its own threads, against the given
+     * restaurant and the score changes moderation recorded.
+     */
+    @SuppressWarnings("unchecked")
+    private void recomputeWhenWaitedOn(Restaurant restaurant) {
+        List<RatingChange> recorded = new ArrayList<>();
+        when(ratingChangeRepository.saveAll(anyIterable())).thenAnswer(invocation -> {
+            ((Iterable<RatingChange>) invocation.getArgument(0)).forEach(recorded::add);
+            return invocation.getArgument(0);
+        });
+        when(ratingChangeRepository.findByRestaurantId(restaurant.getId())).thenAnswer(invocation -> List.copyOf(recorded));
+        when(restaurantRepository.findById(restaurant.getId())).thenReturn(Optional.of(restaurant));
+        when(restaurantRepository.save(any(Restaurant.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(ratingRecomputeScheduler.recomputeAndWait(any())).thenAnswer(invocation -> {
+            ((Collection<Long>) invocation.getArgument(0)).forEach(restaurantRatingService::recompute);
+            return Set.of();
+        });
+    }
+
+    /**
+     * The score changes recorded with the reviews, after checking that their restaurants were recomputed.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void processReviews_concurrentModeration_failsOnlyTheConflictingReview() throws Exception {
+        // Each transaction loads the reviews afresh, as the rolled back batch's changes are discarded
+        when(diningReviewRepository.findAllById(anyIterable())).thenAnswer(invocation -> {
+            List<DiningReview> found = new ArrayList<>();
+            for (Long id : (Iterable<Long>) invocation.getArgument(0)) {
+                DiningReview review = new DiningReview();
+                review.setId(id);
+                review.setRestaurantId(1L);
+                review.setPeanutScore(id);
+                review.setReviewStatus(ReviewStatus.PENDING);
+                found.add(review);
+            }
+            return found;
+        });
+        // Review 2 was changed by someone else, so every transaction that saves it fails
+        when(diningReviewRepository.saveAll(anyIterable())).thenAnswer(invocation -> {
+            for (DiningReview review : (Iterable<DiningReview>) invocation.getArgument(0)) {
+                if (review.getId() == 2L) {
+                    throw new ObjectOptimisticLockingFailureException(DiningReview.class, 2L);
+                }
+            }
+            return invocation.getArgument(0);
+        });
+
+        List<AdminBatchReviewAction> actions = Arrays.asList(
+                batchAction(1L, true),
+                batchAction(2L, true),
+                batchAction(3L, true));
+
+        mockMvc.perform(put("/admin/reviews")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(actions)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value(200))
+                .andExpect(jsonPath("$[0].reviewStatus").value("APPROVED"))
+                .andExpect(jsonPath("$[1].id").value(2))
+                .andExpect(jsonPath("$[1].status").value(409))
+                .andExpect(jsonPath("$[1].reviewStatus").doesNotExist())
+                .andExpect(jsonPath("$[2].status").value(200));
+
+        // Reviews 1 and 3 were each saved, with their score changes, in a transaction of their own
+        verify(restaurantRatingService, times(2)).recordChanges(any());
+        verify(ratingRecomputeScheduler).recomputeAndWait(Set.of(1L));
+    }
+
+    @Test
+    void processReviews_ratingsNotUpdatedInTime_marksThatRestaurantsReviews202() throws Exception {
+        DiningReview review1 = new DiningReview();
+        review1.setId(1L);
+        review1.setRestaurantId(1L);
+        review1.setPeanutScore(4L);
+        review1.setReviewStatus(ReviewStatus.PENDING);
+
+        DiningReview review2 = new DiningReview();
+        review2.setId(2L);
+        review2.setRestaurantId(2L);
+        review2.setPeanutScore(3L);
+        review2.setReviewStatus(ReviewStatus.PENDING);
+
+        DiningReview review3 = new DiningReview();
+        review3.setId(3L);
+        review3.setRestaurantId(1L);
+        review3.setPeanutScore(2L);
+        review3.setReviewStatus(ReviewStatus.PENDING);
+
+        when(diningReviewRepository.findAllById(anyIterable())).thenReturn(Arrays.asList(review1, review2, review3));
+        when(ratingRecomputeScheduler.recomputeAndWait(any())).thenReturn(Set.of(1L));
+
+        List<AdminBatchReviewAction> actions = Arrays.asList(
+                batchAction(1L, true),
+                batchAction(2L, true),
+                batchAction(3L, false));
+
+        // The rejected review never counted, so restaurant 1's ratings do not have to catch up with it
+        mockMvc.perform(put("/admin/reviews")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(actions)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value(202))
+                .andExpect(jsonPath("$[0].reviewStatus").value("APPROVED"))
+                .andExpect(jsonPath("$[1].status").value(200))
+                .andExpect(jsonPath("$[2].status").value(200));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<Long, RatingAggregator> scoreChanges() {
+        ArgumentCaptor<Map<Long, RatingAggregator>> captor = ArgumentCaptor.forClass(Map.class);
+        verify(restaurantRatingService, times(1)).recordChanges(captor.capture());
+        verify(ratingRecomputeScheduler, times(1)).recomputeAndWait(captor.getValue().keySet());
+        return captor.getValue();
+    }
+
+    private AdminBatchReviewAction batchAction(Long id, boolean acceptReview) {
+        AdminBatchReviewAction action = new AdminBatchReviewAction();
+        action.setId(id);
+        action.setAcceptReview(acceptReview);
+        return action;
+    }
+
+    @Test
+    void getRestaurantCacheStatistics_returnsCounters() throws Exception {
+        when(restaurantCache.size()).thenReturn(3L);
+        when(restaurantCache.stats()).thenReturn(CacheStats.of(8, 2, 2, 0, 0, 1, 1));
+
+        mockMvc.perform(get("/admin/cache/restaurants"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size").value(3))
+                .andExpect(jsonPath("$.hits").value(8))
+                .andExpect(jsonPath("$.misses").value(2))
+                .andExpect(jsonPath("$.hitRate").value(0.8))
+                .andExpect(jsonPath("$.evictions").value(1));
+    }
+}
@@ -0,0 +1,92 @@
+package com.tim_rayner.restaurant.controllers;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.tim_rayner.restaurant.entities.Restaurant;
+
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+import tools.jackson.dataformat.cbor.CBORMapper;
+import tools.jackson.dataformat.smile.SmileMapper;
+
+/**
+ * Checks that every controller answers CBOR and Smile with the same content as JSON, that JSON
+ * stays the default, and that binary request bodies are read too.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class BinaryFormatsTest {
+
+    private static final MediaType APPLICATION_SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+
+    private static final JsonMapper JSON = new JsonMapper();
+    private static final CBORMapper CBOR = new CBORMapper();
+    private static final SmileMapper SMILE = new SmileMapper();
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "/restaurants/1",
+            "/restaurants/search?zipcode=SW1A 1AA&allergy=peanut",
+            "/restaurants/nearby?postcode=SW1A 1AA&allergy=peanut",
+            "/reviews/1",
+            "/admin/reviews/pending",
+            "/admin/reviews/pending/page?size=2",
+            "/users/johndoe",
+            "/search?q=bistro"})
+    void binaryFormats_matchJson(String uri) throws Exception {
+        JsonNode json = JSON.readTree(body(uri, MediaType.APPLICATION_JSON));
+
+        assertEquals(json, CBOR.readTree(body(uri, MediaType.APPLICATION_CBOR)));
+        assertEquals(json, SMILE.readTree(body(uri, APPLICATION_SMILE)));
+    }
+
+    @Test
+    void json_isTheDefault() throws Exception {
+        byte[] json = body("/restaurants/search?zipcode=SW1A 1AA&allergy=peanut", MediaType.APPLICATION_JSON);
+
+        assertArrayEquals(json, mockMvc.perform(get("/restaurants/search?zipcode=SW1A 1AA&allergy=peanut"))
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andReturn().getResponse().getContentAsByteArray());
+        assertArrayEquals(json, body("/restaurants/search?zipcode=SW1A 1AA&allergy=peanut", MediaType.ALL));
+    }
+
+    @Test
+    void createRestaurant_readsCborBody() throws Exception {
+        Restaurant restaurant = new Restaurant();
+        restaurant.setName("Binary Bistro");
+        restaurant.setPostCode("CB1 1AA");
+
+        byte[] created = mockMvc.perform(post("/restaurants")
+                .contentType(MediaType.APPLICATION_CBOR)
+                .accept(MediaType.APPLICATION_CBOR)
+                .content(CBOR.writeValueAsBytes(restaurant)))
+                .andExpect(status().is2xxSuccessful())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        assertEquals("Binary Bistro", CBOR.readValue(created, Restaurant.class).getName());
+    }
+
+    private byte[] body(String uri, MediaType accept) throws Exception {
+        return mockMvc.perform(get(uri).accept(accept))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray();
+    }
+}
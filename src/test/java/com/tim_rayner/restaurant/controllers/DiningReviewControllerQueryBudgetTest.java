@@ -0,0 +1,107 @@
+package com.tim_rayner.restaurant.controllers;
+
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.StreamSupport;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.tim_rayner.restaurant.repositories.DiningReviewRepository;
+import com.tim_rayner.restaurant.responses.SubmissionStatus.State;
+import com.tim_rayner.restaurant.services.ReviewSubmissionQueue;
+import com.tim_rayner.restaurant.support.QueryBudgetTest;
+import com.tim_rayner.restaurant.support.SqlStatementCounter;
+
+/**
+ * SQL statement budgets for {@link DiningReviewController}: a change that adds a round-trip fails here.
+ */
+@QueryBudgetTest
+class DiningReviewControllerQueryBudgetTest {
+
+    private static final String COMMENT = "query budget";
+    private static final String REVIEW = "{\"restaurantId\":1,\"author\":\"johndoe\",\"peanutScore\":4,\"comment\":\""
+            + COMMENT + "\"}";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private DiningReviewRepository diningReviewRepository;
+
+    @Autowired
+    private ReviewSubmissionQueue reviewSubmissionQueue;
+
+    @AfterEach
+    void removeCreatedReviews() {
+        diningReviewRepository.deleteAll(StreamSupport.stream(diningReviewRepository.findAll().spliterator(), false)
+                .filter(review -> COMMENT.equals(review.getComment()))
+                .toList());
+    }
+
+    @Test
+    void submitReview() throws Exception {
+        SqlStatementCounter.count(() -> mockMvc.perform(post("/reviews")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(REVIEW))
+                .andExpect(status().isCreated()))
+                .assertBudget(1, 1, 0, 0);
+    }
+
+    @Test
+    void queueReview() throws Exception {
+        // Both checks are answered from memory once the restaurant is cached
+        mockMvc.perform(get("/restaurants/1"));
+        AtomicReference<String> location = new AtomicReference<>();
+        SqlStatementCounter.count(() -> location.set(mockMvc.perform(post("/reviews/submissions")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(REVIEW))
+                .andExpect(status().isAccepted())
+                .andReturn().getResponse().getHeader(HttpHeaders.LOCATION)))
+                .assertBudget(0, 0, 0, 0);
+
+        awaitWritten(location.get().substring(location.get().lastIndexOf('/') + 1));
+    }
+
+    @Test
+    void getReview() throws Exception {
+        SqlStatementCounter.count(() -> mockMvc.perform(get("/reviews/1"))
+                .andExpect(status().isOk()))
+                .assertBudget(1, 0, 0, 0);
+    }
+
+    @Test
+    void getReview_notModified() throws Exception {
+        String etag = mockMvc.perform(get("/reviews/1")).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        SqlStatementCounter.count(() -> mockMvc.perform(get("/reviews/1").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified()))
+                .assertBudget(1, 0, 0, 0);
+    }
+
+    @Test
+    void exportReviews() throws Exception {
+        SqlStatementCounter.count(() -> mockMvc.perform(get("/reviews/export").param("restaurantId", "1"))
+                .andExpect(status().isOk()))
+                .assertBudget(1, 0, 0, 0);
+    }
+
+    private void awaitWritten(String trackingId) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (System.nanoTime() < deadline) {
+            if (reviewSubmissionQueue.status(trackingId).map(status -> status.getState() == State.WRITTEN).orElse(false)) {
+                return;
+            }
+            Thread.sleep(20);
+        }
+        fail("queued review was not written");
+    }
+}
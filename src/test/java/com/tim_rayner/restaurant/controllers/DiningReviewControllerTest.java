@@ -1,13 +1,22 @@
 package com.tim_rayner.restaurant.controllers;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import java.time.Instant;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -18,14 +27,21 @@ import org.springframework.test.web.servlet.MockMvc;
 
 import tools.jackson.databind.ObjectMapper;
 import com.tim_rayner.restaurant.entities.DiningReview;
+import com.tim_rayner.restaurant.entities.Restaurant;
 import com.tim_rayner.restaurant.entities.ReviewStatus;
 import com.tim_rayner.restaurant.repositories.DiningReviewRepository;
 import com.tim_rayner.restaurant.repositories.RestaurantRepository;
-import com.tim_rayner.restaurant.repositories.UserRepository;
+import com.tim_rayner.restaurant.repositories.RowVersion;
+import com.tim_rayner.restaurant.responses.SubmissionStatus;
+import com.tim_rayner.restaurant.services.RestaurantCache;
+import com.tim_rayner.restaurant.services.ReviewSubmissionQueue;
+import com.tim_rayner.restaurant.services.UsernameRegistry;
 
 @WebMvcTest(DiningReviewController.class)
 class DiningReviewControllerTest {
 
+    private static final Instant LAST_MODIFIED = Instant.parse("2025-01-01T12:00:00Z");
+
     @Autowired
     private MockMvc mockMvc;
 
@@ -39,7 +55,13 @@ class DiningReviewControllerTest {
     private RestaurantRepository restaurantRepository;
 
     @MockitoBean
-    private UserRepository userRepository;
+    private UsernameRegistry usernameRegistry;
+
+    @MockitoBean
+    private RestaurantCache restaurantCache;
+
+    @MockitoBean
+    private ReviewSubmissionQueue reviewSubmissionQueue;
 
     @Test
     void submitReview_success_returns201() throws Exception {
@@ -58,7 +80,7 @@ class DiningReviewControllerTest {
         savedReview.setReviewStatus(ReviewStatus.PENDING);
 
         when(restaurantRepository.existsById(1L)).thenReturn(true);
-        when(userRepository.existsByUsername("testuser")).thenReturn(true);
+        when(usernameRegistry.exists("testuser")).thenReturn(true);
         when(diningReviewRepository.save(any(DiningReview.class))).thenReturn(savedReview);
 
         mockMvc.perform(post("/reviews")
@@ -95,7 +117,7 @@ class DiningReviewControllerTest {
         review.setPeanutScore(4L);
 
         when(restaurantRepository.existsById(1L)).thenReturn(true);
-        when(userRepository.existsByUsername("nonexistentuser")).thenReturn(false);
+        when(usernameRegistry.exists("nonexistentuser")).thenReturn(false);
 
         mockMvc.perform(post("/reviews")
                 .contentType(MediaType.APPLICATION_JSON)
@@ -113,11 +135,15 @@ class DiningReviewControllerTest {
         review.setEggScore(5L);
         review.setComment("Excellent!");
         review.setReviewStatus(ReviewStatus.APPROVED);
+        review.setVersion(3L);
+        review.setLastModified(LAST_MODIFIED);
 
         when(diningReviewRepository.findById(1L)).thenReturn(Optional.of(review));
 
         mockMvc.perform(get("/reviews/1"))
                 .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"3\""))
+                .andExpect(header().dateValue("Last-Modified", LAST_MODIFIED.toEpochMilli()))
                 .andExpect(jsonPath("$.id").value(1))
                 .andExpect(jsonPath("$.author").value("testuser"))
                 .andExpect(jsonPath("$.restaurantId").value(1))
@@ -125,6 +151,9 @@ class DiningReviewControllerTest {
                 .andExpect(jsonPath("$.eggScore").value(5))
                 .andExpect(jsonPath("$.comment").value("Excellent!"))
                 .andExpect(jsonPath("$.reviewStatus").value("APPROVED"));
+
+        // Without a validator there is nothing to check the version against first
+        verify(diningReviewRepository, never()).findVersionById(any());
     }
 
     @Test
@@ -135,6 +164,66 @@ class DiningReviewControllerTest {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    void getReview_matchingETag_returns304WithoutLoadingReview() throws Exception {
+        when(diningReviewRepository.findVersionById(1L)).thenReturn(Optional.of(new RowVersion(3L, LAST_MODIFIED)));
+
+        mockMvc.perform(get("/reviews/1").header("If-None-Match", "\"3\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "\"3\""))
+                .andExpect(content().string(""));
+
+        verify(diningReviewRepository, never()).findById(any());
+    }
+
+    @Test
+    void getReview_staleETag_returns200() throws Exception {
+        DiningReview review = new DiningReview();
+        review.setId(1L);
+        review.setReviewStatus(ReviewStatus.APPROVED);
+
+        when(diningReviewRepository.findVersionById(1L)).thenReturn(Optional.of(new RowVersion(4L, LAST_MODIFIED)));
+        when(diningReviewRepository.findById(1L)).thenReturn(Optional.of(review));
+
+        mockMvc.perform(get("/reviews/1").header("If-None-Match", "\"3\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"4\""))
+                .andExpect(jsonPath("$.reviewStatus").value("APPROVED"));
+    }
+
+    @Test
+    void getReview_cborETag_returns304WithoutLoadingReview() throws Exception {
+        when(diningReviewRepository.findVersionById(1L)).thenReturn(Optional.of(new RowVersion(3L, LAST_MODIFIED)));
+
+        mockMvc.perform(get("/reviews/1")
+                .accept(MediaType.APPLICATION_CBOR)
+                .header("If-None-Match", "\"3-cbor\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "\"3-cbor\""))
+                .andExpect(header().string("Vary", "Accept"));
+
+        verify(diningReviewRepository, never()).findById(any());
+    }
+
+    @Test
+    void getReview_deletedAfterVersionCheck_returns404() throws Exception {
+        when(diningReviewRepository.findVersionById(1L)).thenReturn(Optional.of(new RowVersion(4L, LAST_MODIFIED)));
+        when(diningReviewRepository.findById(1L)).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/reviews/1").header("If-None-Match", "\"3\""))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void getReview_notModifiedSince_returns304() throws Exception {
+        when(diningReviewRepository.findVersionById(1L)).thenReturn(Optional.of(new RowVersion(3L, LAST_MODIFIED)));
+
+        mockMvc.perform(get("/reviews/1").header("If-Modified-Since", "Wed, 01 Jan 2025 12:00:00 GMT"))
+                .andExpect(status().isNotModified());
+
+        verify(diningReviewRepository, never()).findById(any());
+    }
+
     @Test
     void submitReview_withAllScores_returns201() throws Exception {
         DiningReview review = new DiningReview();
@@ -156,7 +245,7 @@ class DiningReviewControllerTest {
         savedReview.setReviewStatus(ReviewStatus.PENDING);
 
         when(restaurantRepository.existsById(1L)).thenReturn(true);
-        when(userRepository.existsByUsername("testuser")).thenReturn(true);
+        when(usernameRegistry.exists("testuser")).thenReturn(true);
         when(diningReviewRepository.save(any(DiningReview.class))).thenReturn(savedReview);
 
         mockMvc.perform(post("/reviews")
@@ -168,5 +257,110 @@ class DiningReviewControllerTest {
                 .andExpect(jsonPath("$.dairyScore").value(3))
                 .andExpect(jsonPath("$.reviewStatus").value("PENDING"));
     }
-}
 
+    @Test
+    void queueReview_accepted_returns202WithTrackingLocation() throws Exception {
+        DiningReview review = new DiningReview();
+        review.setAuthor("testuser");
+        review.setRestaurantId(1L);
+        review.setPeanutScore(4L);
+
+        when(restaurantCache.findById(1L)).thenReturn(Optional.of(new Restaurant()));
+        when(usernameRegistry.exists("testuser")).thenReturn(true);
+        when(reviewSubmissionQueue.submit(any(DiningReview.class))).thenReturn(Optional.of("abc-123"));
+
+        mockMvc.perform(post("/reviews/submissions")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(review)))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "/reviews/submissions/abc-123"))
+                .andExpect(jsonPath("$.trackingId").value("abc-123"))
+                .andExpect(jsonPath("$.state").value("QUEUED"));
+
+        verify(diningReviewRepository, never()).save(any(DiningReview.class));
+        verify(restaurantRepository, never()).existsById(any());
+    }
+
+    @Test
+    void queueReview_queueFull_returns503WithRetryAfter() throws Exception {
+        DiningReview review = new DiningReview();
+        review.setAuthor("testuser");
+        review.setRestaurantId(1L);
+
+        when(restaurantCache.findById(1L)).thenReturn(Optional.of(new Restaurant()));
+        when(usernameRegistry.exists("testuser")).thenReturn(true);
+        when(reviewSubmissionQueue.submit(any(DiningReview.class))).thenReturn(Optional.empty());
+
+        mockMvc.perform(post("/reviews/submissions")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(review)))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "1"));
+    }
+
+    @Test
+    void queueReview_userNotFound_returns404() throws Exception {
+        DiningReview review = new DiningReview();
+        review.setAuthor("nonexistentuser");
+        review.setRestaurantId(1L);
+
+        when(restaurantCache.findById(1L)).thenReturn(Optional.of(new Restaurant()));
+        when(usernameRegistry.exists("nonexistentuser")).thenReturn(false);
+
+        mockMvc.perform(post("/reviews/submissions")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(review)))
+                .andExpect(status().isNotFound());
+
+        verify(reviewSubmissionQueue, never()).submit(any(DiningReview.class));
+    }
+
+    @Test
+    void getSubmission_written_returnsReviewId() throws Exception {
+        when(reviewSubmissionQueue.status("abc-123"))
+                .thenReturn(Optional.of(new SubmissionStatus("abc-123", SubmissionStatus.State.WRITTEN, 42L)));
+
+        mockMvc.perform(get("/reviews/submissions/abc-123"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.state").value("WRITTEN"))
+                .andExpect(jsonPath("$.reviewId").value(42));
+    }
+
+    @Test
+    void exportReviews_passesFiltersAndStreamsRows() throws Exception {
+        DiningReview review = new DiningReview();
+        review.setId(7L);
+        review.setRestaurantId(3L);
+        review.setReviewStatus(ReviewStatus.APPROVED);
+
+        when(diningReviewRepository.streamForExport(eq(3L), eq(ReviewStatus.APPROVED), eq(5L), eq(10L), anyInt()))
+                .thenReturn(Stream.of(review));
+
+        mockMvc.perform(get("/reviews/export")
+                .param("restaurantId", "3")
+                .param("status", "APPROVED")
+                .param("fromId", "5")
+                .param("toId", "10"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andExpect(content().string("{\"id\":7,\"restaurantId\":3,\"reviewStatus\":\"APPROVED\"}\n"));
+    }
+
+    @Test
+    void exportReviews_noFilters_streamsEverything() throws Exception {
+        when(diningReviewRepository.streamForExport(isNull(), isNull(), isNull(), isNull(), anyInt()))
+                .thenReturn(Stream.empty());
+
+        mockMvc.perform(get("/reviews/export"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void exportReviews_unknownStatus_returns400() throws Exception {
+        mockMvc.perform(get("/reviews/export").param("status", "LOST"))
+                .andExpect(status().isBadRequest());
+
+        verify(diningReviewRepository, never()).streamForExport(any(), any(), any(), any(), anyInt());
+    }
+}
@@ -0,0 +1,76 @@
+package com.tim_rayner.restaurant.controllers;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.stream.StreamSupport;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.tim_rayner.restaurant.repositories.DiningReviewRepository;
+import com.tim_rayner.restaurant.repositories.RestaurantRepository;
+import com.tim_rayner.restaurant.support.QueryBudgetTest;
+import com.tim_rayner.restaurant.support.SqlStatementCounter;
+
+/**
+ * SQL statement budgets for {@link ImportController}: a change that adds a round-trip fails here.
+ * Each file fits in one batch, so it should cost one insert however many rows it has.
+ */
+@QueryBudgetTest
+class ImportControllerQueryBudgetTest {
+
+    private static final String POST_CODE = "QB3 3CC";
+    private static final String COMMENT = "query budget import";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private RestaurantRepository restaurantRepository;
+
+    @Autowired
+    private DiningReviewRepository diningReviewRepository;
+
+    @AfterEach
+    void removeImportedRows() {
+        diningReviewRepository.deleteAll(StreamSupport.stream(diningReviewRepository.findAll().spliterator(), false)
+                .filter(review -> COMMENT.equals(review.getComment()))
+                .toList());
+        restaurantRepository.deleteAll(StreamSupport.stream(restaurantRepository.findAll().spliterator(), false)
+                .filter(restaurant -> POST_CODE.equals(restaurant.getPostCode()))
+                .toList());
+    }
+
+    @Test
+    void importRestaurants() throws Exception {
+        String file = """
+                {"name":"Imported One","postCode":"QB3 3CC"}
+                {"name":"Imported Two","postCode":"QB3 3CC"}
+                {"name":"Imported Three","postCode":"QB3 3CC"}
+                """;
+        SqlStatementCounter.count(() -> mockMvc.perform(post("/admin/import/restaurants")
+                .contentType("application/x-ndjson")
+                .content(file))
+                .andExpect(status().isOk()))
+                .assertBudget(0, 1, 0, 0);
+    }
+
+    @Test
+    void importReviews() throws Exception {
+        // At most one lookup for each of the two restaurants, if they are not cached yet
+        String file = """
+                restaurantId,author,peanutScore,comment
+                1,johndoe,4,query budget import
+                1,janedoe,5,query budget import
+                2,johndoe,3,query budget import
+                """;
+        SqlStatementCounter.count(() -> mockMvc.perform(post("/admin/import/reviews")
+                .contentType("text/csv")
+                .content(file))
+                .andExpect(status().isOk()))
+                .assertBudget(2, 1, 0, 0);
+    }
+}
@@ -0,0 +1,76 @@
+package com.tim_rayner.restaurant.controllers;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.InputStream;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.webmvc.test.autoconfigure.WebMvcTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.tim_rayner.restaurant.responses.ImportRowError;
+import com.tim_rayner.restaurant.responses.ImportSummary;
+import com.tim_rayner.restaurant.services.BulkImporter;
+import com.tim_rayner.restaurant.services.ImportFormat;
+
+@WebMvcTest(ImportController.class)
+class ImportControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private BulkImporter bulkImporter;
+
+    @Test
+    void importRestaurants_ndjson_streamsErrorsAndSummaries() throws Exception {
+        doAnswer(invocation -> {
+            BulkImporter.Listener listener = invocation.getArgument(2);
+            listener.rejected(new ImportRowError(2, "name is required"));
+            listener.progress(new ImportSummary(3, 2, 1, true));
+            return new ImportSummary(3, 2, 1, true);
+        }).when(bulkImporter).importRestaurants(any(InputStream.class), eq(ImportFormat.NDJSON), any());
+
+        mockMvc.perform(post("/admin/import/restaurants")
+                .contentType("application/x-ndjson")
+                .content("{\"name\":\"A\",\"postCode\":\"X\"}\n{}\n{\"name\":\"B\",\"postCode\":\"X\"}\n"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andExpect(content().string(
+                        "{\"line\":2,\"error\":\"name is required\"}\n"
+                        + "{\"rowsRead\":3,\"imported\":2,\"rejected\":1,\"complete\":true}\n"));
+    }
+
+    @Test
+    void importReviews_csvWithCharset_usesCsvFormat() throws Exception {
+        doAnswer(invocation -> {
+            BulkImporter.Listener listener = invocation.getArgument(2);
+            listener.progress(new ImportSummary(1, 1, 0, true));
+            return new ImportSummary(1, 1, 0, true);
+        }).when(bulkImporter).importReviews(any(InputStream.class), eq(ImportFormat.CSV), any());
+
+        mockMvc.perform(post("/admin/import/reviews")
+                .contentType("text/csv; charset=UTF-8")
+                .content("author,restaurantId,peanutScore\njohndoe,1,4\n"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("{\"rowsRead\":1,\"imported\":1,\"rejected\":0,\"complete\":true}\n"));
+    }
+
+    @Test
+    void importReviews_unsupportedContentType_returns415() throws Exception {
+        mockMvc.perform(post("/admin/import/reviews")
+                .contentType("application/json")
+                .content("[]"))
+                .andExpect(status().isUnsupportedMediaType());
+
+        verifyNoInteractions(bulkImporter);
+    }
+}
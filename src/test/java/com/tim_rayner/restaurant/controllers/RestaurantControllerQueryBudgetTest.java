@@ -0,0 +1,103 @@
+package com.tim_rayner.restaurant.controllers;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.stream.StreamSupport;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.tim_rayner.restaurant.repositories.RestaurantRepository;
+import com.tim_rayner.restaurant.services.RestaurantCache;
+import com.tim_rayner.restaurant.support.QueryBudgetTest;
+import com.tim_rayner.restaurant.support.SqlStatementCounter;
+
+/**
+ * SQL statement budgets for {@link RestaurantController}: a change that adds a round-trip fails here.
+ */
+@QueryBudgetTest
+class RestaurantControllerQueryBudgetTest {
+
+    private static final String POST_CODE = "QB1 1AA";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private RestaurantRepository restaurantRepository;
+
+    @Autowired
+    private RestaurantCache restaurantCache;
+
+    @AfterEach
+    void removeCreatedRestaurants() {
+        restaurantRepository.deleteAll(StreamSupport.stream(restaurantRepository.findAll().spliterator(), false)
+                .filter(restaurant -> POST_CODE.equals(restaurant.getPostCode()))
+                .toList());
+    }
+
+    @Test
+    void createRestaurant() throws Exception {
+        SqlStatementCounter.count(() -> mockMvc.perform(post("/restaurants")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"Budget Bistro\",\"postCode\":\"" + POST_CODE + "\"}"))
+                .andExpect(status().isCreated()))
+                .assertBudget(0, 1, 0, 0);
+    }
+
+    @Test
+    void getRestaurant_notCached() throws Exception {
+        restaurantCache.evict(1L);
+        SqlStatementCounter.count(() -> mockMvc.perform(get("/restaurants/1"))
+                .andExpect(status().isOk()))
+                .assertBudget(1, 0, 0, 0);
+    }
+
+    @Test
+    void getRestaurant_cached() throws Exception {
+        mockMvc.perform(get("/restaurants/1"));
+        SqlStatementCounter.count(() -> mockMvc.perform(get("/restaurants/1"))
+                .andExpect(status().isOk()))
+                .assertBudget(0, 0, 0, 0);
+    }
+
+    @Test
+    void getRestaurant_notModified() throws Exception {
+        String etag = mockMvc.perform(get("/restaurants/1")).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        SqlStatementCounter.count(() -> mockMvc.perform(get("/restaurants/1").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified()))
+                .assertBudget(0, 0, 0, 0);
+    }
+
+    @Test
+    void searchRestaurants() throws Exception {
+        SqlStatementCounter.count(() -> mockMvc.perform(get("/restaurants/search")
+                .param("zipcode", "SW1A 1AA")
+                .param("allergy", "peanut,dairy"))
+                .andExpect(status().isOk()))
+                .assertBudget(0, 0, 0, 0);
+    }
+
+    @Test
+    void searchNearbyRestaurants() throws Exception {
+        SqlStatementCounter.count(() -> mockMvc.perform(get("/restaurants/nearby")
+                .param("postcode", "SW1A 1AA")
+                .param("radiusKm", "10")
+                .param("allergy", "peanut"))
+                .andExpect(status().isOk()))
+                .assertBudget(0, 0, 0, 0);
+    }
+
+    @Test
+    void exportRestaurants() throws Exception {
+        SqlStatementCounter.count(() -> mockMvc.perform(get("/restaurants/export"))
+                .andExpect(status().isOk()))
+                .assertBudget(1, 0, 0, 0);
+    }
+}
@@ -1,29 +1,65 @@
 package com.tim_rayner.restaurant.controllers;
 
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
 
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.webmvc.test.autoconfigure.WebMvcTest;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
 import org.springframework.test.web.servlet.MockMvc;
 
 import tools.jackson.databind.ObjectMapper;
+import tools.jackson.dataformat.cbor.CBORMapper;
+import com.tim_rayner.restaurant.entities.Allergen;
 import com.tim_rayner.restaurant.entities.Restaurant;
+import com.tim_rayner.restaurant.entities.RestaurantSummary;
+import com.tim_rayner.restaurant.events.RestaurantChanged;
 import com.tim_rayner.restaurant.repositories.RestaurantRepository;
+import com.tim_rayner.restaurant.repositories.RestaurantSummaryRepository;
+import com.tim_rayner.restaurant.responses.NearbyRestaurant;
+import com.tim_rayner.restaurant.services.AllergyLeaderboard;
+import com.tim_rayner.restaurant.services.GeoPoint;
+import com.tim_rayner.restaurant.services.NearbyRestaurantIndex;
+import com.tim_rayner.restaurant.services.PostcodeCentroids;
+import com.tim_rayner.restaurant.services.RestaurantCache;
+import com.tim_rayner.restaurant.services.TextSearchIndex;
 
 @WebMvcTest(RestaurantController.class)
+@Import({RestaurantCache.class, PostcodeCentroids.class})
+@RecordApplicationEvents
 class RestaurantControllerTest {
 
     @Autowired
@@ -35,6 +71,29 @@ class RestaurantControllerTest {
     @MockitoBean
     private RestaurantRepository restaurantRepository;
 
+    @MockitoBean
+    private RestaurantSummaryRepository restaurantSummaryRepository;
+
+    @Autowired
+    private ApplicationEvents applicationEvents;
+
+    @Autowired
+    private RestaurantCache restaurantCache;
+
+    @MockitoBean
+    private AllergyLeaderboard allergyLeaderboard;
+
+    @MockitoBean
+    private NearbyRestaurantIndex nearbyRestaurantIndex;
+
+    @MockitoBean
+    private TextSearchIndex textSearchIndex;
+
+    @BeforeEach
+    void clearCache() {
+        restaurantCache.evictAll();
+    }
+
     @Test
     void createRestaurant_success_returns201() throws Exception {
         Restaurant restaurant = new Restaurant();
@@ -51,6 +110,10 @@ class RestaurantControllerTest {
                 .andExpect(jsonPath("$.id").value(1))
                 .andExpect(jsonPath("$.name").value("Test Restaurant"))
                 .andExpect(jsonPath("$.postCode").value("SW1A 1AA"));
+
+        assertEquals(List.of(1L), applicationEvents.stream(RestaurantChanged.class)
+                .map(RestaurantChanged::restaurantId)
+                .toList());
     }
 
     @Test
@@ -72,6 +135,41 @@ class RestaurantControllerTest {
                 .andExpect(jsonPath("$.eggRating").value(3.50));
     }
 
+    @Test
+    void getRestaurant_repeatedReads_areServedFromCache() throws Exception {
+        Restaurant restaurant = new Restaurant();
+        restaurant.setId(1L);
+        restaurant.setName("Test Restaurant");
+
+        when(restaurantRepository.findById(any(Long.class))).thenReturn(Optional.of(restaurant));
+
+        mockMvc.perform(get("/restaurants/1")).andExpect(status().isOk());
+        mockMvc.perform(get("/restaurants/1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Test Restaurant"));
+
+        verify(restaurantRepository, times(1)).findById(any(Long.class));
+    }
+
+    @Test
+    void getRestaurant_afterEvict_reloadsFromRepository() throws Exception {
+        Restaurant restaurant = new Restaurant();
+        restaurant.setId(1L);
+        restaurant.setPeanutRating(4.0);
+
+        Restaurant recomputed = new Restaurant();
+        recomputed.setId(1L);
+        recomputed.setPeanutRating(4.5);
+
+        when(restaurantRepository.findById(any(Long.class)))
+                .thenReturn(Optional.of(restaurant))
+                .thenReturn(Optional.of(recomputed));
+
+        mockMvc.perform(get("/restaurants/1")).andExpect(jsonPath("$.peanutRating").value(4.0));
+        restaurantCache.evict(1L);
+        mockMvc.perform(get("/restaurants/1")).andExpect(jsonPath("$.peanutRating").value(4.5));
+    }
+
     @Test
     void getRestaurant_notFound_returns404() throws Exception {
         when(restaurantRepository.findById(any(Long.class))).thenReturn(Optional.empty());
@@ -82,19 +180,19 @@ class RestaurantControllerTest {
 
     @Test
     void searchRestaurants_byPeanutAllergy_returnsList() throws Exception {
-        Restaurant restaurant1 = new Restaurant();
+        RestaurantSummary restaurant1 = new RestaurantSummary();
         restaurant1.setId(1L);
         restaurant1.setName("Restaurant A");
         restaurant1.setPostCode("SW1A 1AA");
         restaurant1.setPeanutRating(4.75);
 
-        Restaurant restaurant2 = new Restaurant();
+        RestaurantSummary restaurant2 = new RestaurantSummary();
         restaurant2.setId(2L);
         restaurant2.setName("Restaurant B");
         restaurant2.setPostCode("SW1A 1AA");
         restaurant2.setPeanutRating(4.25);
 
-        when(restaurantRepository.findByPostCodeAndPeanutRatingNotNullOrderByPeanutRatingDesc("SW1A 1AA"))
+        when(restaurantSummaryRepository.searchByAllergens("SW1A 1AA", EnumSet.of(Allergen.PEANUT)))
                 .thenReturn(Arrays.asList(restaurant1, restaurant2));
 
         mockMvc.perform(get("/restaurants/search")
@@ -104,18 +202,48 @@ class RestaurantControllerTest {
                 .andExpect(jsonPath("$[0].name").value("Restaurant A"))
                 .andExpect(jsonPath("$[0].peanutRating").value(4.75))
                 .andExpect(jsonPath("$[1].name").value("Restaurant B"))
-                .andExpect(jsonPath("$[1].peanutRating").value(4.25));
+                .andExpect(jsonPath("$[1].peanutRating").value(4.25))
+                .andExpect(header().string("Vary", "Accept"));
+    }
+
+    @Test
+    void searchRestaurants_withFields_returnsOnlyThoseProperties() throws Exception {
+        RestaurantSummary restaurant = new RestaurantSummary();
+        restaurant.setId(1L);
+        restaurant.setName("Restaurant A");
+        restaurant.setPostCode("SW1A 1AA");
+        restaurant.setPeanutRating(4.75);
+        restaurant.setReviewCount(12);
+
+        when(restaurantSummaryRepository.searchByAllergens("SW1A 1AA", EnumSet.of(Allergen.PEANUT)))
+                .thenReturn(Collections.singletonList(restaurant));
+
+        mockMvc.perform(get("/restaurants/search")
+                .param("zipcode", "SW1A 1AA")
+                .param("allergy", "peanut")
+                .param("fields", "peanutRating,id,name"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("[{\"id\":1,\"name\":\"Restaurant A\",\"peanutRating\":4.75}]"));
+    }
+
+    @Test
+    void searchRestaurants_unknownField_returnsBadRequest() throws Exception {
+        mockMvc.perform(get("/restaurants/search")
+                .param("zipcode", "SW1A 1AA")
+                .param("allergy", "peanut")
+                .param("fields", "id,bio"))
+                .andExpect(status().isBadRequest());
     }
 
     @Test
     void searchRestaurants_byEggAllergy_returnsList() throws Exception {
-        Restaurant restaurant = new Restaurant();
+        RestaurantSummary restaurant = new RestaurantSummary();
         restaurant.setId(1L);
         restaurant.setName("Restaurant A");
         restaurant.setPostCode("SW1A 1AA");
         restaurant.setEggRating(4.50);
 
-        when(restaurantRepository.findByPostCodeAndEggRatingNotNullOrderByEggRatingDesc("SW1A 1AA"))
+        when(restaurantSummaryRepository.searchByAllergens("SW1A 1AA", EnumSet.of(Allergen.EGG)))
                 .thenReturn(Collections.singletonList(restaurant));
 
         mockMvc.perform(get("/restaurants/search")
@@ -128,13 +256,13 @@ class RestaurantControllerTest {
 
     @Test
     void searchRestaurants_byDairyAllergy_returnsList() throws Exception {
-        Restaurant restaurant = new Restaurant();
+        RestaurantSummary restaurant = new RestaurantSummary();
         restaurant.setId(1L);
         restaurant.setName("Restaurant A");
         restaurant.setPostCode("SW1A 1AA");
         restaurant.setDairyRating(3.75);
 
-        when(restaurantRepository.findByPostCodeAndDairyRatingNotNullOrderByDairyRatingDesc("SW1A 1AA"))
+        when(restaurantSummaryRepository.searchByAllergens("SW1A 1AA", EnumSet.of(Allergen.DAIRY)))
                 .thenReturn(Collections.singletonList(restaurant));
 
         mockMvc.perform(get("/restaurants/search")
@@ -145,6 +273,55 @@ class RestaurantControllerTest {
                 .andExpect(jsonPath("$[0].dairyRating").value(3.75));
     }
 
+    @Test
+    void searchRestaurants_byMultipleAllergies_returnsList() throws Exception {
+        RestaurantSummary restaurant = new RestaurantSummary();
+        restaurant.setId(1L);
+        restaurant.setName("Restaurant A");
+        restaurant.setPostCode("SW1A 1AA");
+        restaurant.setPeanutRating(4.50);
+        restaurant.setDairyRating(3.75);
+
+        when(restaurantSummaryRepository.searchByAllergens("SW1A 1AA", EnumSet.of(Allergen.PEANUT, Allergen.DAIRY)))
+                .thenReturn(Collections.singletonList(restaurant));
+
+        mockMvc.perform(get("/restaurants/search")
+                .param("zipcode", "SW1A 1AA")
+                .param("allergy", "peanut,Dairy"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name").value("Restaurant A"))
+                .andExpect(jsonPath("$[0].peanutRating").value(4.50))
+                .andExpect(jsonPath("$[0].dairyRating").value(3.75));
+    }
+
+    @Test
+    void searchRestaurants_oneInvalidAllergyAmongMany_returns400() throws Exception {
+        mockMvc.perform(get("/restaurants/search")
+                .param("zipcode", "SW1A 1AA")
+                .param("allergy", "peanut,gluten"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void searchRestaurants_leaderboardLoaded_skipsDatabase() throws Exception {
+        RestaurantSummary restaurant = new RestaurantSummary();
+        restaurant.setId(1L);
+        restaurant.setName("Restaurant A");
+        restaurant.setEggRating(4.50);
+
+        when(allergyLeaderboard.isLoaded()).thenReturn(true);
+        when(allergyLeaderboard.search("SW1A 1AA", EnumSet.of(Allergen.EGG)))
+                .thenReturn(Collections.singletonList(restaurant));
+
+        mockMvc.perform(get("/restaurants/search")
+                .param("zipcode", "SW1A 1AA")
+                .param("allergy", "egg"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name").value("Restaurant A"));
+
+        verify(restaurantSummaryRepository, never()).searchByAllergens(anyString(), anySet());
+    }
+
     @Test
     void searchRestaurants_invalidAllergy_returns400() throws Exception {
         mockMvc.perform(get("/restaurants/search")
@@ -155,7 +332,7 @@ class RestaurantControllerTest {
 
     @Test
     void searchRestaurants_noResults_returnsEmptyList() throws Exception {
-        when(restaurantRepository.findByPostCodeAndPeanutRatingNotNullOrderByPeanutRatingDesc("XX00 0XX"))
+        when(restaurantSummaryRepository.searchByAllergens("XX00 0XX", EnumSet.of(Allergen.PEANUT)))
                 .thenReturn(Collections.emptyList());
 
         mockMvc.perform(get("/restaurants/search")
@@ -165,5 +342,171 @@ class RestaurantControllerTest {
                 .andExpect(jsonPath("$").isArray())
                 .andExpect(jsonPath("$").isEmpty());
     }
-}
 
+    @Test
+    void searchNearbyRestaurants_returnsRankedMatchesWithDistance() throws Exception {
+        RestaurantSummary restaurant = new RestaurantSummary();
+        restaurant.setId(1L);
+        restaurant.setName("Restaurant A");
+        restaurant.setPostCode("WC2N 5DU");
+        restaurant.setPeanutRating(4.50);
+
+        when(allergyLeaderboard.isLoaded()).thenReturn(true);
+        when(nearbyRestaurantIndex.getMaxRadiusKm()).thenReturn(50.0);
+        when(nearbyRestaurantIndex.search(any(GeoPoint.class), eq(3.0), eq(EnumSet.of(Allergen.PEANUT)), eq(20)))
+                .thenReturn(List.of(new NearbyRestaurant(restaurant, 1.25)));
+
+        mockMvc.perform(get("/restaurants/nearby")
+                .param("postcode", "SW1A 1AA")
+                .param("radiusKm", "3")
+                .param("allergy", "peanut"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].restaurant.name").value("Restaurant A"))
+                .andExpect(jsonPath("$[0].distanceKm").value(1.25));
+    }
+
+    @Test
+    void searchNearbyRestaurants_unknownPostcode_returns400() throws Exception {
+        when(nearbyRestaurantIndex.getMaxRadiusKm()).thenReturn(50.0);
+
+        mockMvc.perform(get("/restaurants/nearby")
+                .param("postcode", "ZZ9 9ZZ")
+                .param("allergy", "peanut"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_PROBLEM_JSON))
+                .andExpect(jsonPath("$.detail").value(containsString("district ZZ9;")));
+    }
+
+    @Test
+    void searchNearbyRestaurants_radiusOverMaximum_returns400() throws Exception {
+        when(nearbyRestaurantIndex.getMaxRadiusKm()).thenReturn(50.0);
+
+        mockMvc.perform(get("/restaurants/nearby")
+                .param("postcode", "SW1A 1AA")
+                .param("radiusKm", "51")
+                .param("allergy", "peanut"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void searchNearbyRestaurants_beforeIndexIsBuilt_returns503() throws Exception {
+        when(nearbyRestaurantIndex.getMaxRadiusKm()).thenReturn(50.0);
+
+        mockMvc.perform(get("/restaurants/nearby")
+                .param("postcode", "SW1A 1AA")
+                .param("allergy", "peanut"))
+                .andExpect(status().isServiceUnavailable());
+    }
+
+    @Test
+    void getRestaurant_matchingETag_returns304() throws Exception {
+        Restaurant restaurant = restaurant(1L);
+        restaurant.setVersion(2L);
+        restaurant.setLastModified(Instant.parse("2025-01-01T12:00:00Z"));
+        when(restaurantRepository.findById(any(Long.class))).thenReturn(Optional.of(restaurant));
+
+        mockMvc.perform(get("/restaurants/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"2\""))
+                .andExpect(header().string("Last-Modified", "Wed, 01 Jan 2025 12:00:00 GMT"));
+
+        mockMvc.perform(get("/restaurants/1").header("If-None-Match", "\"2\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        // The second request is answered from the cache
+        verify(restaurantRepository, times(1)).findById(any(Long.class));
+    }
+
+    @Test
+    void getRestaurant_cbor_hasItsOwnETag() throws Exception {
+        Restaurant restaurant = restaurant(1L);
+        restaurant.setVersion(2L);
+        restaurant.setLastModified(Instant.parse("2025-01-01T12:00:00Z"));
+        when(restaurantRepository.findById(any(Long.class))).thenReturn(Optional.of(restaurant));
+
+        byte[] body = mockMvc.perform(get("/restaurants/1")
+                .accept(MediaType.APPLICATION_CBOR)
+                .header("If-None-Match", "\"2\""))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andExpect(header().string("ETag", "\"2-cbor\""))
+                .andExpect(header().string("Vary", "Accept"))
+                .andReturn().getResponse().getContentAsByteArray();
+        assertEquals(restaurant.getName(), new CBORMapper().readValue(body, Restaurant.class).getName());
+
+        mockMvc.perform(get("/restaurants/1")
+                .accept(MediaType.APPLICATION_CBOR)
+                .header("If-None-Match", "\"2-cbor\""))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void getRestaurant_wildcardBeforeCbor_getsTheCborETagSpringNegotiated() throws Exception {
+        Restaurant restaurant = restaurant(1L);
+        restaurant.setVersion(2L);
+        restaurant.setLastModified(Instant.parse("2025-01-01T12:00:00Z"));
+        when(restaurantRepository.findById(any(Long.class))).thenReturn(Optional.of(restaurant));
+
+        // Equal quality, so the more specific type wins however they are listed
+        List<String> etags = mockMvc.perform(get("/restaurants/1")
+                .header("Accept", "*/*, application/cbor")
+                .header("If-None-Match", "\"2\""))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andReturn().getResponse().getHeaders("ETag");
+        assertEquals(List.of("\"2-cbor\""), etags);
+
+        mockMvc.perform(get("/restaurants/1")
+                .header("Accept", "*/*, application/cbor")
+                .header("If-None-Match", "\"2-cbor\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("Vary", "Accept"))
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void getRestaurant_changedSinceETag_returns200() throws Exception {
+        Restaurant restaurant = restaurant(1L);
+        restaurant.setVersion(3L);
+        restaurant.setLastModified(Instant.parse("2025-01-01T12:00:00Z"));
+        when(restaurantRepository.findById(any(Long.class))).thenReturn(Optional.of(restaurant));
+
+        mockMvc.perform(get("/restaurants/1").header("If-None-Match", "\"2\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"3\""))
+                .andExpect(jsonPath("$.name").value("R1"));
+    }
+
+    @Test
+    void exportRestaurants_writesOneJsonObjectPerLine() throws Exception {
+        when(restaurantRepository.streamAll(anyInt())).thenReturn(Stream.of(restaurant(1L), restaurant(2L)));
+
+        mockMvc.perform(get("/restaurants/export"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andExpect(header().doesNotExist("Content-Encoding"))
+                .andExpect(content().string("{\"id\":1,\"name\":\"R1\"}\n{\"id\":2,\"name\":\"R2\"}\n"));
+    }
+
+    @Test
+    void exportRestaurants_acceptsGzip_compressesBody() throws Exception {
+        when(restaurantRepository.streamAll(anyInt())).thenReturn(Stream.of(restaurant(1L)));
+
+        byte[] body = mockMvc.perform(get("/restaurants/export").header("Accept-Encoding", "deflate, gzip"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            assertEquals("{\"id\":1,\"name\":\"R1\"}\n", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    private static Restaurant restaurant(Long id) {
+        Restaurant restaurant = new Restaurant();
+        restaurant.setId(id);
+        restaurant.setName("R" + id);
+        return restaurant;
+    }
+}
@@ -0,0 +1,28 @@
+package com.tim_rayner.restaurant.controllers;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.tim_rayner.restaurant.support.QueryBudgetTest;
+import com.tim_rayner.restaurant.support.SqlStatementCounter;
+
+/**
+ * SQL statement budgets for {@link SearchController}: a change that adds a round-trip fails here.
+ */
+@QueryBudgetTest
+class SearchControllerQueryBudgetTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void search() throws Exception {
+        SqlStatementCounter.count(() -> mockMvc.perform(get("/search").param("q", "nut-free kitchen"))
+                .andExpect(status().isOk()))
+                .assertBudget(0, 0, 0, 0);
+    }
+}
@@ -0,0 +1,59 @@
+package com.tim_rayner.restaurant.controllers;
+
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.webmvc.test.autoconfigure.WebMvcTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.tim_rayner.restaurant.responses.TextSearchHit;
+import com.tim_rayner.restaurant.services.TextSearchIndex;
+
+@WebMvcTest(SearchController.class)
+class SearchControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private TextSearchIndex textSearchIndex;
+
+    @Test
+    void search_returnsHits() throws Exception {
+        when(textSearchIndex.isLoaded()).thenReturn(true);
+        when(textSearchIndex.search("gluten free", 20))
+                .thenReturn(List.of(new TextSearchHit(1L, 7L, 2.5), new TextSearchHit(2L, null, 1.25)));
+
+        mockMvc.perform(get("/search").param("q", "gluten free"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].restaurantId").value(1))
+                .andExpect(jsonPath("$[0].reviewId").value(7))
+                .andExpect(jsonPath("$[1].reviewId").doesNotExist())
+                .andExpect(jsonPath("$[1].score").value(1.25));
+    }
+
+    @Test
+    void search_blankQuery_returns400() throws Exception {
+        mockMvc.perform(get("/search").param("q", " "))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void search_limitTooLarge_returns400() throws Exception {
+        mockMvc.perform(get("/search").param("q", "gluten").param("limit", "1000"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void search_beforeIndexIsBuilt_returns503() throws Exception {
+        mockMvc.perform(get("/search").param("q", "gluten"))
+                .andExpect(status().isServiceUnavailable());
+    }
+}
@@ -0,0 +1,68 @@
+package com.tim_rayner.restaurant.controllers;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.tim_rayner.restaurant.repositories.UserRepository;
+import com.tim_rayner.restaurant.support.QueryBudgetTest;
+import com.tim_rayner.restaurant.support.SqlStatementCounter;
+
+/**
+ * SQL statement budgets for {@link UserController}: a change that adds a round-trip fails here.
+ */
+@QueryBudgetTest
+class UserControllerQueryBudgetTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @AfterEach
+    void removeCreatedUser() {
+        userRepository.findByUsername("budgetuser").ifPresent(userRepository::delete);
+    }
+
+    @Test
+    void createUser() throws Exception {
+        SqlStatementCounter.count(() -> mockMvc.perform(post("/users")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"username\":\"budgetuser\",\"city\":\"Leeds\"}"))
+                .andExpect(status().isCreated()))
+                .assertBudget(1, 1, 0, 0);
+    }
+
+    @Test
+    void getUser() throws Exception {
+        SqlStatementCounter.count(() -> mockMvc.perform(get("/users/johndoe"))
+                .andExpect(status().isOk()))
+                .assertBudget(1, 0, 0, 0);
+    }
+
+    @Test
+    void getRecommendations() throws Exception {
+        SqlStatementCounter.count(() -> mockMvc.perform(get("/users/johndoe/recommendations"))
+                .andExpect(status().isOk()))
+                .assertBudget(1, 0, 0, 0);
+    }
+
+    @Test
+    void updateUser() throws Exception {
+        // A new value each run, so there is always something to update
+        String county = "County " + System.nanoTime();
+        SqlStatementCounter.count(() -> mockMvc.perform(put("/users/janedoe")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"county\":\"" + county + "\"}"))
+                .andExpect(status().isOk()))
+                .assertBudget(1, 0, 1, 0);
+    }
+}
@@ -1,6 +1,10 @@
 package com.tim_rayner.restaurant.controllers;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
@@ -8,20 +12,33 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import java.util.EnumSet;
+import java.util.List;
 import java.util.Optional;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.webmvc.test.autoconfigure.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 
 import tools.jackson.databind.ObjectMapper;
+import com.tim_rayner.restaurant.entities.Allergen;
+import com.tim_rayner.restaurant.entities.RestaurantSummary;
 import com.tim_rayner.restaurant.entities.User;
 import com.tim_rayner.restaurant.repositories.UserRepository;
+import com.tim_rayner.restaurant.responses.Recommendation;
+import com.tim_rayner.restaurant.services.AllergyLeaderboard;
+import com.tim_rayner.restaurant.services.GeoPoint;
+import com.tim_rayner.restaurant.services.NearbyRestaurantIndex;
+import com.tim_rayner.restaurant.services.PostcodeCentroids;
+import com.tim_rayner.restaurant.services.UsernameRegistry;
 
 @WebMvcTest(UserController.class)
+@Import(PostcodeCentroids.class)
 class UserControllerTest {
 
     @Autowired
@@ -33,13 +50,22 @@ class UserControllerTest {
     @MockitoBean
     private UserRepository userRepository;
 
+    @MockitoBean
+    private UsernameRegistry usernameRegistry;
+
+    @MockitoBean
+    private AllergyLeaderboard allergyLeaderboard;
+
+    @MockitoBean
+    private NearbyRestaurantIndex nearbyRestaurantIndex;
+
     @Test
     void createUser_success_returns201() throws Exception {
         User user = new User();
         user.setUsername("testuser");
         user.setCity("London");
 
-        when(userRepository.existsByUsername("testuser")).thenReturn(false);
+        when(usernameRegistry.exists("testuser")).thenReturn(false);
         when(userRepository.save(any(User.class))).thenReturn(user);
 
         mockMvc.perform(post("/users")
@@ -48,6 +74,8 @@ class UserControllerTest {
                 .andExpect(status().isCreated())
                 .andExpect(jsonPath("$.username").value("testuser"))
                 .andExpect(jsonPath("$.city").value("London"));
+
+        verify(usernameRegistry).register("testuser");
     }
 
     @Test
@@ -55,7 +83,7 @@ class UserControllerTest {
         User user = new User();
         user.setUsername("existinguser");
 
-        when(userRepository.existsByUsername("existinguser")).thenReturn(true);
+        when(usernameRegistry.exists("existinguser")).thenReturn(true);
 
         mockMvc.perform(post("/users")
                 .contentType(MediaType.APPLICATION_JSON)
@@ -63,6 +91,22 @@ class UserControllerTest {
                 .andExpect(status().isConflict());
     }
 
+    @Test
+    void createUser_concurrentDuplicate_returns409() throws Exception {
+        User user = new User();
+        user.setUsername("raceduser");
+
+        when(usernameRegistry.exists("raceduser")).thenReturn(false);
+        when(userRepository.save(any(User.class))).thenThrow(new DataIntegrityViolationException("duplicate"));
+
+        mockMvc.perform(post("/users")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(user)))
+                .andExpect(status().isConflict());
+
+        verify(usernameRegistry, never()).register(anyString());
+    }
+
     @Test
     void getUser_exists_returns200() throws Exception {
         User user = new User();
@@ -70,6 +114,7 @@ class UserControllerTest {
         user.setCity("London");
         user.setCounty("Greater London");
 
+        when(usernameRegistry.exists("testuser")).thenReturn(true);
         when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(user));
 
         mockMvc.perform(get("/users/testuser"))
@@ -81,10 +126,12 @@ class UserControllerTest {
 
     @Test
     void getUser_notFound_returns404() throws Exception {
-        when(userRepository.findByUsername("nonexistent")).thenReturn(Optional.empty());
+        when(usernameRegistry.exists("nonexistent")).thenReturn(false);
 
         mockMvc.perform(get("/users/nonexistent"))
                 .andExpect(status().isNotFound());
+
+        verify(userRepository, never()).findByUsername(anyString());
     }
 
     @Test
@@ -126,5 +173,77 @@ class UserControllerTest {
                 .content(objectMapper.writeValueAsString(updatedUser)))
                 .andExpect(status().isNotFound());
     }
-}
 
+    @Test
+    void getRecommendations_usesOnlyTheUsersAllergies() throws Exception {
+        User user = new User();
+        user.setUsername("testuser");
+        user.setPostCode("SW1A 1AA");
+        user.setActivePeanutAllergy(true);
+        user.setActiveEggAllergy(false);
+
+        RestaurantSummary restaurant = new RestaurantSummary();
+        restaurant.setId(1L);
+        restaurant.setName("Restaurant A");
+
+        when(usernameRegistry.exists("testuser")).thenReturn(true);
+        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(user));
+        when(allergyLeaderboard.isLoaded()).thenReturn(true);
+        when(nearbyRestaurantIndex.getMaxRadiusKm()).thenReturn(50.0);
+        when(nearbyRestaurantIndex.recommend(any(GeoPoint.class), eq(10.0), eq(EnumSet.of(Allergen.PEANUT)), eq(20)))
+                .thenReturn(List.of(new Recommendation(restaurant, 0.8, 4.5)));
+
+        mockMvc.perform(get("/users/testuser/recommendations"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].restaurant.name").value("Restaurant A"))
+                .andExpect(jsonPath("$[0].distanceKm").value(0.8))
+                .andExpect(jsonPath("$[0].score").value(4.5));
+    }
+
+    @Test
+    void getRecommendations_unknownPostcode_returnsEmptyList() throws Exception {
+        User user = new User();
+        user.setUsername("testuser");
+        user.setPostCode("ZZ9 9ZZ");
+
+        when(usernameRegistry.exists("testuser")).thenReturn(true);
+        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(user));
+        when(allergyLeaderboard.isLoaded()).thenReturn(true);
+        when(nearbyRestaurantIndex.getMaxRadiusKm()).thenReturn(50.0);
+
+        mockMvc.perform(get("/users/testuser/recommendations"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$").isEmpty());
+    }
+
+    @Test
+    void getRecommendations_unknownUser_returns404() throws Exception {
+        when(usernameRegistry.exists("nonexistent")).thenReturn(false);
+        when(nearbyRestaurantIndex.getMaxRadiusKm()).thenReturn(50.0);
+
+        mockMvc.perform(get("/users/nonexistent/recommendations"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void getRecommendations_radiusOverMaximum_returns400() throws Exception {
+        when(nearbyRestaurantIndex.getMaxRadiusKm()).thenReturn(50.0);
+
+        mockMvc.perform(get("/users/testuser/recommendations").param("radiusKm", "51"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getRecommendations_beforeIndexIsBuilt_returns503() throws Exception {
+        User user = new User();
+        user.setUsername("testuser");
+        user.setPostCode("SW1A 1AA");
+
+        when(usernameRegistry.exists("testuser")).thenReturn(true);
+        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(user));
+        when(nearbyRestaurantIndex.getMaxRadiusKm()).thenReturn(50.0);
+
+        mockMvc.perform(get("/users/testuser/recommendations"))
+                .andExpect(status().isServiceUnavailable());
+    }
+}
@@ -0,0 +1,135 @@
+package com.tim_rayner.restaurant.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.EnumSet;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.tim_rayner.restaurant.entities.Allergen;
+import com.tim_rayner.restaurant.entities.ReviewStatus;
+import com.tim_rayner.restaurant.support.SqlStatementCounter;
+
+/**
+ * Captures the SQL each hot repository query actually emits, asks H2 for its EXPLAIN plan with
+ * the same parameter values bound, and fails if the query would scan the whole table instead of
+ * using its index.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "com.tim_rayner.restaurant.support.SqlStatementCounter")
+class QueryPlanTest {
+
+    // Review statuses are stored as their ordinal
+    private static final int PENDING = ReviewStatus.PENDING.ordinal();
+    private static final int APPROVED = ReviewStatus.APPROVED.ordinal();
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DiningReviewRepository diningReviewRepository;
+
+    @Autowired
+    private RatingChangeRepository ratingChangeRepository;
+
+    @Autowired
+    private RestaurantSummaryRepository restaurantSummaryRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void findByReviewStatus_usesStatusIndex() throws Exception {
+        String plan = explain(() -> diningReviewRepository.findByReviewStatus(ReviewStatus.PENDING), PENDING);
+        assertUsesIndex(plan, "IDX_DINING_REVIEWS_STATUS_ID");
+    }
+
+    @Test
+    void findByReviewStatusAndIdGreaterThan_usesStatusIndex() throws Exception {
+        String plan = explain(() -> diningReviewRepository.findByReviewStatusAndIdGreaterThanOrderByIdAsc(
+                ReviewStatus.PENDING, 100L, Limit.of(101)), PENDING, 100L, 101);
+        assertUsesIndex(plan, "IDX_DINING_REVIEWS_STATUS_ID");
+    }
+
+    @Test
+    void countByReviewStatus_usesStatusIndex() throws Exception {
+        String plan = explain(() -> diningReviewRepository.countByReviewStatus(ReviewStatus.PENDING), PENDING);
+        assertUsesIndex(plan, "IDX_DINING_REVIEWS_STATUS_ID");
+    }
+
+    @Test
+    void findByRestaurantIdAndReviewStatus_usesRestaurantStatusIndex() throws Exception {
+        String plan = explain(() -> diningReviewRepository.findByRestaurantIdAndReviewStatus(
+                1L, ReviewStatus.APPROVED), 1L, APPROVED);
+        assertUsesIndex(plan, "IDX_DINING_REVIEWS_RESTAURANT_STATUS");
+    }
+
+    @Test
+    void sumApprovedScoresBeforeChanges_usesRestaurantIndexes() throws Exception {
+        String plan = explain(() -> ratingChangeRepository.sumApprovedScoresBeforeChanges(1L), 1L, APPROVED, 1L);
+        assertUsesIndex(plan, "IDX_DINING_REVIEWS_RESTAURANT_STATUS");
+        assertUsesIndex(plan, "IDX_RATING_CHANGES_RESTAURANT_ID");
+    }
+
+    @Test
+    void findRatingChangesByRestaurantId_usesRestaurantIndex() throws Exception {
+        String plan = explain(() -> ratingChangeRepository.findByRestaurantId(1L), 1L);
+        assertUsesIndex(plan, "IDX_RATING_CHANGES_RESTAURANT_ID");
+    }
+
+    @Test
+    void reviewsByAuthor_useAuthorIndex() {
+        // No repository method filters on author yet; the index serves ad hoc moderation queries
+        String plan = jdbcTemplate.queryForObject(
+                "EXPLAIN SELECT * FROM DINING_REVIEWS WHERE AUTHOR = ?", String.class, "johndoe");
+        assertUsesIndex(plan, "IDX_DINING_REVIEWS_AUTHOR");
+    }
+
+    @Test
+    void searchByAllergens_singleAllergy_usesPostCodeIndex() throws Exception {
+        String plan = explain(() -> restaurantSummaryRepository.searchByAllergens("SW1A 1AA", EnumSet.of(Allergen.PEANUT)),
+                "SW1A 1AA", true, false, false, true, false, false);
+        assertUsesIndex(plan, "IDX_RESTAURANT_SUMMARIES_POST_CODE_");
+    }
+
+    @Test
+    void searchByAllergens_allAllergies_usesPostCodeIndex() throws Exception {
+        String plan = explain(() -> restaurantSummaryRepository.searchByAllergens("SW1A 1AA", EnumSet.allOf(Allergen.class)),
+                "SW1A 1AA", true, true, true, true, true, true);
+        assertUsesIndex(plan, "IDX_RESTAURANT_SUMMARIES_POST_CODE_");
+    }
+
+    @Test
+    void findByUsername_usesUniqueIndex() throws Exception {
+        // A name nobody has, so the natural id is resolved by the database rather than the cache
+        String plan = explain(() -> userRepository.findByUsername("query-plan-nobody"), "query-plan-nobody");
+        assertFalse(plan.contains("tableScan"), plan);
+    }
+
+    private static void assertUsesIndex(String plan, String indexName) {
+        assertTrue(plan.contains(indexName), plan);
+        assertFalse(plan.contains("tableScan"), plan);
+    }
+
+    /**
+     * Runs the repository call, takes the one query it sent to the database, and explains that
+     * query with the given values bound to its parameters in order.
+     */
+    private String explain(SqlStatementCounter.Action call, Object... parameters) throws Exception {
+        List<String> queries = SqlStatementCounter.count(call).statements().stream()
+                .filter(sql -> !sql.toLowerCase().contains("next value for"))
+                .toList();
+        assertEquals(1, queries.size(), queries.toString());
+
+        String sql = queries.get(0);
+        assertEquals(parameters.length, sql.chars().filter(c -> c == '?').count(), sql);
+        return jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class, parameters);
+    }
+}
@@ -0,0 +1,134 @@
+package com.tim_rayner.restaurant.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.tim_rayner.restaurant.entities.Allergen;
+import com.tim_rayner.restaurant.entities.Restaurant;
+import com.tim_rayner.restaurant.entities.RestaurantSummary;
+import com.tim_rayner.restaurant.repositories.RestaurantRepository;
+import com.tim_rayner.restaurant.repositories.RestaurantSummaryRepository;
+
+/**
+ * Checks that the in-memory leaderboard returns exactly what the SQL search over the summaries
+ * returns, for every post code and every combination of allergens.
+ */
+@SpringBootTest
+class AllergyLeaderboardTest {
+
+    private static final List<String> POST_CODES = List.of("LB1 1AA", "LB1 2BB", "LB2 3CC");
+
+    @Autowired
+    private AllergyLeaderboard allergyLeaderboard;
+
+    @Autowired
+    private RestaurantSummaryProjector restaurantSummaryProjector;
+
+    @Autowired
+    private RestaurantRepository restaurantRepository;
+
+    @Autowired
+    private RestaurantSummaryRepository restaurantSummaryRepository;
+
+    private final List<Restaurant> created = new ArrayList<>();
+
+    @AfterEach
+    void removeRestaurants() {
+        restaurantRepository.deleteAll(created);
+        created.forEach(restaurant -> restaurantSummaryProjector.refresh(restaurant.getId()));
+    }
+
+    @Test
+    void search_matchesSqlForEveryAllergenCombination() {
+        Random random = new Random(42);
+        for (int i = 0; i < 60; i++) {
+            Restaurant restaurant = new Restaurant();
+            restaurant.setName("Restaurant " + i);
+            restaurant.setPostCode(POST_CODES.get(random.nextInt(POST_CODES.size())));
+            restaurant.setPeanutRating(randomRating(random));
+            restaurant.setEggRating(randomRating(random));
+            restaurant.setDairyRating(randomRating(random));
+            created.add(restaurantRepository.save(restaurant));
+        }
+        restaurantSummaryProjector.rebuild();
+
+        assertConsistentWithSql();
+    }
+
+    @Test
+    void update_keepsIndexConsistentWithSql() {
+        Random random = new Random(7);
+        for (int i = 0; i < 20; i++) {
+            Restaurant restaurant = new Restaurant();
+            restaurant.setName("Restaurant " + i);
+            restaurant.setPostCode(POST_CODES.get(i % POST_CODES.size()));
+            restaurant.setPeanutRating(randomRating(random));
+            restaurant.setEggRating(randomRating(random));
+            Restaurant saved = restaurantRepository.save(restaurant);
+            created.add(saved);
+            restaurantSummaryProjector.refresh(saved.getId());
+        }
+
+        // Recompute some ratings, drop others and move one restaurant to another post code
+        for (Restaurant restaurant : created) {
+            restaurant.setPeanutRating(randomRating(random));
+            restaurant.setDairyRating(randomRating(random));
+        }
+        created.get(0).setPostCode(POST_CODES.get(2));
+        for (int i = 0; i < created.size(); i++) {
+            // save returns the updated copy, with the version the cleanup must delete against
+            Restaurant saved = restaurantRepository.save(created.get(i));
+            created.set(i, saved);
+            restaurantSummaryProjector.refresh(saved.getId());
+        }
+
+        assertConsistentWithSql();
+    }
+
+    private void assertConsistentWithSql() {
+        assertTrue(allergyLeaderboard.isLoaded());
+        for (String postCode : POST_CODES) {
+            for (Set<Allergen> allergens : allCombinations()) {
+                assertEquals(
+                        ids(restaurantSummaryRepository.searchByAllergens(postCode, allergens)),
+                        ids(allergyLeaderboard.search(postCode, allergens)),
+                        postCode + " " + allergens);
+            }
+        }
+    }
+
+    // Quarter steps make ties likely, so the tie-break order is checked too
+    private static Double randomRating(Random random) {
+        return random.nextInt(5) == 0 ? null : 1 + random.nextInt(17) * 0.25;
+    }
+
+    private static List<Set<Allergen>> allCombinations() {
+        List<Set<Allergen>> combinations = new ArrayList<>();
+        Allergen[] allergens = Allergen.values();
+        for (int mask = 1; mask < 1 << allergens.length; mask++) {
+            Set<Allergen> combination = EnumSet.noneOf(Allergen.class);
+            for (int i = 0; i < allergens.length; i++) {
+                if ((mask & 1 << i) != 0) {
+                    combination.add(allergens[i]);
+                }
+            }
+            combinations.add(combination);
+        }
+        return combinations;
+    }
+
+    private static List<Long> ids(List<RestaurantSummary> restaurants) {
+        return restaurants.stream().map(RestaurantSummary::getId).toList();
+    }
+}
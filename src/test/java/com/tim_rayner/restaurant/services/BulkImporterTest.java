@@ -0,0 +1,149 @@
+package com.tim_rayner.restaurant.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.StreamSupport;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.tim_rayner.restaurant.entities.DiningReview;
+import com.tim_rayner.restaurant.entities.Restaurant;
+import com.tim_rayner.restaurant.entities.ReviewStatus;
+import com.tim_rayner.restaurant.repositories.DiningReviewRepository;
+import com.tim_rayner.restaurant.repositories.RestaurantRepository;
+import com.tim_rayner.restaurant.responses.ImportRowError;
+import com.tim_rayner.restaurant.responses.ImportSummary;
+
+@SpringBootTest(properties = "restaurant.import.batch-size=2")
+class BulkImporterTest {
+
+    private static final String POST_CODE = "IM1 1AA";
+
+    @Autowired
+    private BulkImporter bulkImporter;
+
+    @Autowired
+    private RestaurantRepository restaurantRepository;
+
+    @Autowired
+    private DiningReviewRepository diningReviewRepository;
+
+    private final RecordingListener listener = new RecordingListener();
+
+    @AfterEach
+    void removeImportedRows() {
+        List<Restaurant> restaurants = importedRestaurants();
+        List<Long> ids = restaurants.stream().map(Restaurant::getId).toList();
+        diningReviewRepository.deleteAll(StreamSupport.stream(diningReviewRepository.findAll().spliterator(), false)
+                .filter(review -> ids.contains(review.getRestaurantId()))
+                .toList());
+        restaurantRepository.deleteAll(restaurants);
+    }
+
+    @Test
+    void importRestaurants_ndjson_importsValidRowsAndReportsTheRest() {
+        String file = """
+                {"name":"Imported One","postCode":"IM1 1AA","peanutRating":4.5}
+                {"name": not json}
+
+                {"postCode":"IM1 1AA"}
+                {"id":999999,"name":"Imported Two","postCode":"IM1 1AA"}
+                {"name":"Imported Three","postCode":"IM1 1AA","eggRating":7}
+                {"name":"Imported Four","postCode":"IM1 1AA"}
+                """;
+
+        ImportSummary summary = bulkImporter.importRestaurants(stream(file), ImportFormat.NDJSON, listener);
+
+        assertEquals(6, summary.getRowsRead());
+        assertEquals(3, summary.getImported());
+        assertEquals(3, summary.getRejected());
+        assertTrue(summary.isComplete());
+        assertEquals(List.of(2L, 4L, 6L), listener.errors.stream().map(ImportRowError::getLine).toList());
+        assertEquals("name is required", listener.errors.get(1).getError());
+        // One report after the full batch of two, then the final summary
+        assertEquals(2, listener.summaries.size());
+
+        List<String> names = importedRestaurants().stream().map(Restaurant::getName).sorted().toList();
+        assertEquals(List.of("Imported Four", "Imported One", "Imported Two"), names);
+        assertTrue(importedRestaurants().stream().noneMatch(restaurant -> restaurant.getId() == 999999L));
+    }
+
+    @Test
+    void importRestaurants_rowTheDatabaseRefuses_isReportedWithoutDatabaseDetails() {
+        String file = "{\"name\":\"Imported One\",\"postCode\":\"IM1 1AA\"}\n"
+                + "{\"name\":\"" + "x".repeat(300) + "\",\"postCode\":\"IM1 1AA\"}\n";
+
+        ImportSummary summary = bulkImporter.importRestaurants(stream(file), ImportFormat.NDJSON, listener);
+
+        assertEquals(1, summary.getImported());
+        assertEquals(List.of(2L), listener.errors.stream().map(ImportRowError::getLine).toList());
+        assertEquals("could not be saved: it breaks a database constraint", listener.errors.get(0).getError());
+    }
+
+    @Test
+    void importReviews_csv_addsApprovedScoresToRatings() {
+        Restaurant restaurant = new Restaurant();
+        restaurant.setName("Import Target");
+        restaurant.setPostCode(POST_CODE);
+        restaurant = restaurantRepository.save(restaurant);
+        long id = restaurant.getId();
+
+        String file = "author,restaurantId,peanutScore,eggScore,comment,reviewStatus\n"
+                + "johndoe," + id + ",5,,\"Lovely, \"\"safe\"\" food\",APPROVED\n"
+                + "janedoe," + id + ",4,3,,APPROVED\n"
+                + "johndoe," + id + ",1,,,\n"
+                + "nobody," + id + ",3,,,APPROVED\n"
+                + "johndoe," + id + ",6,,,APPROVED\n";
+
+        ImportSummary summary = bulkImporter.importReviews(stream(file), ImportFormat.CSV, listener);
+
+        assertEquals(5, summary.getRowsRead());
+        assertEquals(3, summary.getImported());
+        assertEquals(List.of(5L, 6L), listener.errors.stream().map(ImportRowError::getLine).toList());
+
+        Restaurant updated = restaurantRepository.findById(id).orElseThrow();
+        assertEquals(4.5, updated.getPeanutRating());
+        assertEquals(3.0, updated.getEggRating());
+        assertEquals(3.75, updated.getOverallRating());
+
+        List<DiningReview> pending = diningReviewRepository.findByRestaurantIdAndReviewStatus(id, ReviewStatus.PENDING);
+        assertEquals(1, pending.size());
+        List<DiningReview> approved = diningReviewRepository.findByRestaurantIdAndReviewStatus(id, ReviewStatus.APPROVED);
+        assertTrue(approved.stream().anyMatch(review -> "Lovely, \"safe\" food".equals(review.getComment())));
+    }
+
+    private List<Restaurant> importedRestaurants() {
+        return StreamSupport.stream(restaurantRepository.findAll().spliterator(), false)
+                .filter(restaurant -> POST_CODE.equals(restaurant.getPostCode()))
+                .toList();
+    }
+
+    private static InputStream stream(String file) {
+        return new ByteArrayInputStream(file.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static class RecordingListener implements BulkImporter.Listener {
+
+        private final List<ImportRowError> errors = new ArrayList<>();
+        private final List<ImportSummary> summaries = new ArrayList<>();
+
+        @Override
+        public void rejected(ImportRowError error) {
+            errors.add(error);
+        }
+
+        @Override
+        public void progress(ImportSummary summary) {
+            summaries.add(summary);
+        }
+    }
+}
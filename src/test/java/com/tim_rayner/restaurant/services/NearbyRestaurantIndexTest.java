@@ -0,0 +1,171 @@
+package com.tim_rayner.restaurant.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import com.tim_rayner.restaurant.entities.Allergen;
+import com.tim_rayner.restaurant.entities.RestaurantSummary;
+import com.tim_rayner.restaurant.responses.NearbyRestaurant;
+import com.tim_rayner.restaurant.responses.Recommendation;
+
+/**
+ * Checks the grid against a brute-force scan over every restaurant.
+ */
+class NearbyRestaurantIndexTest {
+
+    private final PostcodeCentroids postcodeCentroids =
+            new PostcodeCentroids(new ClassPathResource("geo/outcode-centroids.csv"));
+    private final NearbyRestaurantIndex index = new NearbyRestaurantIndex(postcodeCentroids, 2, 50);
+
+    @Test
+    void locate_acceptsAnySpacingAndCase_andOutwardCodes() {
+        GeoPoint westminster = postcodeCentroids.locate("SW1A 1AA").orElseThrow();
+        assertEquals(westminster, postcodeCentroids.locate("sw1a1aa").orElseThrow());
+        assertEquals(westminster, postcodeCentroids.locate("SW1A").orElseThrow());
+        assertTrue(postcodeCentroids.locate("ZZ9 9ZZ").isEmpty());
+    }
+
+    @Test
+    void distanceKm_londonToManchester() {
+        GeoPoint london = postcodeCentroids.locate("SW1A 1AA").orElseThrow();
+        GeoPoint manchester = postcodeCentroids.locate("M1 1AA").orElseThrow();
+        assertEquals(262, london.distanceKm(manchester), 5);
+    }
+
+    @Test
+    void search_matchesBruteForce() {
+        Random random = new Random(42);
+        List<String> outcodes = postcodeCentroids.outcodes();
+        List<RestaurantSummary> restaurants = new ArrayList<>();
+        for (long id = 1; id <= 2000; id++) {
+            RestaurantSummary restaurant = new RestaurantSummary();
+            restaurant.setId(id);
+            restaurant.setPostCode(outcodes.get(random.nextInt(outcodes.size())) + " 1AA");
+            restaurant.setPeanutRating(randomRating(random));
+            restaurant.setEggRating(randomRating(random));
+            restaurant.setDairyRating(randomRating(random));
+            restaurants.add(restaurant);
+            index.put(restaurant);
+        }
+
+        List<Set<Allergen>> allergenSets = List.of(EnumSet.of(Allergen.PEANUT),
+                EnumSet.of(Allergen.EGG, Allergen.DAIRY), EnumSet.allOf(Allergen.class));
+        for (int i = 0; i < 50; i++) {
+            GeoPoint origin = postcodeCentroids.locate(outcodes.get(random.nextInt(outcodes.size()))).orElseThrow();
+            double radiusKm = 0.5 + random.nextDouble() * 30;
+            Set<Allergen> allergens = allergenSets.get(i % allergenSets.size());
+
+            assertEquals(ids(bruteForce(restaurants, origin, radiusKm, allergens)),
+                    ids(index.search(origin, radiusKm, allergens, Integer.MAX_VALUE)));
+        }
+    }
+
+    @Test
+    void put_movesRestaurantToItsNewPostcode() {
+        RestaurantSummary restaurant = new RestaurantSummary();
+        restaurant.setId(1L);
+        restaurant.setPostCode("SW1A 1AA");
+        restaurant.setPeanutRating(4.0);
+        index.put(restaurant);
+
+        RestaurantSummary moved = new RestaurantSummary();
+        moved.setId(1L);
+        moved.setPostCode("M1 1AA");
+        moved.setPeanutRating(4.0);
+        index.put(moved);
+
+        GeoPoint london = postcodeCentroids.locate("SW1A").orElseThrow();
+        GeoPoint manchester = postcodeCentroids.locate("M1").orElseThrow();
+        assertTrue(index.search(london, 5, EnumSet.of(Allergen.PEANUT), 10).isEmpty());
+        assertEquals(List.of(1L), ids(index.search(manchester, 5, EnumSet.of(Allergen.PEANUT), 10)));
+    }
+
+    @Test
+    void scores_averageOnlyTheAllergiesInTheMask() {
+        RestaurantSummary restaurant = new RestaurantSummary();
+        restaurant.setId(1L);
+        restaurant.setOverallRating(3.5);
+        restaurant.setPeanutRating(4.0);
+        restaurant.setEggRating(2.33);
+        restaurant.setDairyRating(null);
+
+        double[] scores = NearbyRestaurantIndex.scores(restaurant);
+
+        assertEquals(3.5, scores[0]);
+        assertEquals(4.0, scores[Allergen.mask(EnumSet.of(Allergen.PEANUT))]);
+        assertEquals(3.17, scores[Allergen.mask(EnumSet.of(Allergen.PEANUT, Allergen.EGG))]);
+        assertTrue(Double.isNaN(scores[Allergen.mask(EnumSet.of(Allergen.DAIRY))]));
+        assertTrue(Double.isNaN(scores[Allergen.mask(EnumSet.allOf(Allergen.class))]));
+    }
+
+    @Test
+    void recommend_ranksByTheUsersAllergies_andFollowsRatingChanges() {
+        RestaurantSummary peanutSafe = new RestaurantSummary();
+        peanutSafe.setId(1L);
+        peanutSafe.setPostCode("SW1A 1AA");
+        peanutSafe.setOverallRating(3.0);
+        peanutSafe.setPeanutRating(5.0);
+        peanutSafe.setEggRating(1.0);
+        index.put(peanutSafe);
+
+        RestaurantSummary eggSafe = new RestaurantSummary();
+        eggSafe.setId(2L);
+        eggSafe.setPostCode("SW1A 2AA");
+        eggSafe.setOverallRating(4.0);
+        eggSafe.setPeanutRating(2.0);
+        eggSafe.setEggRating(5.0);
+        index.put(eggSafe);
+
+        GeoPoint origin = postcodeCentroids.locate("SW1A").orElseThrow();
+        assertEquals(List.of(1L, 2L), recommendedIds(index.recommend(origin, 5, EnumSet.of(Allergen.PEANUT), 10)));
+        assertEquals(List.of(2L, 1L), recommendedIds(index.recommend(origin, 5, EnumSet.of(Allergen.EGG), 10)));
+        assertEquals(List.of(2L, 1L), recommendedIds(index.recommend(origin, 5, EnumSet.noneOf(Allergen.class), 10)));
+        assertTrue(index.recommend(origin, 5, EnumSet.of(Allergen.DAIRY), 10).isEmpty());
+
+        eggSafe.setPeanutRating(5.0);
+        index.put(eggSafe);
+        List<Recommendation> recommendations = index.recommend(origin, 5, EnumSet.of(Allergen.PEANUT, Allergen.EGG), 1);
+        assertEquals(List.of(2L), recommendedIds(recommendations));
+        assertEquals(5.0, recommendations.get(0).getScore());
+    }
+
+    private List<NearbyRestaurant> bruteForce(
+            List<RestaurantSummary> restaurants, GeoPoint origin, double radiusKm, Set<Allergen> allergens) {
+        List<NearbyRestaurant> matches = new ArrayList<>();
+        for (RestaurantSummary restaurant : restaurants) {
+            double distance = postcodeCentroids.locate(restaurant.getPostCode()).orElseThrow().distanceKm(origin);
+            if (distance <= radiusKm
+                    && allergens.stream().allMatch(allergen -> AllergyLeaderboard.rating(restaurant, allergen) != null)) {
+                matches.add(new NearbyRestaurant(restaurant, RatingAggregator.roundToTwoDecimals(distance)));
+            }
+        }
+        matches.sort(Comparator
+                .comparingDouble((NearbyRestaurant match) ->
+                        -AllergyLeaderboard.combinedScore(match.getRestaurant(), allergens))
+                .thenComparingDouble(NearbyRestaurant::getDistanceKm)
+                .thenComparing(match -> match.getRestaurant().getId()));
+        return matches;
+    }
+
+    private static List<Long> ids(List<NearbyRestaurant> matches) {
+        return matches.stream().map(match -> match.getRestaurant().getId()).toList();
+    }
+
+    private static List<Long> recommendedIds(List<Recommendation> recommendations) {
+        return recommendations.stream().map(match -> match.getRestaurant().getId()).toList();
+    }
+
+    private static Double randomRating(Random random) {
+        return random.nextInt(4) == 0 ? null : RatingAggregator.roundToTwoDecimals(1 + random.nextDouble() * 4);
+    }
+}
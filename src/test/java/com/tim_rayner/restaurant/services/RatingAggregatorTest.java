@@ -0,0 +1,142 @@
+package com.tim_rayner.restaurant.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+import com.tim_rayner.restaurant.entities.DiningReview;
+import com.tim_rayner.restaurant.entities.Restaurant;
+
+class RatingAggregatorTest {
+
+    @Test
+    void roundToTwoDecimals_matchesBigDecimalForEveryAverageOfSmallCounts() {
+        for (long count = 1; count <= 500; count++) {
+            for (long sum = 0; sum <= 5 * count; sum++) {
+                double average = (double) sum / count;
+                assertEquals(RatingCalculator.roundToTwoDecimals(average), RatingAggregator.roundToTwoDecimals(average),
+                        () -> "average " + average);
+            }
+        }
+    }
+
+    @Test
+    void roundToTwoDecimals_matchesBigDecimalAtAndAroundMidpoints() {
+        for (int thousandths = 1; thousandths < 10000; thousandths += 2) {
+            double midpoint = thousandths / 2000.0;
+            for (double value : new double[] {midpoint, Math.nextDown(midpoint), Math.nextUp(midpoint)}) {
+                assertEquals(RatingCalculator.roundToTwoDecimals(value), RatingAggregator.roundToTwoDecimals(value),
+                        () -> "value " + value);
+            }
+        }
+    }
+
+    @Test
+    void roundToTwoDecimals_matchesBigDecimalForRandomValues() {
+        SplittableRandom random = new SplittableRandom(7);
+        for (int i = 0; i < 1_000_000; i++) {
+            double value = random.nextDouble() * 5;
+            assertEquals(RatingCalculator.roundToTwoDecimals(value), RatingAggregator.roundToTwoDecimals(value),
+                    () -> "value " + value);
+        }
+    }
+
+    @Test
+    void of_matchesReferenceRatingsForRandomReviews() {
+        SplittableRandom random = new SplittableRandom(11);
+        for (int trial = 0; trial < 2000; trial++) {
+            List<DiningReview> reviews = randomReviews(random, random.nextInt(0, 60));
+
+            Restaurant restaurant = new Restaurant();
+            RatingAggregator.of(reviews).applyTo(restaurant);
+
+            Double peanut = RatingCalculator.calculateAverage(reviews, "peanut");
+            Double egg = RatingCalculator.calculateAverage(reviews, "egg");
+            Double dairy = RatingCalculator.calculateAverage(reviews, "dairy");
+            assertEquals(peanut, restaurant.getPeanutRating());
+            assertEquals(egg, restaurant.getEggRating());
+            assertEquals(dairy, restaurant.getDairyRating());
+            assertEquals(RatingCalculator.calculateOverallAverage(peanut, egg, dairy), restaurant.getOverallRating());
+        }
+    }
+
+    @Test
+    void applyTo_storesRunningTotals() {
+        DiningReview first = review(5L, 4L, null);
+        DiningReview second = review(4L, 4L, 4L);
+
+        Restaurant restaurant = new Restaurant();
+        RatingAggregator.of(List.of(first, second)).applyTo(restaurant);
+
+        assertEquals(9L, restaurant.getPeanutScoreSum());
+        assertEquals(2L, restaurant.getPeanutScoreCount());
+        assertEquals(8L, restaurant.getEggScoreSum());
+        assertEquals(2L, restaurant.getEggScoreCount());
+        assertEquals(4L, restaurant.getDairyScoreSum());
+        assertEquals(1L, restaurant.getDairyScoreCount());
+        assertEquals(4.5, restaurant.getPeanutRating());
+        assertEquals(4.0, restaurant.getEggRating());
+        assertEquals(4.0, restaurant.getDairyRating());
+        assertEquals(4.17, restaurant.getOverallRating());
+    }
+
+    @Test
+    void fromRunningTotals_addAndRemove_matchFullRecompute() {
+        SplittableRandom random = new SplittableRandom(13);
+        List<DiningReview> reviews = randomReviews(random, 100);
+        Restaurant restaurant = new Restaurant();
+        RatingAggregator.of(reviews.subList(0, 50)).applyTo(restaurant);
+
+        RatingAggregator aggregator = RatingAggregator.fromRunningTotals(restaurant);
+        reviews.subList(50, 100).forEach(aggregator::add);
+        reviews.subList(0, 25).forEach(aggregator::remove);
+        aggregator.applyTo(restaurant);
+
+        Restaurant expected = new Restaurant();
+        RatingAggregator.of(reviews.subList(25, 100)).applyTo(expected);
+        assertEquals(expected.getPeanutScoreSum(), restaurant.getPeanutScoreSum());
+        assertEquals(expected.getDairyScoreCount(), restaurant.getDairyScoreCount());
+        assertEquals(expected.getEggRating(), restaurant.getEggRating());
+        assertEquals(expected.getOverallRating(), restaurant.getOverallRating());
+    }
+
+    @Test
+    void removingLastScore_clearsRating() {
+        DiningReview review = review(5L, null, null);
+        Restaurant restaurant = new Restaurant();
+        RatingAggregator.of(List.of(review)).applyTo(restaurant);
+
+        RatingAggregator aggregator = RatingAggregator.fromRunningTotals(restaurant);
+        aggregator.remove(review);
+        aggregator.applyTo(restaurant);
+
+        assertEquals(0L, restaurant.getPeanutScoreCount());
+        assertNull(restaurant.getPeanutRating());
+        assertNull(restaurant.getOverallRating());
+    }
+
+    private static List<DiningReview> randomReviews(SplittableRandom random, int count) {
+        List<DiningReview> reviews = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            reviews.add(review(score(random), score(random), score(random)));
+        }
+        return reviews;
+    }
+
+    private static Long score(SplittableRandom random) {
+        return random.nextBoolean() ? (long) random.nextInt(1, 6) : null;
+    }
+
+    private static DiningReview review(Long peanut, Long egg, Long dairy) {
+        DiningReview review = new DiningReview();
+        review.setPeanutScore(peanut);
+        review.setEggScore(egg);
+        review.setDairyScore(dairy);
+        return review;
+    }
+}
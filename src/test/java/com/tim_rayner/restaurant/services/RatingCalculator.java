@@ -0,0 +1,95 @@
+package com.tim_rayner.restaurant.services;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+
+import com.tim_rayner.restaurant.entities.DiningReview;
+
+/**
+ * Reference implementation of the rating math: ratings are averages of the approved scores,
+ * rounded HALF_UP to two decimal places through BigDecimal. The application uses {@link RatingAggregator};
+ * this is only the baseline its results are tested and benchmarked against, and is shipped to the
+ * benchmarks module in the test jar.
+ */
+public final class RatingCalculator {
+
+    private RatingCalculator() {
+    }
+
+    /**
+     * Collects the non-null scores of one type ("peanut", "egg" or "dairy") from the reviews.
+     */
+    public static List<Long> collectScores(List<DiningReview> reviews, String scoreType) {
+        return reviews.stream()
+                .map(review -> {
+                    switch (scoreType) {
+                        case "peanut": return review.getPeanutScore();
+                        case "egg": return review.getEggScore();
+                        case "dairy": return review.getDairyScore();
+                        default: return null;
+                    }
+                })
+                .filter(score -> score != null)
+                .toList();
+    }
+
+    public static Long sum(List<Long> scores) {
+        return scores.stream()
+                .mapToLong(Long::longValue)
+                .sum();
+    }
+
+    /**
+     * Averages one score type over the reviews directly, or null if none of them has that score.
+     */
+    public static Double calculateAverage(List<DiningReview> reviews, String scoreType) {
+        List<Long> scores = collectScores(reviews, scoreType);
+        return calculateAverage(sum(scores), (long) scores.size());
+    }
+
+    /**
+     * Averages a running total, or null if it covers no scores.
+     */
+    public static Double calculateAverage(Long sum, Long count) {
+        if (count == null || count == 0) {
+            return null;
+        }
+        
+        // Same value LongStream.average() gives over the individual scores
+        return roundToTwoDecimals((double) sum / count);
+    }
+
+    /**
+     * Averages whichever of the allergen ratings are present, or null if none are.
+     */
+    public static Double calculateOverallAverage(Double peanut, Double egg, Double dairy) {
+        double sum = 0.0;
+        int count = 0;
+        
+        if (peanut != null) {
+            sum += peanut;
+            count++;
+        }
+        if (egg != null) {
+            sum += egg;
+            count++;
+        }
+        if (dairy != null) {
+            sum += dairy;
+            count++;
+        }
+        
+        if (count == 0) {
+            return null;
+        }
+        
+        return roundToTwoDecimals(sum / count);
+    }
+
+    public static Double roundToTwoDecimals(double value) {
+        return BigDecimal.valueOf(value)
+                .setScale(2, RoundingMode.HALF_UP)
+                .doubleValue();
+    }
+}
@@ -0,0 +1,130 @@
+package com.tim_rayner.restaurant.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class RatingRecomputeSchedulerTest {
+
+    private final RestaurantRatingService restaurantRatingService = mock(RestaurantRatingService.class);
+    private final RatingRecomputeScheduler scheduler = new RatingRecomputeScheduler(
+            restaurantRatingService, new SimpleMeterRegistry(), 4, Duration.ofSeconds(5), Duration.ofMillis(50));
+
+    @AfterEach
+    void stopScheduler() throws InterruptedException {
+        scheduler.destroy();
+    }
+
+    @Test
+    void requestsDuringARecompute_shareOneFollowUpRun() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(restaurantRatingService).recompute(1L);
+
+        CompletableFuture<Void> first = scheduler.request(1L);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        List<CompletableFuture<Void>> burst = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            burst.add(scheduler.request(1L));
+        }
+        release.countDown();
+
+        first.get(5, TimeUnit.SECONDS);
+        CompletableFuture.allOf(burst.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+        // The follow-up run applies whatever the whole burst recorded at once
+        verify(restaurantRatingService, times(2)).recompute(1L);
+        assertEquals(2, scheduler.completedRecomputes());
+    }
+
+    @Test
+    void differentRestaurants_recomputeInParallel() throws Exception {
+        // Each recompute waits for the other to start, which only succeeds if they run at the same time
+        CountDownLatch bothRunning = new CountDownLatch(2);
+        doAnswer(invocation -> {
+            bothRunning.countDown();
+            if (!bothRunning.await(5, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("recomputes ran one after the other");
+            }
+            return null;
+        }).when(restaurantRatingService).recompute(anyLong());
+
+        CompletableFuture.allOf(scheduler.request(1L), scheduler.request(2L)).get(10, TimeUnit.SECONDS);
+
+        assertEquals(2, scheduler.completedRecomputes());
+    }
+
+    @Test
+    void optimisticLockFailure_isRetried() throws Exception {
+        doThrow(new OptimisticLockingFailureException("stale"))
+                .doNothing()
+                .when(restaurantRatingService).recompute(1L);
+
+        scheduler.request(1L).get(5, TimeUnit.SECONDS);
+
+        verify(restaurantRatingService, times(2)).recompute(1L);
+        assertEquals(1, scheduler.completedRecomputes());
+    }
+
+    @Test
+    void failedRecompute_isRequestedAgainAfterTheRetryDelay() {
+        doThrow(new IllegalStateException("database down"))
+                .doNothing()
+                .when(restaurantRatingService).recompute(1L);
+
+        assertThrows(ExecutionException.class, () -> scheduler.request(1L).get(5, TimeUnit.SECONDS));
+
+        // No one asks again: the recorded changes are applied by the retry
+        verify(restaurantRatingService, timeout(5000).times(2)).recompute(1L);
+    }
+
+    @Test
+    void recomputeAndWait_reportsRestaurantsNotYetUpToDate() {
+        doThrow(new IllegalStateException("database down"))
+                .doNothing()
+                .when(restaurantRatingService).recompute(1L);
+
+        assertEquals(Set.of(1L), scheduler.recomputeAndWait(List.of(1L, 2L)));
+        verify(restaurantRatingService).recompute(2L);
+    }
+
+    @Test
+    void recomputePending_recomputesRestaurantsLeftWithChanges() {
+        when(restaurantRatingService.restaurantsWithPendingChanges()).thenReturn(List.of(1L, 2L));
+        doNothing().when(restaurantRatingService).recompute(anyLong());
+
+        scheduler.recomputePending();
+
+        verify(restaurantRatingService, timeout(5000)).recompute(eq(1L));
+        verify(restaurantRatingService, timeout(5000)).recompute(eq(2L));
+    }
+}
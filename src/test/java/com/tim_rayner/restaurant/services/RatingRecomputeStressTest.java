@@ -0,0 +1,175 @@
+package com.tim_rayner.restaurant.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.tim_rayner.restaurant.actions.AdminReviewAction;
+import com.tim_rayner.restaurant.controllers.AdminController;
+import com.tim_rayner.restaurant.entities.DiningReview;
+import com.tim_rayner.restaurant.entities.Restaurant;
+import com.tim_rayner.restaurant.entities.RestaurantSummary;
+import com.tim_rayner.restaurant.entities.ReviewStatus;
+import com.tim_rayner.restaurant.repositories.DiningReviewRepository;
+import com.tim_rayner.restaurant.repositories.RestaurantRepository;
+import com.tim_rayner.restaurant.repositories.RestaurantSummaryRepository;
+
+/**
+ * Many moderators approving and rejecting reviews of the same few restaurants at once: every
+ * restaurant must end up with exactly the ratings of its approved reviews, with no update lost.
+ */
+@SpringBootTest
+class RatingRecomputeStressTest {
+
+    private static final int RESTAURANTS = 4;
+    private static final int REVIEWS_PER_RESTAURANT = 60;
+    private static final int MODERATORS = 16;
+
+    @Autowired
+    private AdminController adminController;
+
+    @Autowired
+    private RatingRecomputeScheduler ratingRecomputeScheduler;
+
+    @Autowired
+    private RestaurantSummaryProjector restaurantSummaryProjector;
+
+    @Autowired
+    private RestaurantRepository restaurantRepository;
+
+    @Autowired
+    private RestaurantSummaryRepository restaurantSummaryRepository;
+
+    @Autowired
+    private DiningReviewRepository diningReviewRepository;
+
+    private final List<Long> restaurantIds = new ArrayList<>();
+    private final List<Long> reviewIds = new ArrayList<>();
+
+    @AfterEach
+    void removeRows() {
+        diningReviewRepository.deleteAllById(reviewIds);
+        restaurantRepository.deleteAllById(restaurantIds);
+        restaurantIds.forEach(restaurantSummaryProjector::refresh);
+    }
+
+    @Test
+    void concurrentModeration_losesNoUpdates() throws Exception {
+        Random random = new Random(7);
+        List<DiningReview> reviews = new ArrayList<>();
+        for (int r = 0; r < RESTAURANTS; r++) {
+            Restaurant restaurant = new Restaurant();
+            restaurant.setName("Stress " + r);
+            restaurant.setPostCode("ST1 1AA");
+            Long restaurantId = restaurantRepository.save(restaurant).getId();
+            restaurantIds.add(restaurantId);
+
+            for (int i = 0; i < REVIEWS_PER_RESTAURANT; i++) {
+                DiningReview review = new DiningReview();
+                review.setAuthor("stress");
+                review.setRestaurantId(restaurantId);
+                review.setPeanutScore(randomScore(random));
+                review.setEggScore(randomScore(random));
+                review.setDairyScore(randomScore(random));
+                review.setReviewStatus(ReviewStatus.PENDING);
+                reviews.add(review);
+            }
+        }
+        diningReviewRepository.saveAll(reviews).forEach(review -> reviewIds.add(review.getId()));
+
+        long recomputesBefore = ratingRecomputeScheduler.completedRecomputes();
+
+        // Approve everything at once, then reject a third of it while approving nothing new
+        List<Long> approvals = new ArrayList<>(reviewIds);
+        Collections.shuffle(approvals, random);
+        moderateConcurrently(approvals, true);
+
+        List<Long> rejections = approvals.subList(0, approvals.size() / 3);
+        moderateConcurrently(rejections, false);
+
+        long requests = approvals.size() + rejections.size();
+        long recomputes = ratingRecomputeScheduler.completedRecomputes() - recomputesBefore;
+        assertTrue(recomputes < requests, recomputes + " recomputes for " + requests + " requests");
+
+        for (Long restaurantId : restaurantIds) {
+            List<DiningReview> approved =
+                    diningReviewRepository.findByRestaurantIdAndReviewStatus(restaurantId, ReviewStatus.APPROVED);
+            Restaurant restaurant = restaurantRepository.findById(restaurantId).orElseThrow();
+
+            Double peanut = RatingCalculator.calculateAverage(approved, "peanut");
+            Double egg = RatingCalculator.calculateAverage(approved, "egg");
+            Double dairy = RatingCalculator.calculateAverage(approved, "dairy");
+            assertEquals(peanut, restaurant.getPeanutRating());
+            assertEquals(egg, restaurant.getEggRating());
+            assertEquals(dairy, restaurant.getDairyRating());
+            assertEquals(RatingCalculator.calculateOverallAverage(peanut, egg, dairy), restaurant.getOverallRating());
+            assertEquals(Long.valueOf(RatingCalculator.collectScores(approved, "peanut").size()),
+                    restaurant.getPeanutScoreCount());
+        }
+
+        // The read model catches up with the final ratings however the refreshes interleaved
+        awaitSummariesCaughtUp();
+        for (Long restaurantId : restaurantIds) {
+            Restaurant restaurant = restaurantRepository.findById(restaurantId).orElseThrow();
+            RestaurantSummary summary = restaurantSummaryRepository.findById(restaurantId).orElseThrow();
+            assertEquals(restaurant.getOverallRating(), summary.getOverallRating());
+            assertEquals(restaurant.getPeanutRating(), summary.getPeanutRating());
+            assertEquals(restaurant.getPeanutScoreCount(), summary.getPeanutReviewCount());
+            assertEquals(diningReviewRepository.findByRestaurantIdAndReviewStatus(restaurantId, ReviewStatus.APPROVED).size(),
+                    summary.getReviewCount());
+        }
+    }
+
+    private void awaitSummariesCaughtUp() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!restaurantSummaryProjector.lag().isZero()) {
+            if (System.nanoTime() > deadline) {
+                fail("summaries did not catch up");
+            }
+            Thread.sleep(20);
+        }
+    }
+
+    private void moderateConcurrently(List<Long> ids, boolean accept) throws Exception {
+        ExecutorService moderators = Executors.newFixedThreadPool(MODERATORS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (Long id : ids) {
+                results.add(moderators.submit(() -> {
+                    start.await();
+                    AdminReviewAction action = new AdminReviewAction();
+                    action.setAcceptReview(accept);
+                    return adminController.processReview(id, action);
+                }));
+            }
+            start.countDown();
+            for (Future<?> result : results) {
+                result.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            moderators.shutdown();
+        }
+    }
+
+    private static Long randomScore(Random random) {
+        // Leave some scores out, as reviewers do
+        int score = random.nextInt(6);
+        return score == 0 ? null : (long) score;
+    }
+}
@@ -0,0 +1,132 @@
+package com.tim_rayner.restaurant.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.tim_rayner.restaurant.entities.DiningReview;
+import com.tim_rayner.restaurant.entities.Restaurant;
+import com.tim_rayner.restaurant.entities.ReviewStatus;
+import com.tim_rayner.restaurant.repositories.DiningReviewRepository;
+import com.tim_rayner.restaurant.repositories.RatingChangeRepository;
+import com.tim_rayner.restaurant.repositories.RestaurantRepository;
+
+/**
+ * Score changes recorded with the reviews they come from, as moderation records them, and applied
+ * to the restaurant's totals later, as happens after a failed recompute or a restart.
+ */
+@SpringBootTest
+class RestaurantRatingServiceTest {
+
+    @Autowired
+    private RestaurantRatingService restaurantRatingService;
+
+    @Autowired
+    private RatingRecomputeScheduler ratingRecomputeScheduler;
+
+    @Autowired
+    private RestaurantRepository restaurantRepository;
+
+    @Autowired
+    private DiningReviewRepository diningReviewRepository;
+
+    @Autowired
+    private RatingChangeRepository ratingChangeRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Long restaurantId;
+    private Long reviewId;
+
+    @AfterEach
+    void removeRows() {
+        diningReviewRepository.deleteById(reviewId);
+        restaurantRepository.deleteById(restaurantId);
+    }
+
+    @Test
+    void recompute_appliesRecordedChangesOnce() {
+        Restaurant restaurant = newRestaurant();
+        new RatingAggregator().applyTo(restaurant);
+        restaurantId = restaurantRepository.save(restaurant).getId();
+        approveWithoutRecompute(4L);
+
+        restaurantRatingService.recompute(restaurantId);
+        restaurantRatingService.recompute(restaurantId);
+
+        Restaurant updated = restaurantRepository.findById(restaurantId).orElseThrow();
+        assertEquals(4.0, updated.getPeanutRating());
+        assertEquals(1L, updated.getPeanutScoreCount());
+        assertTrue(ratingChangeRepository.findByRestaurantId(restaurantId).isEmpty());
+    }
+
+    @Test
+    void recompute_withoutTotals_rebuildsThemWithoutCountingRecordedChangesTwice() {
+        // The approved review is already in the database's sums and its change is still recorded
+        restaurantId = restaurantRepository.save(newRestaurant()).getId();
+        approveWithoutRecompute(3L);
+
+        restaurantRatingService.recompute(restaurantId);
+
+        Restaurant updated = restaurantRepository.findById(restaurantId).orElseThrow();
+        assertEquals(3.0, updated.getPeanutRating());
+        assertEquals(1L, updated.getPeanutScoreCount());
+        assertEquals(3L, updated.getPeanutScoreSum());
+    }
+
+    @Test
+    void recomputePending_appliesChangesLeftBehindByARestart() throws InterruptedException {
+        Restaurant restaurant = newRestaurant();
+        new RatingAggregator().applyTo(restaurant);
+        restaurantId = restaurantRepository.save(restaurant).getId();
+        approveWithoutRecompute(5L);
+
+        ratingRecomputeScheduler.recomputePending();
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!ratingChangeRepository.findByRestaurantId(restaurantId).isEmpty()) {
+            if (System.nanoTime() > deadline) {
+                fail("recorded changes were not applied");
+            }
+            Thread.sleep(20);
+        }
+        assertEquals(5.0, restaurantRepository.findById(restaurantId).orElseThrow().getPeanutRating());
+    }
+
+    private Restaurant newRestaurant() {
+        Restaurant restaurant = new Restaurant();
+        restaurant.setName("Recorded Changes");
+        restaurant.setPostCode("RC1 1AA");
+        return restaurant;
+    }
+
+    /**
+     * Approves a review and records its score change in one transaction, as moderation does, but
+     * requests no recompute, as if the application had stopped right after the commit.
+     */
+    private void approveWithoutRecompute(Long peanutScore) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            DiningReview review = new DiningReview();
+            review.setAuthor("johndoe");
+            review.setRestaurantId(restaurantId);
+            review.setPeanutScore(peanutScore);
+            review.setReviewStatus(ReviewStatus.APPROVED);
+            reviewId = diningReviewRepository.save(review).getId();
+
+            RatingAggregator changes = new RatingAggregator();
+            changes.add(review);
+            restaurantRatingService.recordChanges(Map.of(restaurantId, changes));
+        });
+    }
+}
@@ -0,0 +1,179 @@
+package com.tim_rayner.restaurant.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.tim_rayner.restaurant.actions.AdminBatchReviewAction;
+import com.tim_rayner.restaurant.actions.AdminReviewAction;
+import com.tim_rayner.restaurant.controllers.AdminController;
+import com.tim_rayner.restaurant.entities.Allergen;
+import com.tim_rayner.restaurant.entities.DiningReview;
+import com.tim_rayner.restaurant.entities.Restaurant;
+import com.tim_rayner.restaurant.entities.RestaurantSummary;
+import com.tim_rayner.restaurant.entities.ReviewStatus;
+import com.tim_rayner.restaurant.events.RestaurantChanged;
+import com.tim_rayner.restaurant.repositories.DiningReviewRepository;
+import com.tim_rayner.restaurant.repositories.RestaurantRepository;
+import com.tim_rayner.restaurant.repositories.RestaurantSummaryRepository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Moderates reviews through the controller and checks that the summary, and the searches served
+ * from it, catch up with the restaurant's new ratings and review counts.
+ */
+@SpringBootTest
+class RestaurantSummaryProjectorTest {
+
+    private static final String POST_CODE = "PJ1 1AA";
+
+    @Autowired
+    private AdminController adminController;
+
+    @Autowired
+    private RestaurantSummaryProjector restaurantSummaryProjector;
+
+    @Autowired
+    private AllergyLeaderboard allergyLeaderboard;
+
+    @Autowired
+    private RestaurantRepository restaurantRepository;
+
+    @Autowired
+    private RestaurantSummaryRepository restaurantSummaryRepository;
+
+    @Autowired
+    private DiningReviewRepository diningReviewRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final List<Long> reviewIds = new ArrayList<>();
+    private Long restaurantId;
+
+    @AfterEach
+    void removeRows() {
+        if (restaurantId == null) {
+            return;
+        }
+        diningReviewRepository.deleteAllById(reviewIds);
+        restaurantRepository.deleteById(restaurantId);
+        restaurantSummaryProjector.refresh(restaurantId);
+    }
+
+    @Test
+    void moderation_isProjectedIntoSummaryAndSearch() throws Exception {
+        Restaurant restaurant = new Restaurant();
+        restaurant.setName("Projected");
+        restaurant.setPostCode(POST_CODE);
+        restaurantId = restaurantRepository.save(restaurant).getId();
+        restaurantSummaryProjector.refresh(restaurantId);
+
+        reviewIds.add(saveReview(5L, 4L));
+        reviewIds.add(saveReview(3L, null));
+        reviewIds.add(saveReview(1L, 1L));
+
+        adminController.processReview(reviewIds.get(0), accept(true));
+        adminController.processReviews(List.of(batchAction(reviewIds.get(1), true), batchAction(reviewIds.get(2), false)));
+        awaitCaughtUp();
+
+        RestaurantSummary summary = restaurantSummaryRepository.findById(restaurantId).orElseThrow();
+        Restaurant saved = restaurantRepository.findById(restaurantId).orElseThrow();
+        assertEquals(saved.getPeanutRating(), summary.getPeanutRating());
+        assertEquals(4.0, summary.getPeanutRating());
+        assertEquals(4.0, summary.getEggRating());
+        assertEquals(2, summary.getReviewCount());
+        assertEquals(2, summary.getPeanutReviewCount());
+        assertEquals(1, summary.getEggReviewCount());
+        assertEquals(0, summary.getDairyReviewCount());
+
+        List<RestaurantSummary> found = allergyLeaderboard.search(POST_CODE, EnumSet.of(Allergen.PEANUT));
+        assertEquals(List.of(restaurantId), found.stream().map(RestaurantSummary::getId).toList());
+        assertEquals(2, found.get(0).getReviewCount());
+
+        assertTrue(meterRegistry.find("restaurant.summaries.projection.delay").timer().count() > 0);
+        assertNotNull(meterRegistry.find("restaurant.summaries.lag").gauge());
+    }
+
+    @Test
+    void failedRefresh_isRetriedAndCountsTowardsTheLag() throws Exception {
+        RestaurantSummaryRepository failingRepository = mock(RestaurantSummaryRepository.class);
+        doThrow(new QueryTimeoutException("database busy"))
+                .doNothing()
+                .when(failingRepository).refresh(1L);
+        RestaurantSummaryProjector projector = new RestaurantSummaryProjector(failingRepository,
+                mock(AllergyLeaderboard.class), mock(PlatformTransactionManager.class), new SimpleMeterRegistry(),
+                Duration.ofMillis(200));
+        try {
+            projector.onRestaurantChanged(new RestaurantChanged(1L, Instant.now()));
+
+            verify(failingRepository, timeout(5000)).refresh(1L);
+            // Until the retry succeeds the restaurant is still behind
+            assertFalse(projector.lag().isZero());
+            verify(failingRepository, timeout(5000).times(2)).refresh(1L);
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (!projector.lag().isZero()) {
+                assertTrue(System.nanoTime() < deadline, "summary was not refreshed again");
+                Thread.sleep(20);
+            }
+        } finally {
+            projector.destroy();
+        }
+    }
+
+    private Long saveReview(Long peanutScore, Long eggScore) {
+        DiningReview review = new DiningReview();
+        review.setAuthor("projector");
+        review.setRestaurantId(restaurantId);
+        review.setPeanutScore(peanutScore);
+        review.setEggScore(eggScore);
+        review.setReviewStatus(ReviewStatus.PENDING);
+        return diningReviewRepository.save(review).getId();
+    }
+
+    private void awaitCaughtUp() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (System.nanoTime() < deadline) {
+            if (restaurantSummaryProjector.lag().isZero()) {
+                return;
+            }
+            Thread.sleep(20);
+        }
+        fail("summaries did not catch up");
+    }
+
+    private static AdminReviewAction accept(boolean acceptReview) {
+        AdminReviewAction action = new AdminReviewAction();
+        action.setAcceptReview(acceptReview);
+        return action;
+    }
+
+    private static AdminBatchReviewAction batchAction(Long id, boolean acceptReview) {
+        AdminBatchReviewAction action = new AdminBatchReviewAction();
+        action.setId(id);
+        action.setAcceptReview(acceptReview);
+        return action;
+    }
+}
@@ -0,0 +1,106 @@
+package com.tim_rayner.restaurant.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.tim_rayner.restaurant.entities.DiningReview;
+import com.tim_rayner.restaurant.repositories.DiningReviewRepository;
+import com.tim_rayner.restaurant.responses.SubmissionStatus;
+
+class ReviewSubmissionQueueTest {
+
+    private final DiningReviewRepository diningReviewRepository = mock(DiningReviewRepository.class);
+    private final List<Integer> batchSizes = new ArrayList<>();
+    private final AtomicLong ids = new AtomicLong();
+    // Counted down each time the writer hands a batch to saveAll
+    private final CountDownLatch batchTaken = new CountDownLatch(1);
+
+    @Test
+    void stop_flushesEveryQueuedReviewInBatches() {
+        CountDownLatch writerBlocked = new CountDownLatch(1);
+        recordSaves(writerBlocked);
+        ReviewSubmissionQueue queue = newQueue(100, 10);
+        queue.start();
+
+        List<String> trackingIds = new ArrayList<>();
+        for (int i = 0; i < 35; i++) {
+            trackingIds.add(queue.submit(new DiningReview()).orElseThrow());
+        }
+        writerBlocked.countDown();
+        queue.stop();
+
+        assertEquals(35, batchSizes.stream().mapToInt(Integer::intValue).sum());
+        assertTrue(batchSizes.stream().allMatch(size -> size <= 10));
+        for (String trackingId : trackingIds) {
+            SubmissionStatus status = queue.status(trackingId).orElseThrow();
+            assertEquals(SubmissionStatus.State.WRITTEN, status.getState());
+            assertTrue(status.getReviewId() != null);
+        }
+    }
+
+    @Test
+    void submit_whenFull_refusesInsteadOfBlocking() throws Exception {
+        CountDownLatch writerBlocked = new CountDownLatch(1);
+        recordSaves(writerBlocked);
+        ReviewSubmissionQueue queue = newQueue(5, 1);
+        queue.start();
+
+        // The writer takes one review and blocks on it, the queue then holds five more
+        queue.submit(new DiningReview()).orElseThrow();
+        assertTrue(batchTaken.await(10, TimeUnit.SECONDS), "writer never took the first review");
+        for (int i = 0; i < 5; i++) {
+            queue.submit(new DiningReview()).orElseThrow();
+        }
+
+        assertEquals(Optional.empty(), queue.submit(new DiningReview()));
+
+        writerBlocked.countDown();
+        queue.stop();
+        assertEquals(6, batchSizes.stream().mapToInt(Integer::intValue).sum());
+    }
+
+    @Test
+    void submit_whenDisabled_refuses() {
+        ReviewSubmissionQueue queue = new ReviewSubmissionQueue(
+                diningReviewRepository, mock(PlatformTransactionManager.class), false, 10, 10, Duration.ofMinutes(1));
+        queue.start();
+
+        assertEquals(Optional.empty(), queue.submit(new DiningReview()));
+        queue.stop();
+    }
+
+    private ReviewSubmissionQueue newQueue(int capacity, int batchSize) {
+        return new ReviewSubmissionQueue(
+                diningReviewRepository, mock(PlatformTransactionManager.class), true, capacity, batchSize, Duration.ofMinutes(1));
+    }
+
+    private void recordSaves(CountDownLatch release) {
+        when(diningReviewRepository.saveAll(anyIterable())).thenAnswer(invocation -> {
+            batchTaken.countDown();
+            release.await();
+            List<DiningReview> saved = new ArrayList<>();
+            for (Object review : (Iterable<?>) invocation.getArgument(0)) {
+                ((DiningReview) review).setId(ids.incrementAndGet());
+                saved.add((DiningReview) review);
+            }
+            synchronized (batchSizes) {
+                batchSizes.add(saved.size());
+            }
+            return saved;
+        });
+    }
+}
@@ -0,0 +1,107 @@
+package com.tim_rayner.restaurant.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.tim_rayner.restaurant.entities.DiningReview;
+import com.tim_rayner.restaurant.entities.Restaurant;
+import com.tim_rayner.restaurant.entities.ReviewStatus;
+import com.tim_rayner.restaurant.repositories.DiningReviewRepository;
+import com.tim_rayner.restaurant.repositories.RestaurantRepository;
+import com.tim_rayner.restaurant.responses.TextSearchHit;
+
+class TextSearchIndexTest {
+
+    private final TextSearchIndex index =
+            new TextSearchIndex(mock(RestaurantRepository.class), mock(DiningReviewRepository.class));
+
+    @Test
+    void tokenize_splitsOnPunctuation_andDropsStopWords() {
+        assertEquals(List.of("nut", "free", "kitchen", "gluten"),
+                TextSearchIndex.tokenize("The Nut-free kitchen, with GLUTEN!"));
+    }
+
+    @Test
+    void search_ranksDocumentsMatchingMoreTermsFirst() {
+        index.index(restaurant(1L, "Nut-free kitchen serving Thai curries"));
+        index.index(restaurant(2L, "A kitchen famous for its peanut sauce"));
+        index.index(review(10L, 2L, ReviewStatus.APPROVED, "Nut free options were limited"));
+
+        List<TextSearchHit> hits = index.search("nut-free kitchen", 10);
+
+        assertEquals(3, hits.size());
+        assertEquals(1L, hits.get(0).getRestaurantId());
+        assertEquals(null, hits.get(0).getReviewId());
+        assertEquals(10L, hits.get(1).getReviewId());
+        assertTrue(hits.get(0).getScore() > hits.get(1).getScore());
+    }
+
+    @Test
+    void search_findsOnlyApprovedComments() {
+        index.index(review(10L, 1L, ReviewStatus.PENDING, "Clearly labelled gluten free menu"));
+        assertTrue(index.search("gluten", 10).isEmpty());
+
+        index.index(review(10L, 1L, ReviewStatus.APPROVED, "Clearly labelled gluten free menu"));
+        assertEquals(10L, index.search("gluten", 10).get(0).getReviewId());
+
+        index.index(review(10L, 1L, ReviewStatus.REJECTED, "Clearly labelled gluten free menu"));
+        assertTrue(index.search("gluten", 10).isEmpty());
+    }
+
+    @Test
+    void search_returnsTheBestLimitMatches() {
+        for (long id = 1; id <= 50; id++) {
+            // Shorter comments score higher for the same term
+            index.index(review(id, 1L, ReviewStatus.APPROVED, "dairy " + "word ".repeat((int) id)));
+        }
+
+        List<TextSearchHit> hits = index.search("dairy", 3);
+
+        assertEquals(List.of(1L, 2L, 3L), hits.stream().map(TextSearchHit::getReviewId).toList());
+    }
+
+    @Test
+    void search_stopsEarly_withTheSameScoresAsAFullScan() {
+        String[] words = {"gluten", "sesame", "kitchen", "staff", "menu", "free", "dairy", "vegan", "spicy", "clean"};
+        Random random = new Random(42);
+        for (long id = 1; id <= 3000; id++) {
+            StringBuilder comment = new StringBuilder();
+            for (int w = random.nextInt(1, 20); w > 0; w--) {
+                // Skewed, so some terms are far more common than others
+                comment.append(words[(int) (words.length * Math.pow(random.nextDouble(), 2))]).append(' ');
+            }
+            index.index(review(id, id % 7, ReviewStatus.APPROVED, comment.toString()));
+        }
+        for (long id = 1; id <= 3000; id += 3) {
+            index.index(review(id, id % 7, ReviewStatus.REJECTED, null));
+        }
+
+        for (String query : List.of("gluten", "clean", "vegan spicy", "gluten free kitchen", "sesame menu clean")) {
+            List<Double> full = index.search(query, Integer.MAX_VALUE).stream().map(TextSearchHit::getScore).toList();
+            List<Double> top = index.search(query, 10).stream().map(TextSearchHit::getScore).toList();
+            assertEquals(full.subList(0, 10), top, query);
+        }
+    }
+
+    private static Restaurant restaurant(Long id, String bio) {
+        Restaurant restaurant = new Restaurant();
+        restaurant.setId(id);
+        restaurant.setBio(bio);
+        return restaurant;
+    }
+
+    private static DiningReview review(Long id, Long restaurantId, ReviewStatus status, String comment) {
+        DiningReview review = new DiningReview();
+        review.setId(id);
+        review.setRestaurantId(restaurantId);
+        review.setReviewStatus(status);
+        review.setComment(comment);
+        return review;
+    }
+}
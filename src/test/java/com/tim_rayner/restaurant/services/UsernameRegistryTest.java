@@ -0,0 +1,110 @@
+package com.tim_rayner.restaurant.services;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.tim_rayner.restaurant.entities.User;
+import com.tim_rayner.restaurant.repositories.UserRepository;
+
+class UsernameRegistryTest {
+
+    private UserRepository userRepository;
+    private UsernameRegistry usernameRegistry;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        when(userRepository.count()).thenReturn(2L);
+        when(userRepository.streamAllUsernames(anyInt())).thenReturn(Stream.of("johndoe", "janedoe"));
+        when(userRepository.findByUsername(anyString())).thenReturn(Optional.empty());
+        when(userRepository.findByUsername("johndoe")).thenReturn(Optional.of(new User()));
+        when(userRepository.findByUsername("janedoe")).thenReturn(Optional.of(new User()));
+        usernameRegistry = new UsernameRegistry(
+                userRepository, mock(PlatformTransactionManager.class), 0.01, 100, Duration.ofMinutes(1));
+        usernameRegistry.load();
+    }
+
+    @Test
+    void exists_loadedUsername_isConfirmedByNaturalId() {
+        assertTrue(usernameRegistry.exists("johndoe"));
+        assertTrue(usernameRegistry.exists("janedoe"));
+
+        verify(userRepository).findByUsername("johndoe");
+        verify(userRepository, never()).existsByUsername(anyString());
+    }
+
+    @Test
+    void exists_unknownUsername_queriesDatabaseOnce() {
+        when(userRepository.existsByUsername("nobody")).thenReturn(false);
+
+        assertFalse(usernameRegistry.exists("nobody"));
+        assertFalse(usernameRegistry.exists("nobody"));
+        assertFalse(usernameRegistry.exists("nobody"));
+
+        verify(userRepository, times(1)).existsByUsername("nobody");
+    }
+
+    @Test
+    void exists_usernameCreatedElsewhere_isFoundAndAddedToTheFilter() {
+        when(userRepository.existsByUsername("newcomer")).thenReturn(true);
+        when(userRepository.findByUsername("newcomer")).thenReturn(Optional.of(new User()));
+
+        assertTrue(usernameRegistry.exists("newcomer"));
+        assertTrue(usernameRegistry.exists("newcomer"));
+
+        verify(userRepository, times(1)).existsByUsername("newcomer");
+        verify(userRepository, times(1)).findByUsername("newcomer");
+    }
+
+    @Test
+    void register_overridesEarlierNegativeLookup() {
+        when(userRepository.existsByUsername("latecomer")).thenReturn(false);
+        assertFalse(usernameRegistry.exists("latecomer"));
+
+        usernameRegistry.register("latecomer");
+        when(userRepository.findByUsername("latecomer")).thenReturn(Optional.of(new User()));
+
+        assertTrue(usernameRegistry.exists("latecomer"));
+        verify(userRepository, times(1)).existsByUsername("latecomer");
+    }
+
+    @Test
+    void register_duringANegativeLookup_isNotHiddenByIt() {
+        // The name is created while the lookup is in the database and has not seen it yet
+        when(userRepository.existsByUsername("racer")).thenAnswer(invocation -> {
+            usernameRegistry.register("racer");
+            return false;
+        });
+        assertFalse(usernameRegistry.exists("racer"));
+
+        when(userRepository.findByUsername("racer")).thenReturn(Optional.of(new User()));
+        assertTrue(usernameRegistry.exists("racer"));
+        verify(userRepository, times(1)).existsByUsername("racer");
+    }
+
+    @Test
+    void exists_deletedUsername_isUnknownDespiteTheFilter() {
+        usernameRegistry.register("leaver");
+
+        assertFalse(usernameRegistry.exists("leaver"));
+        assertFalse(usernameRegistry.exists("leaver"));
+
+        verify(userRepository, times(1)).findByUsername("leaver");
+        verify(userRepository, never()).existsByUsername("leaver");
+    }
+}
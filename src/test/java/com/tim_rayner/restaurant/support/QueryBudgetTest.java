@@ -0,0 +1,27 @@
+package com.tim_rayner.restaurant.support;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+
+/**
+ * Runs a test class against the full application and a real database with {@link SqlStatementCounter}
+ * installed, so endpoint calls made through MockMvc can be held to a SQL statement budget. Open-in-view
+ * is off, as in production, so each budget counts the statements a request really issues there.
+ * Each {@code *ControllerTest} has a {@code *ControllerQueryBudgetTest} beside it holding its budgets.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "com.tim_rayner.restaurant.support.SqlStatementCounter",
+        "restaurant.reviews.write-behind.enabled=true",
+        "spring.jpa.open-in-view=false"
+})
+@AutoConfigureMockMvc
+public @interface QueryBudgetTest {
+}
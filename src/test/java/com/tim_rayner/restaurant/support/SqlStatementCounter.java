@@ -0,0 +1,110 @@
+package com.tim_rayner.restaurant.support;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Records the SQL statements Hibernate prepares on the current thread, by type. Registered as the
+ * session factory's statement inspector by {@link QueryBudgetTest}; statements prepared while no
+ * {@link #count} is in progress on the thread are ignored. Statements on the rating recompute threads
+ * are recorded as well while a count runs, since a request that changes ratings waits for its
+ * recompute; work that happens after the response, such as the summary projector's refresh or the
+ * write-behind writer's inserts, is not part of any count.
+ * A JDBC batch is prepared once however many rows it carries, so it counts as one statement.
+ * Sequence calls are counted apart and left out of budgets: IDs come 50 at a time, so whether a
+ * given request needs one depends on what ran before it.
+ */
+public class SqlStatementCounter implements StatementInspector {
+
+    // Named by RatingRecomputeScheduler
+    private static final String RECOMPUTE_THREAD_PREFIX = "rating-recompute-";
+
+    private static final ThreadLocal<List<String>> RECORDING = new ThreadLocal<>();
+    // The count in progress, for statements prepared on the recompute threads
+    private static volatile List<String> recomputeRecording;
+
+    @Override
+    public String inspect(String sql) {
+        List<String> statements = RECORDING.get();
+        if (statements == null && Thread.currentThread().getName().startsWith(RECOMPUTE_THREAD_PREFIX)) {
+            statements = recomputeRecording;
+        }
+        if (statements != null) {
+            statements.add(sql);
+        }
+        return sql;
+    }
+
+    /**
+     * Runs the action on this thread and returns the statements it issued, including those of the
+     * rating recomputes it waited for. Counts must not run on several threads at once.
+     */
+    public static Counts count(Action action) throws Exception {
+        List<String> statements = Collections.synchronizedList(new ArrayList<>());
+        RECORDING.set(statements);
+        recomputeRecording = statements;
+        try {
+            action.run();
+        } finally {
+            recomputeRecording = null;
+            RECORDING.remove();
+        }
+        return new Counts(List.copyOf(statements));
+    }
+
+    @FunctionalInterface
+    public interface Action {
+
+        void run() throws Exception;
+    }
+
+    /**
+     * The statements issued by one action.
+     */
+    public record Counts(List<String> statements) {
+
+        public long selects() {
+            return ofType("select") - sequenceCalls();
+        }
+
+        public long inserts() {
+            return ofType("insert");
+        }
+
+        public long updates() {
+            return ofType("update");
+        }
+
+        public long deletes() {
+            return ofType("delete");
+        }
+
+        public long sequenceCalls() {
+            return statements.stream().filter(sql -> sql.toLowerCase(Locale.ROOT).contains("next value for")).count();
+        }
+
+        /**
+         * Fails if the action issued more statements of any type than its budget allows.
+         */
+        public void assertBudget(long selects, long inserts, long updates, long deletes) {
+            String message = String.format("budget %d select/%d insert/%d update/%d delete, issued %d/%d/%d/%d: %s",
+                    selects, inserts, updates, deletes, selects(), inserts(), updates(), deletes(), statements);
+            assertTrue(selects() <= selects && inserts() <= inserts && updates() <= updates && deletes() <= deletes,
+                    message);
+            assertTrue(statements.size() == selects() + inserts() + updates() + deletes() + sequenceCalls(),
+                    "unclassified statements: " + statements);
+        }
+
+        private long ofType(String type) {
+            return statements.stream()
+                    .filter(sql -> sql.stripLeading().toLowerCase(Locale.ROOT).startsWith(type))
+                    .count();
+        }
+    }
+}